@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import com.mainstreetcode.teammate.model.Chat;
+import com.mainstreetcode.teammate.model.PageCursor;
+import com.mainstreetcode.teammate.repository.ChatGapFill;
+import com.mainstreetcode.teammate.rest.TeammateApi;
+import com.mainstreetcode.teammate.rest.TeammateService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+
+import androidx.annotation.NonNull;
+import androidx.test.runner.AndroidJUnit4;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link ChatGapFill} against a local server holding a team's chat history, paged back from
+ * the latest chat the way the team chat endpoint pages it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatGapFillTest {
+
+    private static final String TEAM_ID = "team";
+    private static final int HISTORY_SIZE = 200;
+    private static final int PAGE_SIZE = 50;
+    private static final long START = 1_500_000_000_000L;
+
+    private TeammateApi api;
+    private ChatServer chatServer;
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        chatServer = new ChatServer();
+        server = new MockWebServer();
+        server.setDispatcher(chatServer);
+        server.start();
+
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create(TeammateService.getGson()))
+                .build()
+                .create(TeammateApi.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void fillsGapAcrossPages() {
+        int stored = HISTORY_SIZE - 120;
+        List<Chat> missed = flatten(new ChatGapFill(api, PAGE_SIZE, 10).since(TEAM_ID, cursorOf(stored - 1))
+                .toList()
+                .blockingGet());
+
+        assertEquals(120, missed.size());
+        assertEquals(3, chatServer.requests);
+
+        Set<String> ids = new HashSet<>();
+        for (Chat chat : missed) {
+            ids.add(chat.getId());
+            assertTrue(chat.getCreated().after(createdAt(stored - 1)));
+        }
+        assertEquals(120, ids.size());
+    }
+
+    @Test
+    public void stopsWhenCaughtUp() {
+        List<List<Chat>> pages = new ChatGapFill(api, PAGE_SIZE, 10).since(TEAM_ID, cursorOf(HISTORY_SIZE - 1))
+                .toList()
+                .blockingGet();
+
+        assertTrue(pages.isEmpty());
+        assertEquals(1, chatServer.requests);
+    }
+
+    @Test
+    public void stopsAfterMaxPages() {
+        List<Chat> missed = flatten(new ChatGapFill(api, PAGE_SIZE, 2).since(TEAM_ID, cursorOf(0))
+                .toList()
+                .blockingGet());
+
+        assertEquals(2 * PAGE_SIZE, missed.size());
+        assertEquals(2, chatServer.requests);
+    }
+
+    @Test
+    public void keepsChatsSharingTheNewestTimestamp() {
+        chatServer.chatsPerSecond = 2;
+
+        // Chat 101 was sent in the same second as chat 100, the newest one stored
+        List<Chat> missed = flatten(new ChatGapFill(api, PAGE_SIZE, 10)
+                .since(TEAM_ID, new PageCursor(createdAt(50), idOf(100)))
+                .toList()
+                .blockingGet());
+
+        Set<String> ids = new HashSet<>();
+        for (Chat chat : missed) ids.add(chat.getId());
+
+        assertEquals(HISTORY_SIZE - 101, missed.size());
+        assertTrue(ids.contains(idOf(101)));
+        assertFalse(ids.contains(idOf(100)));
+        assertEquals(2, chatServer.requests);
+    }
+
+    private static List<Chat> flatten(List<List<Chat>> pages) {
+        List<Chat> chats = new ArrayList<>();
+        for (List<Chat> page : pages) chats.addAll(page);
+        return chats;
+    }
+
+    private static Date createdAt(int index) {
+        return new Date(START + index * 1000L);
+    }
+
+    private static PageCursor cursorOf(int index) {
+        return new PageCursor(createdAt(index), idOf(index));
+    }
+
+    private static String idOf(int index) {
+        return String.format(Locale.US, "chat-%03d", index);
+    }
+
+    /**
+     * Answers with up to limit chats older than the chat named by cursorId, latest first. Every
+     * chatsPerSecond consecutive chats share a timestamp.
+     */
+    private static class ChatServer extends Dispatcher {
+
+        private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        private int chatsPerSecond = 1;
+        private int requests;
+
+        ChatServer() {
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        @NonNull
+        @Override
+        public synchronized MockResponse dispatch(RecordedRequest request) {
+            requests++;
+
+            HttpUrl url = request.getRequestUrl();
+            String cursorId = url.queryParameter("cursorId");
+            String limit = url.queryParameter("limit");
+
+            int end = cursorId == null ? HISTORY_SIZE : Integer.parseInt(cursorId.substring("chat-".length()));
+            int start = Math.max(0, end - (limit == null ? PAGE_SIZE : Integer.parseInt(limit)));
+
+            StringBuilder body = new StringBuilder("[");
+            for (int i = end - 1; i >= start; i--) {
+                if (body.length() > 1) body.append(',');
+                body.append("{\"_id\":\"").append(idOf(i))
+                        .append("\",\"kind\":\"text\",\"content\":\"").append(i)
+                        .append("\",\"created\":\"").append(format.format(createdAt(i / chatsPerSecond)))
+                        .append("\"}");
+            }
+
+            return new MockResponse().setBody(body.append(']').toString());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import com.mainstreetcode.teammate.persistence.AppDatabase;
+import com.mainstreetcode.teammate.persistence.OutboxDao;
+import com.mainstreetcode.teammate.socket.ChatOutbox;
+import com.mainstreetcode.teammate.util.ObjectId;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import androidx.room.Room;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import io.socket.client.Ack;
+import io.socket.client.Manager;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link ChatOutbox} against stand-in team chat sockets that acknowledge chats out of
+ * order after a random delay, and can be made to drop the connection partway through.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatOutboxTest {
+
+    private static final int WINDOW = 4;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private AppDatabase database;
+    private OutboxDao dao;
+    private Queue<StandInSocket> sockets;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class).build();
+        dao = database.outboxDao();
+        sockets = new ArrayDeque<>();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void pipelinesChatsAndMatchesAcksToTheirChats() throws JSONException, InterruptedException {
+        StandInSocket socket = new StandInSocket(true);
+        sockets.add(socket);
+
+        ChatOutbox outbox = outbox();
+        List<String> ids = new ArrayList<>();
+        List<TestObserver<String>> observers = send(outbox, 20, ids);
+
+        for (int i = 0; i < ids.size(); i++) assertAcknowledged(observers.get(i), ids.get(i));
+
+        assertEquals(ids, socket.received);
+        assertTrue(socket.maxInFlight > 1);
+        assertTrue(socket.maxInFlight <= WINDOW);
+        awaitPending(0);
+    }
+
+    @Test
+    public void resendsUnacknowledgedChatsInOrderAfterReconnecting() throws JSONException, InterruptedException {
+        StandInSocket dropped = new StandInSocket(false);
+        dropped.disconnectAfter = 3;
+        StandInSocket reconnected = new StandInSocket(true);
+        sockets.add(dropped);
+        sockets.add(reconnected);
+
+        ChatOutbox outbox = outbox();
+        List<String> ids = new ArrayList<>();
+        List<TestObserver<String>> observers = send(outbox, 6, ids);
+
+        for (int i = 0; i < ids.size(); i++) assertAcknowledged(observers.get(i), ids.get(i));
+
+        assertEquals(ids.subList(0, 3), dropped.received);
+        assertEquals(ids, reconnected.received);
+        awaitPending(0);
+    }
+
+    @Test
+    public void acceptsAcksCarryingServerAssignedIds() throws InterruptedException {
+        StandInSocket socket = new StandInSocket(true);
+        socket.assignsIds = true;
+        sockets.add(socket);
+
+        ChatOutbox outbox = outbox();
+        List<String> ids = new ArrayList<>();
+        List<TestObserver<String>> observers = send(outbox, 5, ids);
+
+        for (TestObserver<String> observer : observers) {
+            assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            observer.assertNoErrors();
+        }
+
+        assertEquals(ids, socket.received);
+        awaitPending(0);
+    }
+
+    @Test
+    public void sendsChatsLeftByAPreviousProcess() throws InterruptedException {
+        sockets.add(new StandInSocket(false));
+
+        List<String> ids = new ArrayList<>();
+        send(outbox(), 5, ids);
+        awaitPending(5);
+
+        StandInSocket socket = new StandInSocket(true);
+        sockets.add(socket);
+        outbox().resume().blockingAwait();
+        awaitPending(0);
+
+        assertEquals(ids, socket.received);
+    }
+
+    private ChatOutbox outbox() {
+        return new ChatOutbox(dao, () -> Single.<Socket>just(sockets.remove()), Flowable.<Socket>never(), WINDOW);
+    }
+
+    private List<TestObserver<String>> send(ChatOutbox outbox, int count, List<String> ids) {
+        List<TestObserver<String>> observers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = new ObjectId().toHexString();
+            ids.add(id);
+            observers.add(outbox.send(id, "team", "{\"_id\":\"" + id + "\",\"content\":\"" + i + "\"}").test());
+        }
+        return observers;
+    }
+
+    private void assertAcknowledged(TestObserver<String> observer, String id) throws JSONException {
+        assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        observer.assertNoErrors();
+        assertEquals(id, new JSONObject(observer.values().get(0)).getString("_id"));
+    }
+
+    private void awaitPending(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (dao.pending().size() != count && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertEquals(count, dao.pending().size());
+    }
+
+    /**
+     * Stands in for the team chat namespace of the server, which echoes each chat back as its
+     * acknowledgement.
+     */
+    private static class StandInSocket extends Socket {
+
+        private final boolean acknowledges;
+        private final Random random = new Random(3);
+        private final ScheduledExecutorService server = Executors.newScheduledThreadPool(WINDOW);
+        private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+        private int inFlight;
+        private int maxInFlight;
+        private int disconnectAfter = Integer.MAX_VALUE;
+        private boolean assignsIds;
+
+        StandInSocket(boolean acknowledges) {
+            super(new Manager(URI.create("http://localhost")), "/team-chat", null);
+            this.acknowledges = acknowledges;
+        }
+
+        @Override
+        public Emitter emit(String event, Object[] args, Ack ack) {
+            JSONObject chat = (JSONObject) args[0];
+
+            synchronized (this) {
+                if (received.size() >= disconnectAfter) return this;
+
+                received.add(chat.optString("_id"));
+                maxInFlight = Math.max(maxInFlight, ++inFlight);
+
+                if (received.size() == disconnectAfter) {
+                    server.schedule(() -> emit(EVENT_DISCONNECT, "transport close"), 10, TimeUnit.MILLISECONDS);
+                    return this;
+                }
+            }
+
+            if (acknowledges) server.schedule(() -> {
+                synchronized (this) {
+                    inFlight--;
+                }
+                ack.call(assignsIds ? withServerId(chat) : chat);
+            }, 5 + random.nextInt(25), TimeUnit.MILLISECONDS);
+
+            return this;
+        }
+
+        private static JSONObject withServerId(JSONObject chat) {
+            try {
+                return new JSONObject(chat.toString()).put("_id", new ObjectId().toHexString());
+            } catch (JSONException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.mainstreetcode.teammate;
+
+import com.mainstreetcode.teammate.model.User;
+import com.mainstreetcode.teammate.util.DiffScheduler;
+import com.tunjid.androidx.recyclerview.diff.Differentiable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.Single;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Queues diffs of one list behind a diff that is still running, so they are superseded, and
+ * applies every result to a stand in for an adapter the way a list fragment would.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiffSchedulerTest {
+
+    @Test
+    public void adapterMatchesListAfterSupersededDiffs() throws InterruptedException {
+        List<Differentiable> original = new ArrayList<>(users(0, 10));
+        AdapterCount adapter = new AdapterCount(original.size());
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Single<DiffUtil.DiffResult> first = DiffScheduler.INSTANCE.diff(original, users(0, 20), (source, list) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return list;
+        }).cache();
+        first.subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Both wait on the running diff, the first of them is superseded by the second
+        Single<DiffUtil.DiffResult> superseded = DiffScheduler.INSTANCE.diff(original, users(5, 30), (source, list) -> list).cache();
+        Single<DiffUtil.DiffResult> latest = DiffScheduler.INSTANCE.diff(original, users(10, 15), (source, list) -> list).cache();
+        superseded.subscribe();
+        latest.subscribe();
+        release.countDown();
+
+        first.blockingGet().dispatchUpdatesTo(adapter);
+
+        AdapterCount supersededOnly = new AdapterCount(adapter.count);
+        superseded.blockingGet().dispatchUpdatesTo(supersededOnly);
+        assertEquals(adapter.count, supersededOnly.count);
+
+        superseded.blockingGet().dispatchUpdatesTo(adapter);
+        latest.blockingGet().dispatchUpdatesTo(adapter);
+
+        assertEquals(5, original.size());
+        assertEquals(original.size(), adapter.count);
+    }
+
+    private static List<Differentiable> users(int from, int to) {
+        List<Differentiable> users = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            String id = "user-" + i;
+            users.add(new User(id, "", id, id + "@teammate.app", "First", "Last", ""));
+        }
+        return users;
+    }
+
+    /**
+     * Tracks the item count an adapter would report after each dispatched result.
+     */
+    private static class AdapterCount implements ListUpdateCallback {
+
+        private int count;
+
+        AdapterCount(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            this.count += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            this.count -= count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {}
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {}
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.mainstreetcode.teammate;
+
+import android.database.Cursor;
+
+import com.mainstreetcode.teammate.model.Game;
+import com.mainstreetcode.teammate.model.Stat;
+import com.mainstreetcode.teammate.model.Team;
+import com.mainstreetcode.teammate.model.User;
+import com.mainstreetcode.teammate.model.enums.Sport;
+import com.mainstreetcode.teammate.model.enums.StatAttribute;
+import com.mainstreetcode.teammate.model.enums.StatAttributes;
+import com.mainstreetcode.teammate.model.enums.StatType;
+import com.mainstreetcode.teammate.persistence.AppDatabase;
+import com.mainstreetcode.teammate.persistence.entity.StatEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.Date;
+
+import androidx.room.Room;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Upserts rows against an in memory database, checking that a change to any stored column is
+ * written even though unchanged rows are skipped.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EntityDaoTest {
+
+    private static final long START = 1_500_000_000_000L;
+
+    private AppDatabase database;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class).build();
+
+        // Only the stats table is under test, its game, team and user rows are left out
+        database.getOpenHelper().getWritableDatabase().execSQL("PRAGMA foreign_keys = OFF");
+        AppDatabase.Companion.setOverride(database);
+    }
+
+    @After
+    public void tearDown() {
+        AppDatabase.Companion.setOverride(null);
+        database.close();
+    }
+
+    @Test
+    public void attributeOnlyChangeIsWritten() {
+        Stat stat = new Stat("stat", new Date(START), StatType.Companion.empty(), Sport.Companion.empty(),
+                User.Companion.empty(), Team.Companion.empty(), Game.Companion.withId("game"),
+                new StatAttributes(), 0, 0F);
+
+        upsert(stat);
+        assertEquals("[]", storedAttributes());
+
+        stat.compoundAttribute(new StatAttribute("assist", "Assist"));
+        upsert(stat);
+        assertTrue(storedAttributes().contains("assist"));
+    }
+
+    private void upsert(Stat stat) {
+        database.statDao().upsert(Collections.<StatEntity>singletonList(stat));
+    }
+
+    private String storedAttributes() {
+        try (Cursor cursor = database.query("SELECT stat_attributes FROM stats WHERE stat_id = 'stat'", null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : "";
+        }
+    }
+}
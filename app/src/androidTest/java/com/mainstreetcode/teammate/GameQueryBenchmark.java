@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import com.mainstreetcode.teammate.persistence.AppDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Pages a team's games out of a synthetic 50k row games table with the GameDao query, and compares
+ * it to the OR'ed query it replaced running without the team indices. Games share timestamps, so
+ * pages are only complete if the cursor breaks ties on the id.
+ * <p>
+ * Timings are logged under the class name, only the correctness of the pages is asserted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GameQueryBenchmark {
+
+    private static final String TAG = "GameQueryBenchmark";
+
+    // Mirrors GameDao.gameRows(teamId, date, limit), keep in sync
+    private static final String GAMES_BY_TEAM = "SELECT * FROM (SELECT * FROM games" +
+            " WHERE ? = game_host" +
+            " AND game_ref_path = 'user'" +
+            " AND game_created <= ?" +
+            " AND (game_created < ? OR game_id < ?)" +
+            " ORDER BY game_created DESC, game_id DESC" +
+            " LIMIT ?)" +
+            " UNION ALL" +
+            " SELECT * FROM (SELECT * FROM games" +
+            " WHERE ? = game_home_entity" +
+            " AND NOT (? = game_host AND game_ref_path = 'user')" +
+            " AND game_created <= ?" +
+            " AND (game_created < ? OR game_id < ?)" +
+            " ORDER BY game_created DESC, game_id DESC" +
+            " LIMIT ?)" +
+            " UNION ALL" +
+            " SELECT * FROM (SELECT * FROM games" +
+            " WHERE ? = game_away_entity" +
+            " AND ? != game_home_entity" +
+            " AND NOT (? = game_host AND game_ref_path = 'user')" +
+            " AND game_created <= ?" +
+            " AND (game_created < ? OR game_id < ?)" +
+            " ORDER BY game_created DESC, game_id DESC" +
+            " LIMIT ?)" +
+            " ORDER BY game_created DESC, game_id DESC" +
+            " LIMIT ?";
+
+    private static final String LEGACY_GAMES_BY_TEAM = "SELECT * FROM games as game" +
+            " WHERE (? = game_host AND game_ref_path = 'user')" +
+            " OR ? = game_home_entity" +
+            " OR ? = game_away_entity" +
+            " AND game_created < ?" +
+            " ORDER BY game_created DESC" +
+            " LIMIT ?";
+
+    private static final String EXPECTED_GAMES_BY_TEAM = "SELECT game_id FROM games" +
+            " WHERE ((? = game_host AND game_ref_path = 'user')" +
+            " OR ? = game_home_entity" +
+            " OR ? = game_away_entity)" +
+            " ORDER BY game_created DESC, game_id DESC";
+
+    private static final String[] TEAM_INDICES = {
+            "index_games_game_host_game_created_game_id",
+            "index_games_game_home_entity_game_created_game_id",
+            "index_games_game_away_entity_game_created_game_id"
+    };
+
+    private static final int NUM_GAMES = 50_000;
+    private static final int NUM_TEAMS = 100;
+    private static final int TIES_PER_TIMESTAMP = 4;
+    private static final int PAGE_SIZE = 12;
+    private static final int NUM_PAGES = 20;
+    private static final String TEAM = "team-0";
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+
+    private static Object[] teamArgs(String teamId, long date, String cursorId, int limit) {
+        return new Object[]{
+                teamId, date, date, cursorId, limit,
+                teamId, teamId, date, date, cursorId, limit,
+                teamId, teamId, teamId, date, date, cursorId, limit,
+                limit
+        };
+    }
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class).build();
+        db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("PRAGMA foreign_keys = OFF");
+
+        Random random = new Random(0);
+        SupportSQLiteStatement statement = db.compileStatement("INSERT INTO games VALUES" +
+                " (?, '', ?, '', '', ?, ?, '', ?, '', '', ?, '', 'tournament', '', '', '', 0, 0, 0, 0, 0, 0, 0)");
+
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < NUM_GAMES; i++) {
+                statement.clearBindings();
+                statement.bindString(1, "game-" + i);
+                statement.bindString(2, i % 3 == 0 ? "tournament" : "user");
+                statement.bindString(3, "team-" + random.nextInt(NUM_TEAMS));
+                statement.bindString(4, "team-" + random.nextInt(NUM_TEAMS));
+                statement.bindLong(5, i / TIES_PER_TIMESTAMP);
+                statement.bindString(6, "team-" + random.nextInt(NUM_TEAMS));
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        }
+        finally {
+            db.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void pageGamesByTeam() {
+        List<String> expected = new ArrayList<>();
+        try (Cursor cursor = db.query(EXPECTED_GAMES_BY_TEAM, new Object[]{TEAM, TEAM, TEAM})) {
+            while (cursor.moveToNext() && expected.size() < NUM_PAGES * PAGE_SIZE)
+                expected.add(cursor.getString(0));
+        }
+
+        List<String> paged = new ArrayList<>();
+        long start = System.nanoTime();
+        long cursorDate = Long.MAX_VALUE;
+        String cursorId = "";
+
+        for (int page = 0; page < NUM_PAGES; page++) {
+            try (Cursor cursor = db.query(GAMES_BY_TEAM, teamArgs(TEAM, cursorDate, cursorId, PAGE_SIZE))) {
+                int idIndex = cursor.getColumnIndexOrThrow("game_id");
+                int createdIndex = cursor.getColumnIndexOrThrow("game_created");
+                while (cursor.moveToNext()) {
+                    cursorId = cursor.getString(idIndex);
+                    cursorDate = cursor.getLong(createdIndex);
+                    paged.add(cursorId);
+                }
+            }
+        }
+
+        long unionMicros = (System.nanoTime() - start) / 1000;
+        Set<String> unique = new HashSet<>(paged);
+
+        assertEquals("Duplicate games across pages", paged.size(), unique.size());
+        assertEquals(expected, paged);
+
+        for (String index : TEAM_INDICES) db.execSQL("DROP INDEX IF EXISTS " + index);
+
+        start = System.nanoTime();
+        cursorDate = Long.MAX_VALUE;
+
+        for (int page = 0; page < NUM_PAGES; page++) {
+            try (Cursor cursor = db.query(LEGACY_GAMES_BY_TEAM, new Object[]{TEAM, TEAM, TEAM, cursorDate, PAGE_SIZE})) {
+                int createdIndex = cursor.getColumnIndexOrThrow("game_created");
+                while (cursor.moveToNext()) cursorDate = cursor.getLong(createdIndex);
+            }
+        }
+
+        long legacyMicros = (System.nanoTime() - start) / 1000;
+
+        Log.i(TAG, "Paging " + NUM_PAGES + " pages of " + TEAM + " over " + NUM_GAMES + " games:"
+                + " union " + unionMicros + "us, legacy " + legacyMicros + "us");
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import android.os.Debug;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.mainstreetcode.teammate.model.Chat;
+import com.mainstreetcode.teammate.model.Media;
+import com.mainstreetcode.teammate.notifications.FeedItem;
+import com.mainstreetcode.teammate.rest.TeammateService;
+import com.mainstreetcode.teammate.util.IdentityMap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares parsing feed, chat and media payloads straight from the stream with the streaming
+ * adapters, against first building the JSON tree the tree model adapters used to require.
+ * <p>
+ * Payloads are generated in the shape of the API's responses. Throughput and bytes allocated
+ * per parse are logged under the class name, only the parsed results are asserted.
+ * <p>
+ * Also measures the heap retained by a parsed chat page, whose users and teams are shared
+ * through the {@link IdentityMap}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SuppressWarnings("deprecation")
+public class GsonBenchmark {
+
+    private static final String TAG = "GsonBenchmark";
+
+    private static final int NUM_ITEMS = 500;
+    private static final int WARM_UP = 5;
+    private static final int ITERATIONS = 20;
+    private static final int NUM_USERS = 25;
+    private static final int NUM_TEAMS = 5;
+
+    private static final Type CHATS = new TypeToken<List<Chat>>() {}.getType();
+    private static final Type MEDIA = new TypeToken<List<Media>>() {}.getType();
+    private static final Type FEED = new TypeToken<List<FeedItem>>() {}.getType();
+
+    private final Gson gson = TeammateService.getGson();
+
+    @Test
+    public void chats() {
+        compare("chats", CHATS, array(this::chat));
+    }
+
+    @Test
+    public void media() {
+        compare("media", MEDIA, array(this::media));
+    }
+
+    @Test
+    public void feed() {
+        compare("feed", FEED, array(this::feedItem));
+    }
+
+    @Test
+    public void chatsShareUsersAndTeams() {
+        IdentityMap.INSTANCE.clear();
+        String payload = array(this::chat);
+
+        long before = usedHeap();
+        List<Chat> chats = gson.fromJson(payload, CHATS);
+        long retained = usedHeap() - before;
+
+        Set<Object> users = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Object> teams = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Chat chat : chats) {
+            users.add(chat.getUser());
+            teams.add(chat.getTeam());
+        }
+
+        assertEquals(NUM_ITEMS, chats.size());
+        assertEquals(NUM_USERS, users.size());
+        assertEquals(NUM_TEAMS, teams.size());
+
+        Log.i(TAG, "chat page of " + NUM_ITEMS + " retains " + users.size() + " users, "
+                + teams.size() + " teams and " + (retained / 1024) + "KiB");
+    }
+
+    private void compare(String name, Type type, String payload) {
+        List<?> streamed = gson.fromJson(payload, type);
+        List<?> fromTree = gson.fromJson(new JsonParser().parse(payload), type);
+
+        assertEquals(NUM_ITEMS, streamed.size());
+        assertEquals(streamed, fromTree);
+
+        Run streaming = measure(() -> gson.fromJson(payload, type));
+        Run tree = measure(() -> {
+            JsonElement element = new JsonParser().parse(payload);
+            return gson.fromJson(element, type);
+        });
+
+        Log.i(TAG, name + " (" + payload.length() + " chars)"
+                + ": streaming " + streaming + ", tree " + tree);
+    }
+
+    private static Run measure(Parse parse) {
+        for (int i = 0; i < WARM_UP; i++) parse.parse();
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocSize();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) parse.parse();
+
+        long elapsed = System.nanoTime() - start;
+        long allocated = Debug.getThreadAllocSize();
+        Debug.stopAllocCounting();
+
+        return new Run(elapsed / ITERATIONS, allocated / ITERATIONS);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String array(Item item) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < NUM_ITEMS; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(item.json(i));
+        }
+        return builder.append(']').toString();
+    }
+
+    private String user(int i) {
+        int id = i % NUM_USERS;
+        return "{\"_id\":\"user-" + id + "\",\"firstName\":\"First " + id + "\",\"lastName\":\"Last\"" +
+                ",\"screenName\":\"user" + id + "\",\"primaryEmail\":\"user" + id + "@teammate.app\"" +
+                ",\"imageUrl\":\"https://teammate.app/users/" + id + ".jpg\",\"about\":\"Plays on weekends\"}";
+    }
+
+    private String team(int i) {
+        int id = i % NUM_TEAMS;
+        return "{\"_id\":\"team-" + id + "\",\"name\":\"Team " + id + "\",\"screenName\":\"team" + id + "\"" +
+                ",\"city\":\"Brooklyn\",\"state\":\"NY\",\"zip\":\"11201\",\"description\":\"Sunday league\"" +
+                ",\"imageUrl\":\"https://teammate.app/teams/" + id + ".jpg\",\"created\":\"2019-06-01T12:00:00.000Z\"" +
+                ",\"location\":[-73.99,40.69],\"storageUsed\":1024,\"maxStorage\":1048576,\"minAge\":18,\"maxAge\":99}";
+    }
+
+    private String chat(int i) {
+        return "{\"_id\":\"chat-" + i + "\",\"kind\":\"text\",\"content\":\"Message number " + i + ", see you at practice\"" +
+                ",\"user\":" + user(i) + ",\"team\":" + team(i) + ",\"created\":\"2019-10-01T12:00:00.000Z\"}";
+    }
+
+    private String media(int i) {
+        return "{\"_id\":\"media-" + i + "\",\"url\":\"https://teammate.app/media/" + i + ".jpg\",\"mimetype\":\"image/jpeg\"" +
+                ",\"thumbnail\":\"https://teammate.app/media/" + i + "_thumb.jpg\",\"user\":" + user(i) +
+                ",\"team\":" + team(i) + ",\"created\":\"2019-10-01T12:00:00.000Z\",\"flagged\":false}";
+    }
+
+    // Every third item lists its model before its type, which makes the adapter buffer it
+    private String feedItem(int i) {
+        boolean isChat = i % 2 == 0;
+        String type = "\"type\":\"" + (isChat ? "team-chat" : "team-media") + "\"";
+        String model = "\"model\":" + (isChat ? chat(i) : media(i));
+        String header = "\"action\":\"CREATE\",\"title\":\"Team " + i % 5 + "\",\"body\":\"New activity\"";
+
+        return i % 3 == 0
+                ? "{" + model + "," + header + "," + type + "}"
+                : "{" + header + "," + type + "," + model + "}";
+    }
+
+    private interface Item {
+        String json(int i);
+    }
+
+    private interface Parse {
+        Object parse();
+    }
+
+    private static class Run {
+        final long nanos;
+        final long bytes;
+
+        Run(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return (nanos / 1000) + "us and " + (bytes / 1024) + "KiB per parse";
+        }
+    }
+}
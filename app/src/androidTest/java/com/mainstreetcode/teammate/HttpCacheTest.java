@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import android.util.Log;
+
+import com.mainstreetcode.teammate.rest.HttpCachePolicy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs {@link HttpCachePolicy} against a local server that sends an ETag for all but
+ * {@link #NO_VALIDATOR_PATH} and answers matching conditional requests with a 304, logging the
+ * bytes saved and the hit ratio.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HttpCacheTest {
+
+    private static final String TAG = "HttpCacheTest";
+    private static final String ETAG = "\"v1\"";
+    private static final String NO_VALIDATOR_PATH = "/api/users/unversioned";
+    private static final String SERVER_CACHED_PATH = "/api/users/cached";
+    private static final int REQUESTS = 5;
+    private static final int BODY_SIZE = 8 * 1024;
+
+    private Cache cache;
+    private OkHttpClient client;
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        File directory = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), TAG);
+
+        cache = new Cache(directory, 1024 * 1024);
+        cache.evictAll();
+
+        server = new MockWebServer();
+        server.setDispatcher(new ETagDispatcher());
+        server.start();
+
+        client = HttpCachePolicy.INSTANCE.install(new OkHttpClient.Builder(), cache).build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        cache.delete();
+    }
+
+    @Test
+    public void feedIsRevalidated() throws IOException {
+        HttpCachePolicy.Stats before = HttpCachePolicy.INSTANCE.getStats();
+
+        assertEquals(HttpCachePolicy.Outcome.MISS.name(), fetch("/api/me/feed"));
+        for (int i = 1; i < REQUESTS; i++)
+            assertEquals(HttpCachePolicy.Outcome.REVALIDATED.name(), fetch("/api/me/feed"));
+
+        assertEquals(REQUESTS, server.getRequestCount());
+        report(before, (REQUESTS - 1) * BODY_SIZE);
+    }
+
+    @Test
+    public void configIsServedFromCache() throws IOException {
+        HttpCachePolicy.Stats before = HttpCachePolicy.INSTANCE.getStats();
+
+        assertEquals(HttpCachePolicy.Outcome.MISS.name(), fetch("/api/config"));
+        for (int i = 1; i < REQUESTS; i++)
+            assertEquals(HttpCachePolicy.Outcome.HIT.name(), fetch("/api/config"));
+
+        assertEquals(1, server.getRequestCount());
+        report(before, (REQUESTS - 1) * BODY_SIZE);
+    }
+
+    @Test
+    public void requestsWithSideEffectsAreNotStored() throws IOException {
+        for (int i = 0; i < REQUESTS; i++)
+            assertEquals(HttpCachePolicy.Outcome.BYPASS.name(), fetch("/api/signOut"));
+
+        assertEquals(REQUESTS, server.getRequestCount());
+    }
+
+    @Test
+    public void serverCacheControlIsKeptForUnmatchedPaths() throws IOException {
+        assertEquals(HttpCachePolicy.Outcome.MISS.name(), fetch(SERVER_CACHED_PATH));
+        for (int i = 1; i < REQUESTS; i++)
+            assertEquals(HttpCachePolicy.Outcome.HIT.name(), fetch(SERVER_CACHED_PATH));
+
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void responsesWithoutValidatorAreNotStored() throws IOException {
+        for (int i = 0; i < REQUESTS; i++)
+            assertEquals(HttpCachePolicy.Outcome.MISS.name(), fetch(NO_VALIDATOR_PATH));
+
+        assertEquals(REQUESTS, server.getRequestCount());
+        assertEquals(0, cache.writeSuccessCount());
+    }
+
+    private String fetch(String path) throws IOException {
+        Request request = new Request.Builder().url(server.url(path)).build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(BODY_SIZE, response.body().bytes().length);
+            return response.header(HttpCachePolicy.OUTCOME_HEADER);
+        }
+    }
+
+    private void report(HttpCachePolicy.Stats before, long expectedSavings) {
+        HttpCachePolicy.Stats after = HttpCachePolicy.INSTANCE.getStats();
+
+        long saved = after.getBytesSaved() - before.getBytesSaved();
+        long served = after.getHits() + after.getRevalidations() - before.getHits() - before.getRevalidations();
+        long total = served + after.getMisses() - before.getMisses();
+
+        Log.i(TAG, "Saved " + saved + " bytes, hit ratio " + served + "/" + total);
+
+        assertEquals(expectedSavings, saved);
+        assertEquals(total - 1, served);
+    }
+
+    private static class ETagDispatcher extends Dispatcher {
+
+        private final String body = new String(new char[BODY_SIZE]).replace('\0', 'a');
+
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull RecordedRequest request) {
+            String path = request.getRequestUrl().encodedPath();
+
+            if (NO_VALIDATOR_PATH.equals(path)) return new MockResponse().setBody(body);
+            if (SERVER_CACHED_PATH.equals(path))
+                return new MockResponse().setHeader("Cache-Control", "max-age=60").setBody(body);
+
+            if (ETAG.equals(request.getHeader("If-None-Match")))
+                return new MockResponse().setResponseCode(304).setHeader("ETag", ETAG);
+
+            return new MockResponse().setHeader("ETag", ETAG).setBody(body);
+        }
+    }
+}
@@ -29,6 +29,10 @@ import com.mainstreetcode.teammate.persistence.migrations.Migration1To2;
 import com.mainstreetcode.teammate.persistence.migrations.Migration2To3;
 import com.mainstreetcode.teammate.persistence.migrations.Migration3To4;
 import com.mainstreetcode.teammate.persistence.migrations.Migration4To5;
+import com.mainstreetcode.teammate.persistence.migrations.Migration5To6;
+import com.mainstreetcode.teammate.persistence.migrations.Migration6To7;
+import com.mainstreetcode.teammate.persistence.migrations.Migration7To8;
+import com.mainstreetcode.teammate.persistence.migrations.Migration8To9;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -96,6 +100,34 @@ public class MigrationTest {
         helper.runMigrationsAndValidate(TEST_DB, 5, true, new Migration4To5());
     }
 
+    @Test
+    public void migrate5To6() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5);
+        db.close();
+        helper.runMigrationsAndValidate(TEST_DB, 6, true, new Migration5To6());
+    }
+
+    @Test
+    public void migrate6To7() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 6);
+        db.close();
+        helper.runMigrationsAndValidate(TEST_DB, 7, true, new Migration6To7());
+    }
+
+    @Test
+    public void migrate7To8() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 7);
+        db.close();
+        helper.runMigrationsAndValidate(TEST_DB, 8, true, new Migration7To8());
+    }
+
+    @Test
+    public void migrate8To9() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 8);
+        db.close();
+        helper.runMigrationsAndValidate(TEST_DB, 9, true, new Migration8To9());
+    }
+
 
 //    @Test
 //    public void migrationFrom2To3_containsCorrectData() throws
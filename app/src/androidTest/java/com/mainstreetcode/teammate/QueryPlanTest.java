@@ -0,0 +1,340 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.mainstreetcode.teammate;
+
+import android.database.Cursor;
+
+import com.mainstreetcode.teammate.model.PageCursor;
+import com.mainstreetcode.teammate.model.Team;
+import com.mainstreetcode.teammate.persistence.AppDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on the SELECT queries of the DAOs in the persistence package, failing on
+ * full table scans or sorts that need a temporary B-tree.
+ * <p>
+ * The DAOs are called against a database whose queries are explained as Room runs them, so the
+ * plans are those of the SQL Room generates. The IN (...) lookups of the relation resolver are
+ * internal to the app module and are mirrored by hand in {@link #relationLookups()}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    private static final long DATE = System.currentTimeMillis();
+    private static final String ID = "id";
+    private static final int LIMIT = 12;
+    private static final PageCursor CURSOR = new PageCursor(new Date(DATE), ID);
+
+    private final List<Plan> plans = Collections.synchronizedList(new ArrayList<>());
+
+    private AppDatabase database;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class)
+                .openHelperFactory(configuration -> explaining(new FrameworkSQLiteOpenHelperFactory().create(configuration)))
+                .build();
+        AppDatabase.Companion.setOverride(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        AppDatabase.Companion.setOverride(null);
+    }
+
+    @Test
+    public void chatDao() {
+        assertIndexed(() -> database.teamChatDao().chatsBefore("team", CURSOR, LIMIT).blockingGet());
+        assertIndexed(() -> database.teamChatDao().newest("team").blockingGet());
+        assertIndexed(() -> database.teamChatDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void competitorDao() {
+        assertIndexed(() -> database.competitorDao().getCompetitors("tournament").blockingGet());
+        assertIndexed(() -> database.competitorDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void eventDao() {
+        assertIndexed(() -> database.eventDao().getEvents("team", CURSOR, LIMIT).blockingGet());
+        assertIndexed(() -> database.eventDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void gameDao() {
+        assertIndexed(() -> database.gameDao().getGames("tournament", 1, LIMIT).blockingGet());
+        assertIndexed(() -> database.gameDao().get(ID).blockingGet());
+
+        // Each branch of the union sorts at most LIMIT rows, so only table scans are checked
+        assertNoTableScan(() -> database.gameDao().getGames("team", CURSOR, LIMIT).blockingGet());
+    }
+
+    @Test
+    public void guestDao() {
+        assertIndexed(() -> database.guestDao().getGuests("event", CURSOR, LIMIT).blockingGet());
+        assertIndexed(() -> database.guestDao().getRsvpList("user", new Date(DATE)).blockingGet());
+        assertIndexed(() -> database.guestDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void joinRequestDao() {
+        assertIndexed(() -> database.joinRequestDao().getRequests("team", CURSOR, LIMIT).blockingGet());
+        assertIndexed(() -> database.joinRequestDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void lastSeenDao() {
+        // Grouping by team and ordering by each group's newest chat always sorts, only table scans are checked
+        assertNoTableScan(() -> database.lastSeenDao().unreadChats("user", new Date(DATE)).blockingFirst());
+    }
+
+    @Test
+    public void mediaDao() {
+        assertIndexed(() -> database.mediaDao().getTeamMedia(Team.Companion.empty(), CURSOR, LIMIT).blockingGet());
+        assertIndexed(() -> database.mediaDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void roleDao() {
+        assertIndexed(() -> database.roleDao().getRoleInTeam("user", "team").blockingGet());
+        assertIndexed(() -> database.roleDao().userRoles("user").blockingGet());
+        assertIndexed(() -> database.roleDao().getRoles("team", CURSOR, LIMIT).blockingGet());
+        assertIndexed(() -> database.roleDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void statDao() {
+        assertIndexed(() -> database.statDao().getStats("game", CURSOR, LIMIT).blockingGet());
+        assertIndexed(() -> database.statDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void teamDao() {
+        assertIndexed(() -> database.teamDao().get(ID).blockingGet());
+
+        // The teams of the signed in user are all kept, so they are listed whole
+        assertScansOnly("teams", () -> database.teamDao().getTeams().blockingGet());
+    }
+
+    @Test
+    public void tournamentDao() {
+        assertIndexed(() -> database.tournamentDao().get(ID).blockingGet());
+
+        // Games are found through their team indices, the tournaments they join to are then sorted
+        assertScansOnly("tournament", () -> database.tournamentDao().getTournaments("team", CURSOR, LIMIT).blockingGet());
+    }
+
+    @Test
+    public void pendingQueues() {
+        // Outgoing chats and uploads are few and are read whole to be resumed in order
+        assertScansOnly("chat_outbox", () -> database.outboxDao().pending());
+        assertScansOnly("media_uploads", () -> database.uploadDao().pending().blockingGet());
+    }
+
+    @Test
+    public void userDao() {
+        assertIndexed(() -> database.userDao().get(ID).blockingGet());
+    }
+
+    @Test
+    public void relationLookups() {
+        assertIndexed("SELECT * FROM users WHERE user_id IN (?, ?)", "a", "b");
+        assertIndexed("SELECT * FROM teams WHERE team_id IN (?, ?)", "a", "b");
+        assertIndexed("SELECT * FROM events WHERE event_id IN (?, ?)", "a", "b");
+        assertIndexed("SELECT * FROM games WHERE game_id IN (?, ?)", "a", "b");
+        assertIndexed("SELECT * FROM tournaments WHERE tournament_id IN (?, ?)", "a", "b");
+        assertIndexed("SELECT * FROM competitors WHERE competitor_id IN (?, ?)", "a", "b");
+    }
+
+    private void assertIndexed(Runnable daoCall) {
+        for (Plan plan : plansOf(daoCall)) plan.assertIndexed();
+    }
+
+    private void assertNoTableScan(Runnable daoCall) {
+        for (Plan plan : plansOf(daoCall)) plan.assertNoTableScan();
+    }
+
+    private void assertScansOnly(String table, Runnable daoCall) {
+        for (Plan plan : plansOf(daoCall)) plan.assertScansOnly(table);
+    }
+
+    private void assertIndexed(String sql, Object... args) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getReadableDatabase();
+        List<String> details = new ArrayList<>();
+
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            readDetails(cursor, details);
+        }
+
+        new Plan(sql, details).assertIndexed();
+    }
+
+    private List<Plan> plansOf(Runnable daoCall) {
+        plans.clear();
+        daoCall.run();
+
+        List<Plan> ran = new ArrayList<>(plans);
+        assertFalse("The DAO ran no queries", ran.isEmpty());
+        return ran;
+    }
+
+    private SupportSQLiteOpenHelper explaining(SupportSQLiteOpenHelper helper) {
+        return proxy(SupportSQLiteOpenHelper.class, (method, args) -> {
+            Object result = invoke(helper, method, args);
+            return result instanceof SupportSQLiteDatabase ? explaining((SupportSQLiteDatabase) result) : result;
+        });
+    }
+
+    // Explains each SELECT as Room runs it, with the arguments Room bound to it
+    private SupportSQLiteDatabase explaining(SupportSQLiteDatabase db) {
+        return proxy(SupportSQLiteDatabase.class, (method, args) -> {
+            if (method.getName().equals("query") && args[0] instanceof SupportSQLiteQuery)
+                explain(db, (SupportSQLiteQuery) args[0]);
+            return invoke(db, method, args);
+        });
+    }
+
+    private void explain(SupportSQLiteDatabase db, SupportSQLiteQuery query) {
+        String sql = query.getSql();
+
+        // Room's own bookkeeping is not under test
+        if (!sql.startsWith("SELECT") || sql.contains("room_") || sql.contains("sqlite_")) return;
+
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.query(new ExplainQuery(query))) {
+            readDetails(cursor, details);
+        }
+        plans.add(new Plan(sql, details));
+    }
+
+    private static void readDetails(Cursor cursor, List<String> details) {
+        int detailIndex = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) details.add(cursor.getString(detailIndex));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Delegate delegate) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> delegate.call(method, args));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    private interface Delegate {
+        Object call(Method method, Object[] args) throws Throwable;
+    }
+
+    private static class ExplainQuery implements SupportSQLiteQuery {
+
+        private final SupportSQLiteQuery query;
+
+        ExplainQuery(SupportSQLiteQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        public String getSql() {
+            return "EXPLAIN QUERY PLAN " + query.getSql();
+        }
+
+        @Override
+        public void bindTo(SupportSQLiteProgram statement) {
+            query.bindTo(statement);
+        }
+
+        @Override
+        public int getArgCount() {
+            return query.getArgCount();
+        }
+    }
+
+    private static class Plan {
+
+        private final String sql;
+        private final List<String> details;
+
+        Plan(String sql, List<String> details) {
+            this.sql = sql;
+            this.details = details;
+        }
+
+        void assertIndexed() {
+            assertNoTableScan();
+            for (String detail : details) assertFalse(message(detail), detail.contains("USE TEMP B-TREE FOR ORDER BY"));
+        }
+
+        void assertNoTableScan() {
+            for (String detail : details) assertFalse(message(detail), isTableScan(detail));
+        }
+
+        // Older SQLite versions name the table and its alias, newer ones only the alias
+        void assertScansOnly(String table) {
+            Pattern named = Pattern.compile("\\b" + table + "\\b");
+            for (String detail : details)
+                assertFalse(message(detail), isTableScan(detail) && !named.matcher(detail).find());
+        }
+
+        @NonNull
+        private String message(String detail) {
+            return sql + "\n" + detail;
+        }
+    }
+
+    // Older SQLite versions report "SCAN TABLE x" and "SCAN SUBQUERY n", newer ones "SCAN x" and "SCAN (subquery-n)"
+    private static boolean isTableScan(String detail) {
+        return detail.startsWith("SCAN ") && !detail.contains("SUBQUERY") && !detail.contains("subquery");
+    }
+}
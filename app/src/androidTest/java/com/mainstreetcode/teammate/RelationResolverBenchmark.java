@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import android.util.Log;
+
+import com.mainstreetcode.teammate.model.Chat;
+import com.mainstreetcode.teammate.model.PageCursor;
+import com.mainstreetcode.teammate.model.Team;
+import com.mainstreetcode.teammate.model.User;
+import com.mainstreetcode.teammate.model.enums.Sport;
+import com.mainstreetcode.teammate.persistence.AppDatabase;
+import com.mainstreetcode.teammate.persistence.entity.ChatEntity;
+import com.mainstreetcode.teammate.persistence.entity.TeamEntity;
+import com.mainstreetcode.teammate.persistence.entity.UserEntity;
+import com.mainstreetcode.teammate.util.IdentityMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads a page of chats from an in memory database and counts the statements it takes to resolve
+ * their users and teams, against the two lookups per row the type converters used to make.
+ * <p>
+ * Statements are counted by wrapping the database Room opens. Timings are logged under the class
+ * name, only the statement count and the resolved rows are asserted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RelationResolverBenchmark {
+
+    private static final String TAG = "RelationResolverBenchmark";
+
+    private static final String TEAM_ID = "team";
+    private static final int NUM_USERS = 20;
+    private static final int NUM_CHATS = 200;
+    private static final int PAGE_SIZE = 50;
+    private static final long START = 1_500_000_000_000L;
+
+    private CountingFactory factory;
+    private AppDatabase database;
+
+    @Before
+    public void setUp() {
+        factory = new CountingFactory();
+        database = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class)
+                .openHelperFactory(factory)
+                .build();
+
+        AppDatabase.Companion.setOverride(database);
+        IdentityMap.INSTANCE.clear();
+
+        Team team = new Team(TEAM_ID, "", "team", "Brooklyn", "NY", "11201", "Team", "",
+                new Date(START), null, Sport.Companion.empty(), 0, 0, 0, 0);
+
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < NUM_USERS; i++)
+            users.add(new User("user-" + i, "", "user" + i, "user" + i + "@teammate.app", "First " + i, "Last", ""));
+
+        List<ChatEntity> chats = new ArrayList<>();
+        for (int i = 0; i < NUM_CHATS; i++)
+            chats.add(new Chat("chat-" + i, "text", "Message " + i, (User) users.get(i % NUM_USERS), team, new Date(START + i)));
+
+        database.teamDao().insert(Collections.<TeamEntity>singletonList(team));
+        database.userDao().insert(users);
+        database.teamChatDao().insert(chats);
+    }
+
+    @After
+    public void tearDown() {
+        AppDatabase.Companion.setOverride(null);
+        IdentityMap.INSTANCE.clear();
+        database.close();
+    }
+
+    @Test
+    public void resolvesPageWithOneStatementPerRelation() {
+        factory.queries.clear();
+
+        long start = System.nanoTime();
+        List<Chat> page = database.teamChatDao()
+                .chatsBefore(TEAM_ID, new PageCursor(new Date(Long.MAX_VALUE), ""), PAGE_SIZE)
+                .blockingGet();
+        long elapsed = System.nanoTime() - start;
+
+        List<String> statements = factory.appQueries();
+
+        assertEquals(PAGE_SIZE, page.size());
+        for (Chat chat : page) {
+            assertTrue(chat.getUser().hasMajorFields());
+            assertEquals(TEAM_ID, chat.getTeam().getId());
+            assertTrue(chat.getTeam().hasMajorFields());
+        }
+
+        // The page itself, then one IN (...) lookup each for its users and its team
+        assertEquals(statements.toString(), 3, statements.size());
+
+        Log.i(TAG, "page of " + PAGE_SIZE + " chats: " + statements.size() + " statements in "
+                + (elapsed / 1000) + "us, per row lookups would take " + (1 + 2 * PAGE_SIZE));
+    }
+
+    /**
+     * Records the SQL of every query made on the databases its helpers open.
+     */
+    private static class CountingFactory implements SupportSQLiteOpenHelper.Factory {
+
+        private final SupportSQLiteOpenHelper.Factory delegate = new FrameworkSQLiteOpenHelperFactory();
+        private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public SupportSQLiteOpenHelper create(SupportSQLiteOpenHelper.Configuration configuration) {
+            SupportSQLiteOpenHelper helper = delegate.create(configuration);
+
+            return proxy(SupportSQLiteOpenHelper.class, helper, (proxy, method, args) -> {
+                Object result = invoke(helper, method, args);
+                return result instanceof SupportSQLiteDatabase ? counting((SupportSQLiteDatabase) result) : result;
+            });
+        }
+
+        // Room's own bookkeeping, like the invalidation tracker, is not counted
+        List<String> appQueries() {
+            List<String> result = new ArrayList<>();
+            synchronized (queries) {
+                for (String sql : queries) if (!sql.contains("room_")) result.add(sql);
+            }
+            return result;
+        }
+
+        private SupportSQLiteDatabase counting(SupportSQLiteDatabase database) {
+            return proxy(SupportSQLiteDatabase.class, database, (proxy, method, args) -> {
+                if (method.getName().equals("query") && args != null && args.length > 0) queries.add(
+                        args[0] instanceof SupportSQLiteQuery ? ((SupportSQLiteQuery) args[0]).getSql() : String.valueOf(args[0]));
+                return invoke(database, method, args);
+            });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import android.net.Uri;
+
+import com.mainstreetcode.teammate.model.Media;
+import com.mainstreetcode.teammate.rest.ResumableUpload;
+import com.mainstreetcode.teammate.rest.TeammateApi;
+import com.mainstreetcode.teammate.rest.TeammateService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+import kotlin.Unit;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs {@link ResumableUpload} against a local server that keeps the bytes of each upload and
+ * answers Content-Range requests the way the team media endpoint does.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ResumableUploadTest {
+
+    private static final String TEAM_ID = "team";
+    private static final String UPLOAD_ID = "upload";
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int FILE_SIZE = 5 * CHUNK_SIZE + 123;
+
+    private byte[] content;
+    private Uri uri;
+    private TeammateApi api;
+    private ChunkServer chunkServer;
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[FILE_SIZE];
+        new Random(7).nextBytes(content);
+
+        File file = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "ResumableUploadTest.bin");
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(content);
+        }
+        uri = Uri.fromFile(file);
+
+        chunkServer = new ChunkServer();
+        server = new MockWebServer();
+        server.setDispatcher(chunkServer);
+        server.start();
+
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create(TeammateService.getGson()))
+                .build()
+                .create(TeammateApi.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsInChunks() {
+        List<Long> sent = new ArrayList<>();
+        List<Long> committed = new ArrayList<>();
+        Media media = newUpload().upload(0, bytes -> {
+            sent.add(bytes);
+            return Unit.INSTANCE;
+        }, offset -> {
+            committed.add(offset);
+            return Unit.INSTANCE;
+        }).blockingGet();
+
+        assertEquals(UPLOAD_ID, media.getId());
+        assertArrayEquals(content, chunkServer.received.toByteArray());
+        assertEquals(6, server.getRequestCount());
+        assertEquals(Arrays.asList(0L, 65536L, 131072L, 196608L, 262144L, 327680L), committed);
+
+        // Bytes are reported as they are written, ending with the whole file
+        assertEquals(FILE_SIZE, (long) sent.get(sent.size() - 1));
+    }
+
+    @Test
+    public void lostResponseOnlyResendsWhatWasNotCommitted() {
+        chunkServer.dropResponseAt = 2 * CHUNK_SIZE;
+
+        newUpload().upload(0, bytes -> Unit.INSTANCE, offset -> Unit.INSTANCE).blockingGet();
+
+        // The dropped chunk was committed, so it costs one request asking where to continue from
+        assertArrayEquals(content, chunkServer.received.toByteArray());
+        assertEquals(6 + 1, server.getRequestCount());
+    }
+
+    @Test
+    public void resumesFromTheServerOffset() throws InterruptedException {
+        // The server committed a chunk the client never heard back about
+        chunkServer.received.write(content, 0, 3 * CHUNK_SIZE);
+
+        newUpload().upload(2 * CHUNK_SIZE, bytes -> Unit.INSTANCE, offset -> Unit.INSTANCE).blockingGet();
+
+        assertEquals("bytes */" + FILE_SIZE, server.takeRequest().getHeader(TeammateApi.CONTENT_RANGE));
+        assertArrayEquals(content, chunkServer.received.toByteArray());
+        assertEquals(1 + 3, server.getRequestCount());
+    }
+
+    @Test
+    public void rangeHeaderIsParsed() {
+        assertEquals(0, ResumableUpload.Companion.committedBytes(null));
+        assertEquals(1024, ResumableUpload.Companion.committedBytes("bytes=0-1023"));
+        assertEquals(0, ResumableUpload.Companion.committedBytes("garbage"));
+    }
+
+    private ResumableUpload newUpload() {
+        return new ResumableUpload(api, TEAM_ID, UPLOAD_ID, uri, MediaType.parse("image/jpeg"), FILE_SIZE, CHUNK_SIZE, 0);
+    }
+
+    private static class ChunkServer extends Dispatcher {
+
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private long dropResponseAt = -1;
+
+        @NonNull
+        @Override
+        public synchronized MockResponse dispatch(RecordedRequest request) {
+            String contentRange = request.getHeader(TeammateApi.CONTENT_RANGE);
+            String[] rangeAndTotal = contentRange.substring("bytes ".length()).split("/");
+            long total = Long.parseLong(rangeAndTotal[1]);
+
+            if (!rangeAndTotal[0].equals("*")) {
+                long start = Long.parseLong(rangeAndTotal[0].split("-")[0]);
+                byte[] chunk = request.getBody().readByteArray();
+
+                if (start == received.size()) received.write(chunk, 0, chunk.length);
+                if (start == dropResponseAt) {
+                    dropResponseAt = -1;
+                    return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+                }
+            }
+
+            if (received.size() == total) return new MockResponse()
+                    .setResponseCode(201)
+                    .setBody("{\"_id\":\"" + UPLOAD_ID + "\",\"url\":\"https://teammate.app/" + UPLOAD_ID + "\"}");
+
+            MockResponse incomplete = new MockResponse().setResponseCode(308);
+            return received.size() == 0 ? incomplete : incomplete.setHeader("Range", "bytes=0-" + (received.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.mainstreetcode.teammate.rest.ProgressRequestBody;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.BufferedSink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Uploads the same file to a local server with {@link ProgressRequestBody}, and with a body that
+ * copies through a 2 KiB array and reports no length like it used to, logging the throughput
+ * of each under the class name.
+ */
+@RunWith(AndroidJUnit4.class)
+public class UploadBodyBenchmark {
+
+    private static final String TAG = "UploadBodyBenchmark";
+    private static final MediaType JPEG = MediaType.parse("image/jpeg");
+
+    private static final int FILE_SIZE = 8 * 1024 * 1024;
+    private static final int WARM_UP = 2;
+    private static final int ITERATIONS = 10;
+
+    private Uri uri;
+    private ContentResolver resolver;
+    private OkHttpClient client;
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        byte[] content = new byte[FILE_SIZE];
+        new Random(11).nextBytes(content);
+
+        Context context = InstrumentationRegistry.getTargetContext();
+        resolver = context.getContentResolver();
+
+        File file = new File(context.getCacheDir(), TAG + ".jpg");
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(content);
+        }
+        uri = Uri.fromFile(file);
+
+        server = new MockWebServer();
+        server.setBodyLimit(0);
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse();
+            }
+        });
+        server.start();
+
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void sendsContentLength() throws Exception {
+        upload(new ProgressRequestBody(uri, 0, JPEG));
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals(String.valueOf(FILE_SIZE), request.getHeader("Content-Length"));
+        assertNull(request.getHeader("Transfer-Encoding"));
+        assertEquals(FILE_SIZE, request.getBodySize());
+    }
+
+    @Test
+    public void throughput() throws IOException {
+        double streamed = megabytesPerSecond(() -> new ProgressRequestBody(uri, 0, JPEG));
+        double copied = megabytesPerSecond(() -> new ArrayCopyBody(resolver, uri));
+
+        Log.i(TAG, String.format("Okio segments: %.1f MB/s, 2 KiB array: %.1f MB/s", streamed, copied));
+    }
+
+    private double megabytesPerSecond(BodyFactory factory) throws IOException {
+        for (int i = 0; i < WARM_UP; i++) upload(factory.create());
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) upload(factory.create());
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+
+        return (double) FILE_SIZE * ITERATIONS / (1024 * 1024) / (elapsed / 1e9);
+    }
+
+    private void upload(RequestBody body) throws IOException {
+        Request request = new Request.Builder().url(server.url("/api/teams/team/media")).post(body).build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+        }
+    }
+
+    private interface BodyFactory {
+        RequestBody create();
+    }
+
+    /**
+     * The upload body as it was before it streamed through Okio.
+     */
+    private static class ArrayCopyBody extends RequestBody {
+
+        private final ContentResolver resolver;
+        private final Uri uri;
+
+        ArrayCopyBody(ContentResolver resolver, Uri uri) {
+            this.resolver = resolver;
+            this.uri = uri;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return JPEG;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try (InputStream in = resolver.openInputStream(uri)) {
+                byte[] buffer = new byte[2048];
+                int read;
+                while ((read = in.read(buffer)) != -1) sink.write(buffer, 0, read);
+            }
+        }
+    }
+}
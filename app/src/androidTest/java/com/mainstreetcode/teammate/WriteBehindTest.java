@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate;
+
+import android.database.Cursor;
+
+import com.mainstreetcode.teammate.model.Chat;
+import com.mainstreetcode.teammate.model.Team;
+import com.mainstreetcode.teammate.model.User;
+import com.mainstreetcode.teammate.model.enums.Sport;
+import com.mainstreetcode.teammate.persistence.AppDatabase;
+import com.mainstreetcode.teammate.persistence.UnitOfWork;
+import com.mainstreetcode.teammate.persistence.WriteBehind;
+import com.mainstreetcode.teammate.persistence.entity.ChatEntity;
+import com.mainstreetcode.teammate.persistence.entity.TeamEntity;
+import com.mainstreetcode.teammate.persistence.entity.UserEntity;
+import com.mainstreetcode.teammate.util.IdentityMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import androidx.room.Room;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+import kotlin.Unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Queues units of work on {@link WriteBehind} against an in memory database, checking that units
+ * queued together commit as one batch, that failed batches stay queued, and that local deletes
+ * are ordered after the writes queued before them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WriteBehindTest {
+
+    private static final long START = 1_500_000_000_000L;
+
+    private AppDatabase database;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(), AppDatabase.class).build();
+
+        AppDatabase.Companion.setOverride(database);
+        WriteBehind.INSTANCE.discard();
+        IdentityMap.INSTANCE.clear();
+    }
+
+    @After
+    public void tearDown() {
+        WriteBehind.INSTANCE.discard();
+        AppDatabase.Companion.setOverride(null);
+        database.close();
+    }
+
+    @Test
+    public void coalescesUnitsQueuedTogether() {
+        long units = WriteBehind.INSTANCE.getUnitsCommitted().get();
+        long batches = WriteBehind.INSTANCE.getBatchesCommitted().get();
+
+        for (int i = 0; i < 3; i++) upsertBehind(user("user-" + i));
+        WriteBehind.INSTANCE.flush();
+
+        assertEquals(3, count("users"));
+        assertEquals(units + 3, WriteBehind.INSTANCE.getUnitsCommitted().get());
+        assertEquals(batches + 1, WriteBehind.INSTANCE.getBatchesCommitted().get());
+    }
+
+    @Test
+    public void awaitCommitsQueuedWrites() {
+        upsertBehind(user("user"));
+
+        assertTrue(WriteBehind.INSTANCE.await(5, TimeUnit.SECONDS));
+        assertEquals(1, count("users"));
+    }
+
+    @Test
+    public void failedBatchStaysQueued() {
+        User user = user("user");
+        Team team = team();
+
+        // The chat's user and team are missing, so its foreign keys fail
+        UnitOfWork.Companion.runBehind(() -> {
+            database.teamChatDao().upsert(Collections.<ChatEntity>singletonList(
+                    new Chat("chat", "text", "Hello", user, team, new Date(START))));
+            return null;
+        });
+
+        try {
+            WriteBehind.INSTANCE.flush();
+            fail("Expected the batch to fail");
+        } catch (Exception expected) {
+            assertEquals(0, count("team_chats"));
+        }
+
+        database.userDao().insert(Collections.<UserEntity>singletonList(user));
+        database.teamDao().insert(Collections.<TeamEntity>singletonList(team));
+        WriteBehind.INSTANCE.flush();
+
+        assertEquals(1, count("team_chats"));
+    }
+
+    @Test
+    public void localDeleteIsNotUndoneByQueuedWrite() {
+        User user = user("user");
+        upsertBehind(user);
+
+        WriteBehind.INSTANCE.afterPending(() -> {
+            database.userDao().delete(user);
+            return Unit.INSTANCE;
+        });
+        WriteBehind.INSTANCE.flush();
+
+        assertEquals(0, count("users"));
+    }
+
+    private void upsertBehind(User user) {
+        UnitOfWork.Companion.runBehind(() -> {
+            database.userDao().upsert(Collections.<UserEntity>singletonList(user));
+            return null;
+        });
+    }
+
+    private int count(String tableName) {
+        try (Cursor cursor = database.query("SELECT COUNT(*) FROM " + tableName, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    private static User user(String id) {
+        return new User(id, "", id, id + "@teammate.app", "First", "Last", "");
+    }
+
+    private static Team team() {
+        return new Team("team", "", "team", "Brooklyn", "NY", "11201", "Team", "",
+                new Date(START), null, Sport.Companion.empty(), 0, 0, 0, 0);
+    }
+}
@@ -35,17 +35,17 @@ import androidx.core.provider.FontRequest
 import androidx.emoji.text.EmojiCompat
 import androidx.emoji.text.FontRequestEmojiCompatConfig
 import com.google.android.libraries.places.api.Places
-import com.mainstreetcode.teammate.model.Config
-import com.mainstreetcode.teammate.model.User
-import com.mainstreetcode.teammate.repository.ConfigRepo
+import com.mainstreetcode.teammate.persistence.Retention
+import com.mainstreetcode.teammate.repository.ChatRepo
 import com.mainstreetcode.teammate.repository.RepoProvider
-import com.mainstreetcode.teammate.repository.RoleRepo
+import com.mainstreetcode.teammate.repository.StartupPrefetch
 import com.mainstreetcode.teammate.repository.UserRepo
 import com.mainstreetcode.teammate.util.ErrorHandler
 import com.mainstreetcode.teammate.util.Logger
 import com.mainstreetcode.teammate.viewmodel.events.Alert
 import io.reactivex.Flowable
 import io.reactivex.processors.PublishProcessor
+import io.reactivex.schedulers.Schedulers
 
 /**
  * Application Singleton
@@ -120,10 +120,17 @@ class App : Application() {
             val userRepository = RepoProvider.forRepo(UserRepo::class.java)
             if (!userRepository.isSignedIn) return
 
-            userRepository.me
-                    .lastOrError().onErrorReturnItem(User.empty())
-                    .flatMap { RepoProvider.forRepo(ConfigRepo::class.java)[""].lastOrError().onErrorReturnItem(Config.empty()) }
-                    .flatMap { RepoProvider.forRepo(RoleRepo::class.java).myRoles.lastOrError().onErrorReturnItem(listOf()) }
+            StartupPrefetch.prefetch()
+                    .subscribe({ }, ErrorHandler.EMPTY::invoke)
+
+            UploadScheduler.resume()
+                    .subscribe({ }, ErrorHandler.EMPTY::invoke)
+
+            RepoProvider.forRepo(ChatRepo::class.java).flushOutbox()
+                    .subscribe({ }, ErrorHandler.EMPTY::invoke)
+
+            Retention.pruneIfDue()
+                    .subscribeOn(Schedulers.io())
                     .subscribe({ }, ErrorHandler.EMPTY::invoke)
         }
     }
@@ -31,20 +31,15 @@ import android.content.Context
 import android.content.Intent
 import android.net.Uri
 import android.os.Environment
-import android.text.TextUtils
 import android.webkit.MimeTypeMap
 import com.mainstreetcode.teammate.model.Media
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
-import com.mainstreetcode.teammate.model.toMessage
 import com.mainstreetcode.teammate.notifications.MediaNotifier
 import com.mainstreetcode.teammate.notifications.NotifierProvider
-import com.mainstreetcode.teammate.repository.RepoProvider
-import com.mainstreetcode.teammate.util.ErrorHandler
 import com.mainstreetcode.teammate.util.prettyPrint
 import java.io.File
 import java.util.*
-import java.util.concurrent.ConcurrentLinkedQueue
 
 class MediaTransferIntentService : IntentService("MediaUploadIntentService") {
 
@@ -66,8 +61,7 @@ class MediaTransferIntentService : IntentService("MediaUploadIntentService") {
     private fun handleActionUpload(user: User?, team: Team?, mediaUris: List<Uri>?) {
         if (user == null || team == null || mediaUris == null) return
 
-        if (uploadStatsUnInitialized) uploadStats = UploadStats()
-        for (uri in mediaUris) uploadStats.enqueue(Media.fromUri(user, team, uri))
+        UploadScheduler.enqueue(user, team, mediaUris)
     }
 
     private fun handleActionDownload(mediaList: List<Media>?) {
@@ -77,75 +71,6 @@ class MediaTransferIntentService : IntentService("MediaUploadIntentService") {
         for (media in mediaList) downloadStats.enqueue(media)
     }
 
-    class UploadStats {
-
-        var numErrors = 0
-            private set
-
-        var numToUpload = 0
-            private set
-
-        var numAttempted = 0
-            private set
-
-        private var isOnGoing: Boolean = false
-
-        var maxStorageMessage = ""
-            private set
-
-        private val uploadQueue = ConcurrentLinkedQueue<Media>()
-        private val repository = RepoProvider.forModel(Media::class.java)
-
-        val isComplete: Boolean
-            get() = uploadQueue.isEmpty()
-
-        val isAtMaxStorage: Boolean
-            get() = !TextUtils.isEmpty(maxStorageMessage)
-
-        internal fun enqueue(media: Media) {
-            numToUpload++
-            uploadQueue.add(media)
-
-            if (uploadQueue.isEmpty()) numErrors = 0
-            if (!isOnGoing) invoke()
-        }
-
-        @SuppressLint("CheckResult")
-        private operator fun invoke() {
-            if (uploadQueue.isEmpty()) {
-                numToUpload = 0
-                numAttempted = 0
-                isOnGoing = false
-                return
-            }
-
-            numAttempted++
-            isOnGoing = true
-
-
-            repository.createOrUpdate(uploadQueue.remove())
-                    .doOnSuccess { maxStorageMessage = "" }
-                    .doOnError(this::onError)
-                    .doFinally(this::invoke)
-                    .subscribe({ }, ErrorHandler.EMPTY::invoke)
-        }
-
-        override fun toString(): String {
-            return "Queue size: " + uploadQueue.size +
-                    ", numErrors : " + numErrors +
-                    ", numToUpload : " + numToUpload +
-                    ", numAttempted : " + numAttempted
-        }
-
-        private fun onError(throwable: Throwable) {
-            numErrors++
-            val message = throwable.toMessage()
-            if (message == null || !message.isAtMaxStorage) return
-
-            maxStorageMessage = message.message
-        }
-    }
-
     class DownloadStats {
 
         private val downloadQueue = HashSet<Long>()
@@ -216,15 +141,9 @@ class MediaTransferIntentService : IntentService("MediaUploadIntentService") {
         private const val EXTRA_MEDIA = "com.mainstreetcode.teammates.extra.media"
         private const val APP_ROOT_DIR = "teammate"
 
-        lateinit var uploadStats: UploadStats
-            private set
-
         lateinit var downloadStats: DownloadStats
             private set
 
-        val uploadStatsUnInitialized: Boolean
-            get() = !::uploadStats.isInitialized
-
         val downloadStatsUnInitialized: Boolean
             get() = !::downloadStats.isInitialized
 
@@ -0,0 +1,380 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate
+
+import android.annotation.SuppressLint
+import android.content.Intent
+import android.content.res.AssetFileDescriptor
+import android.net.Uri
+import com.mainstreetcode.teammate.BuildConfig.DEV
+import com.mainstreetcode.teammate.model.Media
+import com.mainstreetcode.teammate.model.Team
+import com.mainstreetcode.teammate.model.User
+import com.mainstreetcode.teammate.model.toMessage
+import com.mainstreetcode.teammate.notifications.MediaNotifier
+import com.mainstreetcode.teammate.notifications.NotifierProvider
+import com.mainstreetcode.teammate.persistence.AppDatabase
+import com.mainstreetcode.teammate.persistence.entity.UploadEntity
+import com.mainstreetcode.teammate.repository.MediaRepo
+import com.mainstreetcode.teammate.repository.RepoProvider
+import com.mainstreetcode.teammate.rest.RetryPolicy
+import com.mainstreetcode.teammate.util.ErrorHandler
+import com.mainstreetcode.teammate.util.ImageDownscaler
+import com.mainstreetcode.teammate.util.Logger
+import com.mainstreetcode.teammate.util.ObjectId
+import com.mainstreetcode.teammate.viewmodel.events.Alert
+import io.reactivex.Completable
+import io.reactivex.Flowable
+import io.reactivex.Single
+import io.reactivex.functions.Predicate
+import io.reactivex.processors.BehaviorProcessor
+import io.reactivex.schedulers.Schedulers.io
+import java.io.File
+import java.util.*
+import java.util.concurrent.TimeUnit.MILLISECONDS
+import kotlin.math.max
+
+/**
+ * Uploads queued media [slots] files at a time. The queue is kept in the database, along with
+ * how much of each file the server has committed, so uploads survive process death and continue
+ * from where they stopped once [resume] is called.
+ *
+ * Uploads enqueued while others are running join the same batch, and [progress] reports on
+ * each item of the batch and on the batch as a whole. Uploads that fail for want of a connection
+ * are retried with backoff from what the server committed, and stay queued for the next [resume]
+ * if they keep failing.
+ */
+object UploadScheduler {
+
+    private const val TAG = "UploadScheduler"
+    private const val DEFAULT_SLOTS = 3
+    private const val UPLOAD_DIRECTORY = "uploads"
+    private const val MAX_RETRIES = 5
+    private const val RETRY_BASE_DELAY_MILLIS = 2_000L
+    private const val RETRY_MAX_DELAY_MILLIS = 60_000L
+
+    private val dao by lazy { AppDatabase.instance.uploadDao() }
+    private val repository by lazy { RepoProvider.forRepo(MediaRepo::class.java) }
+    private val notifier by lazy { NotifierProvider.forNotifier(MediaNotifier::class.java) }
+
+    private val waiting = ArrayDeque<UploadEntity>()
+    private val items = LinkedHashMap<String, Item>()
+    private val processor = BehaviorProcessor.create<Progress>()
+
+    private var running = 0
+    private var retrying = 0
+    private var numErrors = 0
+    private var maxStorageMessage = ""
+
+    /**
+     * The number of files uploaded at once.
+     */
+    var slots = DEFAULT_SLOTS
+        set(value) {
+            field = max(1, value)
+            pump()
+        }
+
+    val progress: Flowable<Progress> = processor.onBackpressureLatest()
+
+    /**
+     * Persists uploads for [uris] and queues them. Blocks on the database write, so it should
+     * be called off the main thread.
+     */
+    fun enqueue(user: User, team: Team, uris: List<Uri>) {
+        val now = System.currentTimeMillis()
+        val entities = uris.mapIndexed { index, uri -> toEntity(user, team, uri, now + index) }
+
+        dao.insert(entities)
+        add(entities)
+    }
+
+    /**
+     * Queues uploads left over from a previous process.
+     */
+    fun resume(): Completable = dao.pending()
+            .doOnSuccess(this::add)
+            .ignoreElement()
+            .subscribeOn(io())
+
+    @Synchronized
+    private fun add(entities: List<UploadEntity>) {
+        val additions = entities.filterNot { items.containsKey(it.id) }
+        if (additions.isEmpty()) return
+
+        val startsBatch = isIdle
+        if (startsBatch) {
+            items.clear()
+            numErrors = 0
+            maxStorageMessage = ""
+        }
+
+        additions.forEach {
+            items[it.id] = Item(it)
+            waiting.add(it)
+        }
+        publish()
+
+        // The notifier follows the batch until it completes
+        if (startsBatch) notifier.notifyOfUploads(progress.takeUntil(Predicate { it.isComplete }))
+        pump()
+    }
+
+    @Synchronized
+    private fun pump() {
+        while (running < slots && waiting.isNotEmpty()) start(waiting.remove())
+    }
+
+    @SuppressLint("CheckResult")
+    private fun start(entity: UploadEntity) {
+        running++
+        items.getValue(entity.id).state = Item.UPLOADING
+
+        Single.fromCallable { prepare(entity) }
+                .flatMap { prepared ->
+                    repository.upload(prepared.toMedia(), prepared.length, prepared.committed,
+                            { sent -> onProgress(prepared, sent) },
+                            { committed -> onCommitted(prepared, committed) })
+                }
+                .subscribeOn(io())
+                .subscribe({ media -> onUploaded(entity, media) }, { throwable -> onFailed(entity, throwable) })
+    }
+
+    // Images are downscaled before their first byte is sent, and uploaded from the smaller copy from then on
+    private fun prepare(entity: UploadEntity): UploadEntity {
+        val file = downscaledFile(entity)
+        if (entity.committed > 0 || entity.uri == Uri.fromFile(file).toString()) return entity
+
+        val result = ImageDownscaler.downscale(Uri.parse(entity.uri), entity.mimeType, entity.length, file)
+                ?: return entity
+
+        val prepared = entity.copy(uri = Uri.fromFile(result.file).toString(), mimeType = result.mimeType, length = result.file.length())
+        dao.update(listOf(prepared))
+
+        if (DEV) Logger.log(TAG, "Saved ${result.bytesSaved} bytes downscaling ${entity.uri}")
+        synchronized(this) {
+            items[entity.id]?.apply {
+                upload = prepared
+                length = prepared.length
+                bytesSaved = result.bytesSaved
+            }
+            publish()
+        }
+
+        return prepared
+    }
+
+    private fun onCommitted(entity: UploadEntity, committed: Long) {
+        if (committed > 0) dao.commit(entity.id, committed)
+        synchronized(this) { items[entity.id]?.apply { upload = upload.copy(committed = committed) } }
+        onProgress(entity, committed)
+    }
+
+    // Bytes sent that the server may not keep are shown, but never saved as a resume point
+    private fun onProgress(entity: UploadEntity, sent: Long) = synchronized(this) {
+        items[entity.id]?.uploaded = sent
+        publish()
+    }
+
+    private fun onUploaded(entity: UploadEntity, media: Media) {
+        dao.delete(entity)
+        downscaledFile(entity).delete()
+        App.instance.pushAlert(Alert.creation(media))
+
+        finish(entity, Item.UPLOADED)
+    }
+
+    private fun onFailed(entity: UploadEntity, throwable: Throwable) {
+        if (DEV) Logger.log(TAG, "Failed to upload ${entity.uri}", throwable)
+
+        val transient = RetryPolicy.isTransient(throwable)
+        if (transient && retryLater(entity)) return
+
+        // Uploads that failed for want of a connection stay queued for the next resume
+        if (!transient) {
+            dao.delete(entity)
+            downscaledFile(entity).delete()
+        }
+
+        val message = throwable.toMessage()
+        synchronized(this) {
+            numErrors++
+            if (message != null && message.isAtMaxStorage) maxStorageMessage = message.message
+        }
+
+        finish(entity, Item.FAILED)
+    }
+
+    // Frees the slot and queues the upload again from its last commit once the backoff elapses
+    @SuppressLint("CheckResult")
+    @Synchronized
+    private fun retryLater(entity: UploadEntity): Boolean {
+        val item = items[entity.id] ?: return false
+        if (item.attempts >= MAX_RETRIES) return false
+
+        val delay = RetryPolicy.jitteredDelay(item.attempts++, RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS)
+        running--
+        retrying++
+        item.uploaded = item.upload.committed
+
+        Completable.timer(delay, MILLISECONDS)
+                .subscribe({ requeue(item) }, ErrorHandler.EMPTY::invoke)
+
+        publish()
+        pump()
+        return true
+    }
+
+    @Synchronized
+    private fun requeue(item: Item) {
+        retrying--
+        waiting.add(item.upload)
+        pump()
+    }
+
+    @Synchronized
+    private fun finish(entity: UploadEntity, state: Int) {
+        running--
+        items[entity.id]?.state = state
+        if (state == Item.UPLOADED) maxStorageMessage = ""
+
+        publish()
+        pump()
+    }
+
+    private fun publish() {
+        val states = items.values
+        val uploaded = states.map(Item::committed).sum()
+        val total = states.map(Item::length).sum()
+
+        processor.onNext(Progress(
+                items = items.mapValues { it.value.percentage },
+                bytesSaved = items.mapValues { it.value.bytesSaved },
+                numToUpload = items.size,
+                numAttempted = states.count { it.state != Item.WAITING },
+                numErrors = numErrors,
+                uploadedBytes = uploaded,
+                totalBytes = total,
+                maxStorageMessage = maxStorageMessage,
+                isComplete = isIdle
+        ))
+    }
+
+    private val isIdle: Boolean
+        get() = running == 0 && retrying == 0 && waiting.isEmpty()
+
+    private fun toEntity(user: User, team: Team, uri: Uri, created: Long): UploadEntity {
+        val resolver = App.instance.contentResolver
+
+        // Read grants from the picker end with the process, keep them where the provider allows it
+        try {
+            resolver.takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION)
+        } catch (exception: SecurityException) {
+            if (DEV) Logger.log(TAG, "Unable to persist read permission for $uri", exception)
+        }
+
+        return UploadEntity(
+                id = ObjectId().toHexString(),
+                uri = uri.toString(),
+                mimeType = resolver.getType(uri) ?: "",
+                length = lengthOf(uri),
+                committed = 0,
+                user = user,
+                team = team,
+                created = created
+        )
+    }
+
+    private fun lengthOf(uri: Uri): Long = try {
+        App.instance.contentResolver.openAssetFileDescriptor(uri, "r")?.use { it.length }
+                ?: AssetFileDescriptor.UNKNOWN_LENGTH
+    } catch (exception: Exception) {
+        if (DEV) Logger.log(TAG, "Unable to read the length of $uri", exception)
+        AssetFileDescriptor.UNKNOWN_LENGTH
+    }
+
+    private fun downscaledFile(entity: UploadEntity) = File(File(App.instance.cacheDir, UPLOAD_DIRECTORY), entity.id)
+
+    private fun UploadEntity.toMedia() = Media(id, uri, mimeType, "", user, team, Date(created), false)
+
+    private class Item(var upload: UploadEntity) {
+
+        var length = upload.length
+
+        var uploaded = upload.committed
+
+        var attempts = 0
+
+        var state = WAITING
+
+        var bytesSaved = 0L
+
+        val committed: Long
+            get() = when {
+                length <= 0 -> 0
+                state == UPLOADED -> length
+                else -> uploaded
+            }
+
+        val percentage: Int
+            get() = when {
+                state == UPLOADED -> 100
+                length <= 0 -> 0
+                else -> (uploaded * 100 / length).toInt()
+            }
+
+        companion object {
+            const val WAITING = 0
+            const val UPLOADING = 1
+            const val UPLOADED = 2
+            const val FAILED = 3
+        }
+    }
+
+    /**
+     * A snapshot of the current batch of uploads. [items] maps each upload to its percentage,
+     * and [bytesSaved] to the bytes saved by downscaling it.
+     */
+    class Progress internal constructor(
+            val items: Map<String, Int>,
+            val bytesSaved: Map<String, Long>,
+            val numToUpload: Int,
+            val numAttempted: Int,
+            val numErrors: Int,
+            val uploadedBytes: Long,
+            val totalBytes: Long,
+            val maxStorageMessage: String,
+            val isComplete: Boolean
+    ) {
+        val percentage: Int
+            get() = if (totalBytes <= 0) 0 else (uploadedBytes * 100 / totalBytes).toInt()
+
+        val isAtMaxStorage: Boolean
+            get() = maxStorageMessage.isNotBlank()
+
+        val totalBytesSaved: Long
+            get() = bytesSaved.values.sum()
+    }
+}
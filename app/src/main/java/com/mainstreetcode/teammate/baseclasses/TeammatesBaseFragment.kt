@@ -57,6 +57,7 @@ import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.UiState
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.navigation.AppNavigator
+import com.mainstreetcode.teammate.util.DiffScheduler
 import com.mainstreetcode.teammate.util.ErrorHandler
 import com.mainstreetcode.teammate.util.FULL_RES_LOAD_DELAY
 import com.mainstreetcode.teammate.util.Logger
@@ -134,6 +135,12 @@ open class TeammatesBaseFragment(layoutRes: Int = 0) : Fragment(layoutRes),
 
     protected lateinit var scrollManager: ScrollManager<out RecyclerView.ViewHolder>
 
+    /**
+     * The list this fragment shows, its diffs run ahead of other lists' while it is resumed.
+     */
+    protected open val visibleItems: List<*>?
+        get() = null
+
     override val insetFlags = InsetFlags.ALL
 
     override val navigator: AppNavigator by activityNavigatorController()
@@ -188,9 +195,11 @@ open class TeammatesBaseFragment(layoutRes: Int = 0) : Fragment(layoutRes),
         super.onResume()
         if (view != null) updateUi(fabShows = showsFab)
         if (!restoredFromBackStack && ::scrollManager.isInitialized) uiState = uiState.copy(fabExtended = true)
+        visibleItems?.let(DiffScheduler::show)
     }
 
     override fun onPause() {
+        visibleItems?.let(DiffScheduler::hide)
         disposables.clear()
         super.onPause()
     }
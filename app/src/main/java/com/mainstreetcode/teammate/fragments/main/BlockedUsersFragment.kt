@@ -49,6 +49,9 @@ class BlockedUsersFragment : TeammatesBaseFragment(R.layout.fragment_list_with_r
     private lateinit var team: Team
     private lateinit var items: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = items
+
     override val stableTag: String
         get() {
             val superResult = super.stableTag
@@ -73,6 +73,9 @@ class ChatFragment : TeammatesBaseFragment(R.layout.fragment_chat),
     private val items: MutableList<Differentiable>
         get() = chatViewModel.getModelList(team)
 
+    override val visibleItems: List<*>
+        get() = items
+
     private lateinit var chatDisposable: Disposable
 
     private var swappedTeam = false
@@ -207,6 +210,7 @@ class ChatFragment : TeammatesBaseFragment(R.layout.fragment_chat),
                 .build()::invoke)
 
         disposables.add(chatDisposable)
+        disposables.add(chatViewModel.fillGaps(team).subscribe(::onChatsUpdated, ErrorHandler.EMPTY::invoke))
     }
 
     private fun sendChat(textView: TextView) {
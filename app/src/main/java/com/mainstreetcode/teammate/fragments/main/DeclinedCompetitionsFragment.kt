@@ -47,6 +47,9 @@ class DeclinedCompetitionsFragment : TeammatesBaseFragment(R.layout.fragment_lis
 
     private lateinit var items: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = items
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         items = competitorViewModel.getModelList(User::class.java)
@@ -57,6 +57,9 @@ class EventsFragment : TeammatesBaseFragment(R.layout.fragment_list_with_refresh
     private val items: List<Differentiable>
         get() = eventViewModel.getModelList(team)
 
+    override val visibleItems: List<*>
+        get() = items
+
     override val showsFab: Boolean get() = roleScopeViewModel.hasPrivilegedRole(team)
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
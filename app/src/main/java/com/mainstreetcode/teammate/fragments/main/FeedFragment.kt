@@ -62,6 +62,9 @@ class FeedFragment : TeammatesBaseFragment(R.layout.fragment_list_with_refresh)
 
     override val showsFab: Boolean get() = !teamViewModel.isOnATeam
 
+    override val visibleItems: List<*>
+        get() = feedViewModel.getModelList(FeedItem::class.java)
+
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
         super.onViewCreated(view, savedInstanceState)
         defaultUi(
@@ -67,6 +67,9 @@ class GameFragment : TeammatesBaseFragment(R.layout.fragment_game), Shell.UserAd
     private lateinit var game: Game
     private lateinit var items: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = items
+
     private var hasChoiceBar: Boolean = false
     private val editableStatus: AtomicBoolean = AtomicBoolean()
     private val privilegeStatus: AtomicBoolean = AtomicBoolean()
@@ -48,6 +48,9 @@ class GamesChildFragment : TeammatesBaseFragment(R.layout.fragment_games_child)
     private lateinit var tournament: Tournament
     private lateinit var items: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = items
+
     override val stableTag: String
         get() {
             val superResult = super.stableTag
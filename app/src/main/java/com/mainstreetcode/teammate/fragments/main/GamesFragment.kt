@@ -59,6 +59,9 @@ class GamesFragment : TeammatesBaseFragment(R.layout.fragment_list_with_refresh)
     private val items: MutableList<Differentiable>
         get() = gameViewModel.getModelList(team)
 
+    override val visibleItems: List<*>
+        get() = items
+
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
         super.onViewCreated(view, savedInstanceState)
         defaultUi(
@@ -64,6 +64,9 @@ class HeadToHeadFragment : TeammatesBaseFragment(R.layout.fragment_head_to_head)
 
     private lateinit var matchUps: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = matchUps
+
     override val showsFab: Boolean get() = false
 
     override fun onCreate(savedInstanceState: Bundle?) {
@@ -60,6 +60,9 @@ class MediaFragment : TeammatesBaseFragment(R.layout.fragment_list_with_refresh)
     private val items: MutableList<Differentiable>
         get() = mediaViewModel.getModelList(team)
 
+    override val visibleItems: List<*>
+        get() = items
+
     override val isFullScreen: Boolean get() = false
 
     override val showsFab: Boolean get() = true
@@ -50,6 +50,9 @@ class MyEventsFragment : TeammatesBaseFragment(R.layout.fragment_list_with_refre
         EventAdapterListener {
 
     private lateinit var items: List<Differentiable>
+
+    override val visibleItems: List<*>
+        get() = items
     private lateinit var myEventsViewModel: MyEventsViewModel
 
     override fun onAttach(context: Context) {
@@ -53,6 +53,9 @@ class StatAggregateFragment : TeammatesBaseFragment(),
 
     private lateinit var items: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = items
+
     override val showsFab: Boolean get() = false
 
     override fun onCreate(savedInstanceState: Bundle?) {
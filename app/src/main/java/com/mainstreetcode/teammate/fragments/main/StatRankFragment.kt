@@ -47,6 +47,9 @@ class StatRankFragment : TeammatesBaseFragment(R.layout.fragment_stat_rank) {
     private lateinit var tournament: Tournament
     private lateinit var statRanks: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = statRanks
+
     override val stableTag: String
         get() {
             val superResult = super.stableTag
@@ -58,6 +58,9 @@ class TeamMembersFragment : TeammatesBaseFragment(R.layout.fragment_list_with_re
     private lateinit var team: Team
     private lateinit var teamModels: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = teamModels
+
     override val showsFab: Boolean get() = targetRequestCode == 0 && roleScopeViewModel.hasPrivilegedRole(team)
 
     private val toolbarTitle: CharSequence get() = if (targetFragment != null) "" else getString(R.string.team_name_prefix, team.name)
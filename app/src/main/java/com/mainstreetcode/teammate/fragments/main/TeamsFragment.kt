@@ -49,6 +49,9 @@ class TeamsFragment : TeammatesBaseFragment(R.layout.fragment_list_with_refresh)
 
     private lateinit var roles: List<Differentiable>
 
+    override val visibleItems: List<*>
+        get() = roles
+
     private val isTeamPicker: Boolean get() = targetRequestCode != 0
 
     override val showsFab: Boolean get() = !isTeamPicker || roles.isEmpty()
@@ -58,6 +58,9 @@ class TournamentsFragment : TeammatesBaseFragment(R.layout.fragment_list_with_re
     private val items: MutableList<Differentiable>
         get() = tournamentViewModel.getModelList(team)
 
+    override val visibleItems: List<*>
+        get() = items
+
     override val showsFab: Boolean get() = team.sport.supportsCompetitions() && roleScopeViewModel.hasPrivilegedRole(team)
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
@@ -29,19 +29,16 @@ import android.annotation.SuppressLint
 import android.os.Parcel
 import android.os.Parcelable
 import androidx.room.Ignore
-import com.google.gson.JsonDeserializationContext
-import com.google.gson.JsonDeserializer
-import com.google.gson.JsonElement
-import com.google.gson.JsonObject
-import com.google.gson.JsonParseException
-import com.google.gson.JsonSerializationContext
-import com.google.gson.JsonSerializer
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
 import com.mainstreetcode.teammate.persistence.entity.ChatEntity
 import com.mainstreetcode.teammate.util.ObjectId
-import com.mainstreetcode.teammate.util.asStringOrEmpty
+import com.mainstreetcode.teammate.util.nextStringOrEmpty
 import com.mainstreetcode.teammate.util.parseISO8601Date
+import com.mainstreetcode.teammate.util.readObject
+import com.mainstreetcode.teammate.util.skipNull
 import com.tunjid.androidx.recyclerview.diff.Differentiable
-import java.lang.reflect.Type
 import java.text.SimpleDateFormat
 import java.util.*
 
@@ -85,36 +82,55 @@ class Chat : ChatEntity, TeamHost, Parcelable, Model<Chat> {
         hiddenTeam.update(updated.team)
     }
 
-    override fun compareTo(other: Chat): Int = created.compareTo(other.created)
-
-    open class GsonAdapter : JsonSerializer<Chat>, JsonDeserializer<Chat> {
-
-        @Throws(JsonParseException::class)
-        override fun deserialize(json: JsonElement, typeOfT: Type, context: JsonDeserializationContext): Chat {
-
-            val teamJson = json.asJsonObject
-
-            val id = teamJson.asStringOrEmpty(UID_KEY)
-            val kind = teamJson.asStringOrEmpty(KIND_KEY)
-            val content = teamJson.asStringOrEmpty(CONTENT_KEY)
-
-            val user: User = context.deserialize<User>(teamJson.get(USER_KEY), User::class.java)
-                    ?: User.empty()
-            val team: Team = context.deserialize<Team>(teamJson.get(TEAM_KEY), Team::class.java)
-                    ?: Team.empty()
-            val created = teamJson.asStringOrEmpty(DATE_KEY).parseISO8601Date()
-
-            return Chat(id, kind, content, user, team, created)
+    override fun compareTo(other: Chat): Int =
+            compareValuesBy(this, other, Chat::created, Chat::id)
+
+    /**
+     * Streams chats, [writesId] includes the id when serializing, for payloads sent over the socket.
+     */
+    class GsonAdapter(private val writesId: Boolean = false) : TypeAdapter<Chat>() {
+
+        private val userAdapter = User.GsonAdapter()
+        private val teamAdapter = Team.GsonAdapter()
+
+        override fun read(reader: JsonReader): Chat? {
+            if (reader.skipNull()) return null
+
+            var id = ""
+            var kind = ""
+            var content = ""
+            var user: User? = null
+            var team: Team? = null
+            var created = ""
+
+            reader.readObject { name ->
+                when (name) {
+                    UID_KEY -> id = reader.nextStringOrEmpty()
+                    KIND_KEY -> kind = reader.nextStringOrEmpty()
+                    CONTENT_KEY -> content = reader.nextStringOrEmpty()
+                    USER_KEY -> user = userAdapter.read(reader)
+                    TEAM_KEY -> team = teamAdapter.read(reader)
+                    DATE_KEY -> created = reader.nextStringOrEmpty()
+                    else -> reader.skipValue()
+                }
+            }
+
+            return Chat(id, kind, content, user ?: User.empty(), team ?: Team.empty(), created.parseISO8601Date())
         }
 
-        override fun serialize(src: Chat, typeOfSrc: Type, context: JsonSerializationContext): JsonElement {
-            val team = JsonObject()
-            team.addProperty(KIND_KEY, src.kind)
-            team.addProperty(USER_KEY, src.user.id)
-            team.addProperty(TEAM_KEY, src.team.id)
-            team.addProperty(CONTENT_KEY, src.content.toString())
-
-            return team
+        override fun write(writer: JsonWriter, src: Chat?) {
+            if (src == null) {
+                writer.nullValue()
+                return
+            }
+
+            writer.beginObject()
+            writer.name(KIND_KEY).value(src.kind)
+            writer.name(USER_KEY).value(src.user.id)
+            writer.name(TEAM_KEY).value(src.team.id)
+            writer.name(CONTENT_KEY).value(src.content.toString())
+            if (writesId) writer.name(UID_KEY).value(src.id)
+            writer.endObject()
         }
 
         companion object {
@@ -52,15 +52,15 @@ import com.mainstreetcode.teammate.util.ErrorHandler
 import com.mainstreetcode.teammate.util.asStringOrEmpty
 import com.mainstreetcode.teammate.util.deserializeList
 import com.tunjid.androidx.functions.collections.replace
-import io.reactivex.android.schedulers.AndroidSchedulers.mainThread
 import java.lang.reflect.Type
+import java.util.concurrent.ConcurrentHashMap
 
 @SuppressLint("ParcelCreator")
 class Config internal constructor(
         private var defaultTeamLogo: String,
         private var defaultEventLogo: String,
         private var defaultUserAvatar: String,
-        private val defaultTournamentLogo: String
+        private var defaultTournamentLogo: String
 ) : Model<Config> {
     private val sports = mutableListOf<Sport>()
     private val privileged = mutableListOf<String>()
@@ -72,6 +72,9 @@ class Config internal constructor(
     private val tournamentTypes = mutableListOf<TournamentType>()
     private val tournamentStyles = mutableListOf<TournamentStyle>()
 
+    // Code lookups keyed by the MetaData subclass, rebuilt after an update
+    private val codeIndexes = ConcurrentHashMap<Class<*>, Map<String, MetaData>>()
+
     override val isEmpty: Boolean
         get() = (TextUtils.isEmpty(defaultTeamLogo) || sports.isEmpty() || positions.isEmpty()
                 || visibilities.isEmpty() || blockReasons.isEmpty() || staticVariants.isEmpty())
@@ -83,6 +86,7 @@ class Config internal constructor(
         this.defaultTeamLogo = updated.defaultTeamLogo
         this.defaultEventLogo = updated.defaultEventLogo
         this.defaultUserAvatar = updated.defaultUserAvatar
+        this.defaultTournamentLogo = updated.defaultTournamentLogo
         privileged.replace(updated.privileged)
 
         sports.replace(updated.sports)
@@ -94,8 +98,16 @@ class Config internal constructor(
         staticVariants.replace(updated.staticVariants)
         tournamentTypes.replace(updated.tournamentTypes)
         tournamentStyles.replace(updated.tournamentStyles)
+        codeIndexes.clear()
     }
 
+    private fun <T : MetaData> codeIndex(type: Class<T>, items: List<T>): Map<String, MetaData> =
+            codeIndexes.getOrPut(type) {
+                val index = HashMap<String, MetaData>(items.size * 2)
+                for (item in items) if (!index.containsKey(item.code)) index[item.code] = item
+                index
+            }
+
     override val id: String = "0"
 
     override fun compareTo(other: Config): Int = 0
@@ -196,7 +208,8 @@ class Config internal constructor(
     companion object {
 
         private const val EMPTY_STRING = ""
-        private val cached by lazy { AppDatabase.instance.configDao().current }
+        private val cached: Config
+            get() = AppDatabase.instance.configDao().snapshot
 
         fun empty(): Config = Config(EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING)
 
@@ -262,17 +275,18 @@ class Config internal constructor(
 
         private fun <T : MetaData> getFromCode(code: String?, function: (Config) -> List<T>, defaultItem: T): T {
             val config = currentConfig
-            val matcher = code ?: ""
-            val list = function.invoke(config)
-            return list.firstOrNull { metaData -> matcher == metaData.code } ?: defaultItem
+            val index = config.codeIndex(defaultItem.javaClass, function.invoke(config))
+
+            @Suppress("UNCHECKED_CAST")
+            return index[code ?: ""] as T? ?: defaultItem
         }
 
+        // The repo saves the fetched config, which replaces the cached snapshot
         @SuppressLint("CheckResult")
         private fun fetchConfig() {
             if (RepoProvider.initialized())
                 RepoProvider.forRepo(ConfigRepo::class.java)[EMPTY_STRING]
-                        .observeOn(mainThread()) // Necessary to prevent a concurrent modification exception
-                        .subscribe(cached::update, ErrorHandler.EMPTY::invoke)
+                        .subscribe({ }, ErrorHandler.EMPTY::invoke)
         }
     }
 }
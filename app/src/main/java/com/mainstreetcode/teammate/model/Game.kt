@@ -28,26 +28,27 @@ import android.os.Parcel
 import android.os.Parcelable
 import android.text.TextUtils
 import androidx.room.Ignore
-import com.google.gson.JsonDeserializationContext
-import com.google.gson.JsonDeserializer
-import com.google.gson.JsonElement
-import com.google.gson.JsonObject
-import com.google.gson.JsonParseException
-import com.google.gson.JsonSerializationContext
-import com.google.gson.JsonSerializer
+import com.google.gson.Gson
+import com.google.gson.TypeAdapter
+import com.google.gson.TypeAdapterFactory
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
 import com.mainstreetcode.teammate.R
 import com.mainstreetcode.teammate.model.enums.Sport
 import com.mainstreetcode.teammate.persistence.entity.GameEntity
 import com.mainstreetcode.teammate.util.EMPTY_STRING
 import com.mainstreetcode.teammate.util.IdCache
 import com.mainstreetcode.teammate.util.areNotEmpty
-import com.mainstreetcode.teammate.util.asBooleanOrFalse
-import com.mainstreetcode.teammate.util.asFloatOrZero
-import com.mainstreetcode.teammate.util.asStringOrEmpty
+import com.mainstreetcode.teammate.util.isNextPrimitive
+import com.mainstreetcode.teammate.util.nextBooleanOrFalse
+import com.mainstreetcode.teammate.util.nextFloatOrZero
+import com.mainstreetcode.teammate.util.nextStringOrEmpty
 import com.mainstreetcode.teammate.util.noOp
 import com.mainstreetcode.teammate.util.parseISO8601Date
+import com.mainstreetcode.teammate.util.readObject
+import com.mainstreetcode.teammate.util.skipNull
 import com.tunjid.androidx.recyclerview.diff.Differentiable
-import java.lang.reflect.Type
 import java.util.*
 
 /**
@@ -158,71 +159,115 @@ class Game : GameEntity,
 
     override fun describeContents(): Int = 0
 
-    class GsonAdapter : JsonSerializer<Game>, JsonDeserializer<Game> {
-
-        override fun serialize(src: Game, typeOfSrc: Type, context: JsonSerializationContext): JsonElement {
-            val body = JsonObject()
-            body.addProperty(ENDED, src.isEnded)
-            body.addProperty(REF_PATH, src.refPath)
-            body.addProperty(HOME_SCORE, src.homeScore)
-            body.addProperty(AWAY_SCORE, src.awayScore)
-            body.addProperty(HOME, src.home.entity.id)
-            body.addProperty(AWAY, src.away.entity.id)
-            body.addProperty(REFEREE, if (src.referee.isEmpty) null else src.referee.id)
-            return body
-        }
-
-        @Throws(JsonParseException::class)
-        override fun deserialize(json: JsonElement, typeOfT: Type, context: JsonDeserializationContext): Game {
-            if (json.isJsonPrimitive) {
-                return Game(json.asString, "", "", "TBD", "", "", "", "",
-                        Date(), Sport.empty(), User.empty(), Team.empty(), Event.empty(), Tournament.empty(Team.empty()),
-                        Competitor.empty(), Competitor.empty(), Competitor.empty(),
-                        0, 0, 0, 0, 0, ended = false, canDraw = false)
+    /**
+     * Streams games, nested models are read with the adapters registered with the [Gson] instance.
+     */
+    class GsonAdapter : TypeAdapterFactory {
+
+        @Suppress("UNCHECKED_CAST")
+        override fun <T> create(gson: Gson, type: TypeToken<T>): TypeAdapter<T>? =
+                if (type.rawType == Game::class.java) Adapter(gson) as TypeAdapter<T>
+                else null
+
+        private class Adapter(gson: Gson) : TypeAdapter<Game>() {
+
+            private val users = gson.getAdapter(User::class.java)
+            private val teams = gson.getAdapter(Team::class.java)
+            private val events = gson.getAdapter(Event::class.java)
+            private val tournaments = gson.getAdapter(Tournament::class.java)
+            private val competitors = gson.getAdapter(Competitor::class.java)
+
+            override fun write(writer: JsonWriter, src: Game?) {
+                if (src == null) {
+                    writer.nullValue()
+                    return
+                }
+
+                writer.beginObject()
+                writer.name(ENDED).value(src.isEnded)
+                writer.name(REF_PATH).value(src.refPath)
+                writer.name(HOME_SCORE).value(src.homeScore)
+                writer.name(AWAY_SCORE).value(src.awayScore)
+                writer.name(HOME).value(src.home.entity.id)
+                writer.name(AWAY).value(src.away.entity.id)
+                if (!src.referee.isEmpty) writer.name(REFEREE).value(src.referee.id)
+                writer.endObject()
             }
 
-            val body = json.asJsonObject
-
-            val id = body.asStringOrEmpty(ID_KEY)
-            val name = body.asStringOrEmpty(NAME)
-            val refPath = body.asStringOrEmpty(REF_PATH)
-            val score = body.asStringOrEmpty(SCORE)
-            val matchUp = body.asStringOrEmpty(MATCH_UP)
-            val homeEntityId = body.asStringOrEmpty(HOME_ENTITY_ID)
-            val awayEntityId = body.asStringOrEmpty(AWAY_ENTITY_ID)
-            val winnerEntityId = body.asStringOrEmpty(WINNER_ENTITY_ID)
-            val created = body.asStringOrEmpty(CREATED_KEY)
-            val sportCode = body.asStringOrEmpty(SPORT_KEY)
-
-            val seed = body.asFloatOrZero(SEED).toInt()
-            val leg = body.asFloatOrZero(LEG).toInt()
-            val round = body.asFloatOrZero(ROUND).toInt()
-            val homeScore = body.asFloatOrZero(HOME_SCORE).toInt()
-            val awayScore = body.asFloatOrZero(AWAY_SCORE).toInt()
-            val ended = body.asBooleanOrFalse(ENDED)
-            val canDraw = body.asBooleanOrFalse(CAN_DRAW)
-
-            val sport = Config.sportFromCode(sportCode)
-            val referee: User = context.deserialize<User>(body.get(REFEREE), User::class.java)
-                    ?: User.empty()
-            val host: Team = context.deserialize<Team>(body.get(HOST), Team::class.java)
-                    ?: Team.empty()
-            val event: Event = context.deserialize<Event>(body.get(EVENT), Event::class.java)
-                    ?: Event.empty()
-            val tournament: Tournament = context.deserialize<Tournament>(body.get(TOURNAMENT), Tournament::class.java)
-                    ?: Tournament.empty()
-            val home: Competitor = context.deserialize<Competitor>(body.get(HOME), Competitor::class.java)
-                    ?: Competitor.empty()
-            val away: Competitor = context.deserialize<Competitor>(body.get(AWAY), Competitor::class.java)
-                    ?: Competitor.empty()
-            val winner =
-                    if (body.has(WINNER)) context.deserialize(body.get(WINNER), Competitor::class.java)
-                            ?: Competitor.empty()
-                    else Competitor.empty()
-
-            return Game(id, name, refPath, score, matchUp, homeEntityId, awayEntityId, winnerEntityId,
-                    created.parseISO8601Date(), sport, referee, host, event, tournament,
-                    home, away, winner, seed, leg, round, homeScore, awayScore, ended, canDraw)
+            override fun read(reader: JsonReader): Game? {
+                if (reader.skipNull()) return null
+                if (reader.isNextPrimitive()) {
+                    return Game(reader.nextString(), "", "", "TBD", "", "", "", "",
+                            Date(), Sport.empty(), User.empty(), Team.empty(), Event.empty(), Tournament.empty(Team.empty()),
+                            Competitor.empty(), Competitor.empty(), Competitor.empty(),
+                            0, 0, 0, 0, 0, ended = false, canDraw = false)
+                }
+
+                var id = ""
+                var name = ""
+                var refPath = ""
+                var score = ""
+                var matchUp = ""
+                var homeEntityId = ""
+                var awayEntityId = ""
+                var winnerEntityId = ""
+                var created = ""
+                var sportCode = ""
+
+                var seed = 0F
+                var leg = 0F
+                var round = 0F
+                var homeScore = 0F
+                var awayScore = 0F
+                var ended = false
+                var canDraw = false
+
+                var referee: User? = null
+                var host: Team? = null
+                var event: Event? = null
+                var tournament: Tournament? = null
+                var home: Competitor? = null
+                var away: Competitor? = null
+                var winner: Competitor? = null
+
+                reader.readObject { key ->
+                    when (key) {
+                        ID_KEY -> id = reader.nextStringOrEmpty()
+                        NAME -> name = reader.nextStringOrEmpty()
+                        REF_PATH -> refPath = reader.nextStringOrEmpty()
+                        SCORE -> score = reader.nextStringOrEmpty()
+                        MATCH_UP -> matchUp = reader.nextStringOrEmpty()
+                        HOME_ENTITY_ID -> homeEntityId = reader.nextStringOrEmpty()
+                        AWAY_ENTITY_ID -> awayEntityId = reader.nextStringOrEmpty()
+                        WINNER_ENTITY_ID -> winnerEntityId = reader.nextStringOrEmpty()
+                        CREATED_KEY -> created = reader.nextStringOrEmpty()
+                        SPORT_KEY -> sportCode = reader.nextStringOrEmpty()
+                        SEED -> seed = reader.nextFloatOrZero()
+                        LEG -> leg = reader.nextFloatOrZero()
+                        ROUND -> round = reader.nextFloatOrZero()
+                        HOME_SCORE -> homeScore = reader.nextFloatOrZero()
+                        AWAY_SCORE -> awayScore = reader.nextFloatOrZero()
+                        ENDED -> ended = reader.nextBooleanOrFalse()
+                        CAN_DRAW -> canDraw = reader.nextBooleanOrFalse()
+                        REFEREE -> referee = users.read(reader)
+                        HOST -> host = teams.read(reader)
+                        EVENT -> event = events.read(reader)
+                        TOURNAMENT -> tournament = tournaments.read(reader)
+                        HOME -> home = competitors.read(reader)
+                        AWAY -> away = competitors.read(reader)
+                        WINNER -> winner = competitors.read(reader)
+                        else -> reader.skipValue()
+                    }
+                }
+
+                return Game(id, name, refPath, score, matchUp, homeEntityId, awayEntityId, winnerEntityId,
+                        created.parseISO8601Date(), Config.sportFromCode(sportCode),
+                        referee ?: User.empty(), host ?: Team.empty(), event ?: Event.empty(),
+                        tournament ?: Tournament.empty(), home ?: Competitor.empty(),
+                        away ?: Competitor.empty(), winner ?: Competitor.empty(),
+                        seed.toInt(), leg.toInt(), round.toInt(), homeScore.toInt(), awayScore.toInt(),
+                        ended, canDraw)
+            }
         }
 
         companion object {
@@ -89,7 +89,8 @@ class Guest : GuestEntity,
         if (updated.user.hasMajorFields()) user.update(updated.user)
     }
 
-    override fun compareTo(other: Guest): Int = created.compareTo(other.created)
+    override fun compareTo(other: Guest): Int =
+            compareValuesBy(this, other, Guest::created, Guest::id)
 
     class GsonAdapter : JsonSerializer<Guest>, JsonDeserializer<Guest> {
 
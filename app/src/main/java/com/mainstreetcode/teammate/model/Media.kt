@@ -29,20 +29,17 @@ import android.net.Uri
 import android.os.Parcel
 import android.os.Parcelable
 import android.text.TextUtils
-import com.google.gson.JsonDeserializationContext
-import com.google.gson.JsonDeserializer
-import com.google.gson.JsonElement
-import com.google.gson.JsonParseException
-import com.google.gson.JsonPrimitive
-import com.google.gson.JsonSerializationContext
-import com.google.gson.JsonSerializer
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
 import com.mainstreetcode.teammate.persistence.entity.MediaEntity
 import com.mainstreetcode.teammate.util.ObjectId
-import com.mainstreetcode.teammate.util.asBooleanOrFalse
-import com.mainstreetcode.teammate.util.asStringOrEmpty
+import com.mainstreetcode.teammate.util.nextBooleanOrFalse
+import com.mainstreetcode.teammate.util.nextStringOrEmpty
 import com.mainstreetcode.teammate.util.parseISO8601Date
+import com.mainstreetcode.teammate.util.readObject
+import com.mainstreetcode.teammate.util.skipNull
 import com.tunjid.androidx.recyclerview.diff.Differentiable
-import java.lang.reflect.Type
 import java.util.*
 
 class Media : MediaEntity, TeamHost, Parcelable, Model<Media> {
@@ -89,37 +86,49 @@ class Media : MediaEntity, TeamHost, Parcelable, Model<Media> {
         isFlagged = updated.isFlagged
     }
 
-    override fun compareTo(other: Media): Int = created.compareTo(other.created)
-
-    class GsonAdapter : JsonSerializer<Media>, JsonDeserializer<Media> {
-
-        @Throws(JsonParseException::class)
-        override fun deserialize(json: JsonElement, typeOfT: Type, context: JsonDeserializationContext): Media {
-
-            val mediaJson = json.asJsonObject
-
-            val id = mediaJson.asStringOrEmpty(UID_KEY)
-            val url = mediaJson.asStringOrEmpty(URL_KEY)
-            val mimeType = mediaJson.asStringOrEmpty(MIME_TYPE_KEY)
-            val thumbnail = mediaJson.asStringOrEmpty(THUMBNAIL_KEY)
-
-            val user = context.deserialize<User>(mediaJson.get(USER_KEY), User::class.java)
-                    ?: User.empty()
-            val team = context.deserialize<Team>(mediaJson.get(TEAM_KEY), Team::class.java)
-                    ?: Team.empty()
-
-            val created = mediaJson.asStringOrEmpty(DATE_KEY).parseISO8601Date()
-            val flagged = mediaJson.asBooleanOrFalse(FLAGGED_KEY)
-
-            return Media(id, url, mimeType, thumbnail, user, team, created, flagged)
+    override fun compareTo(other: Media): Int =
+            compareValuesBy(this, other, Media::created, Media::id)
+
+    class GsonAdapter : TypeAdapter<Media>() {
+
+        private val userAdapter = User.GsonAdapter()
+        private val teamAdapter = Team.GsonAdapter()
+
+        override fun read(reader: JsonReader): Media? {
+            if (reader.skipNull()) return null
+
+            var id = ""
+            var url = ""
+            var mimeType = ""
+            var thumbnail = ""
+            var user: User? = null
+            var team: Team? = null
+            var created = ""
+            var flagged = false
+
+            reader.readObject { name ->
+                when (name) {
+                    UID_KEY -> id = reader.nextStringOrEmpty()
+                    URL_KEY -> url = reader.nextStringOrEmpty()
+                    MIME_TYPE_KEY -> mimeType = reader.nextStringOrEmpty()
+                    THUMBNAIL_KEY -> thumbnail = reader.nextStringOrEmpty()
+                    USER_KEY -> user = userAdapter.read(reader)
+                    TEAM_KEY -> team = teamAdapter.read(reader)
+                    DATE_KEY -> created = reader.nextStringOrEmpty()
+                    FLAGGED_KEY -> flagged = reader.nextBooleanOrFalse()
+                    else -> reader.skipValue()
+                }
+            }
+
+            return Media(id, url, mimeType, thumbnail, user ?: User.empty(), team ?: Team.empty(),
+                    created.parseISO8601Date(), flagged)
         }
 
-        override fun serialize(src: Media, typeOfSrc: Type, context: JsonSerializationContext): JsonElement =//            JsonObject media = new JsonObject();
-        //            media.addProperty(MIME_TYPE_KEY, src.mimeType);
-        //            media.addProperty(URL_KEY, src.url);
-        //            media.addProperty(TEAM_KEY, src.team.getId());
-                //            media.addProperty(USER_KEY, src.user.getId());
-                JsonPrimitive(src.id)
+        // Media is only ever sent as a reference
+        override fun write(writer: JsonWriter, src: Media?) {
+            if (src == null) writer.nullValue()
+            else writer.value(src.id)
+        }
 
         companion object {
 
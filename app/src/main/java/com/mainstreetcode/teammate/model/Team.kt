@@ -30,27 +30,25 @@ import android.os.Parcelable
 import android.text.TextUtils
 import androidx.room.Ignore
 import com.google.android.gms.maps.model.LatLng
-import com.google.gson.JsonArray
-import com.google.gson.JsonDeserializationContext
-import com.google.gson.JsonDeserializer
-import com.google.gson.JsonElement
-import com.google.gson.JsonObject
-import com.google.gson.JsonParseException
-import com.google.gson.JsonSerializationContext
-import com.google.gson.JsonSerializer
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
 import com.mainstreetcode.teammate.R
 import com.mainstreetcode.teammate.model.enums.Sport
 import com.mainstreetcode.teammate.persistence.entity.TeamEntity
 import com.mainstreetcode.teammate.util.EMPTY_STRING
 import com.mainstreetcode.teammate.util.IdCache
+import com.mainstreetcode.teammate.util.IdentityMap
 import com.mainstreetcode.teammate.util.areNotEmpty
-import com.mainstreetcode.teammate.util.asFloatOrZero
-import com.mainstreetcode.teammate.util.asStringOrEmpty
-import com.mainstreetcode.teammate.util.parseCoordinates
+import com.mainstreetcode.teammate.util.isNextPrimitive
+import com.mainstreetcode.teammate.util.nextCoordinates
+import com.mainstreetcode.teammate.util.nextFloatOrZero
+import com.mainstreetcode.teammate.util.nextStringOrEmpty
 import com.mainstreetcode.teammate.util.parseISO8601Date
 import com.mainstreetcode.teammate.util.processEmoji
+import com.mainstreetcode.teammate.util.readObject
+import com.mainstreetcode.teammate.util.skipNull
 import com.tunjid.androidx.recyclerview.diff.Differentiable
-import java.lang.reflect.Type
 import java.util.*
 
 /**
@@ -176,62 +174,91 @@ class Team : TeamEntity,
 
     override fun describeContents(): Int = 0
 
-    open class GsonAdapter : JsonSerializer<Team>, JsonDeserializer<Team> {
+    /**
+     * Streams teams, [writesId] includes the id when serializing, for payloads sent over the socket.
+     */
+    class GsonAdapter(private val writesId: Boolean = false) : TypeAdapter<Team>() {
 
-        @Throws(JsonParseException::class)
-        override fun deserialize(json: JsonElement, typeOfT: Type, context: JsonDeserializationContext): Team {
-            if (json.isJsonPrimitive) {
-                return Team(json.asString, "", "", "", "", "", "", "", Date(), LatLng(0.0, 0.0), Sport.empty(), 0, 0, 0, 0)
+        override fun read(reader: JsonReader): Team? {
+            if (reader.skipNull()) return null
+            if (reader.isNextPrimitive()) {
+                return IdentityMap.canonical(Team(reader.nextString(), "", "", "", "", "", "", "", Date(), LatLng(0.0, 0.0), Sport.empty(), 0, 0, 0, 0))
             }
 
-            val teamJson = json.asJsonObject
-
-            val id = teamJson.asStringOrEmpty(UID_KEY)
-            val name = teamJson.asStringOrEmpty(NAME_KEY)
-            val screenName = teamJson.asStringOrEmpty(SCREEN_NAME)
-            val city = teamJson.asStringOrEmpty(CITY_KEY)
-            val state = teamJson.asStringOrEmpty(STATE_KEY)
-            val zip = teamJson.asStringOrEmpty(ZIP_KEY)
-            val sportCode = teamJson.asStringOrEmpty(SPORT_KEY)
-            val description = teamJson.asStringOrEmpty(DESCRIPTION_KEY)
-            val imageUrl = teamJson.asStringOrEmpty(IMAGE_URL_KEY)
-            val created = teamJson.asStringOrEmpty(CREATED_KEY).parseISO8601Date()
-            val location = teamJson.parseCoordinates(LOCATION_KEY)
-            val sport = Config.sportFromCode(sportCode)
-            val storageUsed = teamJson.asFloatOrZero(STORAGE_USED_KEY).toLong()
-            val maxStorage = teamJson.asFloatOrZero(MAX_STORAGE_KEY).toLong()
-            val minAge = teamJson.asFloatOrZero(MIN_AGE_KEY).toInt()
-            val maxAge = teamJson.asFloatOrZero(MAX_AGE_KEY).toInt()
-
-            return Team(id, imageUrl, screenName, city, state, zip,
+            var id = ""
+            var name = ""
+            var screenName = ""
+            var city = ""
+            var state = ""
+            var zip = ""
+            var sportCode = ""
+            var description = ""
+            var imageUrl = ""
+            var created = ""
+            var location: LatLng? = null
+            var storageUsed = 0F
+            var maxStorage = 0F
+            var minAge = 0F
+            var maxAge = 0F
+
+            reader.readObject { key ->
+                when (key) {
+                    UID_KEY -> id = reader.nextStringOrEmpty()
+                    NAME_KEY -> name = reader.nextStringOrEmpty()
+                    SCREEN_NAME -> screenName = reader.nextStringOrEmpty()
+                    CITY_KEY -> city = reader.nextStringOrEmpty()
+                    STATE_KEY -> state = reader.nextStringOrEmpty()
+                    ZIP_KEY -> zip = reader.nextStringOrEmpty()
+                    SPORT_KEY -> sportCode = reader.nextStringOrEmpty()
+                    DESCRIPTION_KEY -> description = reader.nextStringOrEmpty()
+                    IMAGE_URL_KEY -> imageUrl = reader.nextStringOrEmpty()
+                    CREATED_KEY -> created = reader.nextStringOrEmpty()
+                    LOCATION_KEY -> location = reader.nextCoordinates()
+                    STORAGE_USED_KEY -> storageUsed = reader.nextFloatOrZero()
+                    MAX_STORAGE_KEY -> maxStorage = reader.nextFloatOrZero()
+                    MIN_AGE_KEY -> minAge = reader.nextFloatOrZero()
+                    MAX_AGE_KEY -> maxAge = reader.nextFloatOrZero()
+                    else -> reader.skipValue()
+                }
+            }
+
+            return IdentityMap.canonical(Team(id, imageUrl, screenName, city, state, zip,
                     name.processEmoji(), description.processEmoji(),
-                    created, location, sport, storageUsed, maxStorage, minAge, maxAge)
+                    created.parseISO8601Date(), location, Config.sportFromCode(sportCode),
+                    storageUsed.toLong(), maxStorage.toLong(), minAge.toInt(), maxAge.toInt()))
         }
 
-        override fun serialize(src: Team, typeOfSrc: Type, context: JsonSerializationContext): JsonElement {
-            val team = JsonObject()
-            team.addProperty(NAME_KEY, src.name.toString())
-            team.addProperty(CITY_KEY, src.city)
-            team.addProperty(STATE_KEY, src.state)
-            team.addProperty(ZIP_KEY, src.zip)
-            team.addProperty(DESCRIPTION_KEY, src.description.toString())
-            team.addProperty(MIN_AGE_KEY, src.minAge)
-            team.addProperty(MAX_AGE_KEY, src.maxAge)
+        override fun write(writer: JsonWriter, src: Team?) {
+            if (src == null) {
+                writer.nullValue()
+                return
+            }
+
+            writer.beginObject()
+            writer.name(NAME_KEY).value(src.name.toString())
+            writer.name(CITY_KEY).value(src.city)
+            writer.name(STATE_KEY).value(src.state)
+            writer.name(ZIP_KEY).value(src.zip)
+            writer.name(DESCRIPTION_KEY).value(src.description.toString())
+            writer.name(MIN_AGE_KEY).value(src.minAge)
+            writer.name(MAX_AGE_KEY).value(src.maxAge)
 
             if (!TextUtils.isEmpty(src.screenName))
-                team.addProperty(SCREEN_NAME, src.screenName)
+                writer.name(SCREEN_NAME).value(src.screenName)
 
             val sportCode = src.sport.code
-            if (sportCode.isNotBlank()) team.addProperty(SPORT_KEY, sportCode)
-
-            if (src.location != null) {
-                val coordinates = JsonArray()
-                coordinates.add(src.location!!.longitude)
-                coordinates.add(src.location!!.latitude)
-                team.add(LOCATION_KEY, coordinates)
+            if (sportCode.isNotBlank()) writer.name(SPORT_KEY).value(sportCode)
+
+            val location = src.location
+            if (location != null) {
+                writer.name(LOCATION_KEY).beginArray()
+                writer.value(location.longitude)
+                writer.value(location.latitude)
+                writer.endArray()
             }
 
-            return team
+            if (writesId) writer.name(UID_KEY).value(src.id)
+            writer.endObject()
         }
 
         companion object {
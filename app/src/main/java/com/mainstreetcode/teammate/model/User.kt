@@ -27,23 +27,22 @@ package com.mainstreetcode.teammate.model
 import android.os.Parcel
 import android.os.Parcelable
 import androidx.room.Ignore
-import com.google.gson.JsonDeserializationContext
-import com.google.gson.JsonDeserializer
-import com.google.gson.JsonElement
-import com.google.gson.JsonObject
-import com.google.gson.JsonParseException
-import com.google.gson.JsonSerializationContext
-import com.google.gson.JsonSerializer
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
 import com.mainstreetcode.teammate.R
 import com.mainstreetcode.teammate.persistence.entity.UserEntity
 import com.mainstreetcode.teammate.util.EMPTY_STRING
 import com.mainstreetcode.teammate.util.IdCache
+import com.mainstreetcode.teammate.util.IdentityMap
 import com.mainstreetcode.teammate.util.areNotEmpty
-import com.mainstreetcode.teammate.util.asStringOrEmpty
+import com.mainstreetcode.teammate.util.isNextPrimitive
 import com.mainstreetcode.teammate.util.isNotNullOrBlank
+import com.mainstreetcode.teammate.util.nextStringOrEmpty
 import com.mainstreetcode.teammate.util.processEmoji
+import com.mainstreetcode.teammate.util.readObject
+import com.mainstreetcode.teammate.util.skipNull
 import com.tunjid.androidx.recyclerview.diff.Differentiable
-import java.lang.reflect.Type
 
 class User : UserEntity,
         Competitive,
@@ -128,39 +127,54 @@ class User : UserEntity,
 
     override fun writeToParcel(dest: Parcel, flags: Int) = super.writeToParcel(dest, flags)
 
-    class GsonAdapter : JsonSerializer<User>, JsonDeserializer<User> {
+    class GsonAdapter : TypeAdapter<User>() {
 
-        @Throws(JsonParseException::class)
-        override fun deserialize(json: JsonElement, typeOfT: Type, context: JsonDeserializationContext): User {
-            if (json.isJsonPrimitive) {
-                return User(json.asString, "", "", "", "", "", "")
+        override fun read(reader: JsonReader): User? {
+            if (reader.skipNull()) return null
+            if (reader.isNextPrimitive()) {
+                return IdentityMap.canonical(User(reader.nextString(), "", "", "", "", "", ""))
             }
 
-            val userObject = json.asJsonObject
-
-            val id = userObject.asStringOrEmpty(UID_KEY)
-            val imageUrl = userObject.asStringOrEmpty(IMAGE_KEY)
-            val screenName = userObject.asStringOrEmpty(SCREEN_NAME)
-            val primaryEmail = userObject.asStringOrEmpty(PRIMARY_EMAIL_KEY)
-            val firstName = userObject.asStringOrEmpty(FIRST_NAME_KEY)
-            val lastName = userObject.asStringOrEmpty(LAST_NAME_KEY)
-            val about = userObject.asStringOrEmpty(ABOUT_KEY)
+            var id = ""
+            var imageUrl = ""
+            var screenName = ""
+            var primaryEmail = ""
+            var firstName = ""
+            var lastName = ""
+            var about = ""
+
+            reader.readObject { name ->
+                when (name) {
+                    UID_KEY -> id = reader.nextStringOrEmpty()
+                    IMAGE_KEY -> imageUrl = reader.nextStringOrEmpty()
+                    SCREEN_NAME -> screenName = reader.nextStringOrEmpty()
+                    PRIMARY_EMAIL_KEY -> primaryEmail = reader.nextStringOrEmpty()
+                    FIRST_NAME_KEY -> firstName = reader.nextStringOrEmpty()
+                    LAST_NAME_KEY -> lastName = reader.nextStringOrEmpty()
+                    ABOUT_KEY -> about = reader.nextStringOrEmpty()
+                    else -> reader.skipValue()
+                }
+            }
 
-            return User(id, imageUrl, screenName, primaryEmail,
-                    firstName.processEmoji(), lastName.processEmoji(), about.processEmoji())
+            return IdentityMap.canonical(User(id, imageUrl, screenName, primaryEmail,
+                    firstName.processEmoji(), lastName.processEmoji(), about.processEmoji()))
         }
 
-        override fun serialize(src: User, typeOfSrc: Type, context: JsonSerializationContext): JsonElement {
-            val user = JsonObject()
-            user.addProperty(FIRST_NAME_KEY, src.firstName.toString())
-            user.addProperty(LAST_NAME_KEY, src.lastName.toString())
-            user.addProperty(PRIMARY_EMAIL_KEY, src.primaryEmail)
-            user.addProperty(ABOUT_KEY, src.about.toString())
-            if (src.screenName.isNotBlank()) user.addProperty(SCREEN_NAME, src.screenName)
+        override fun write(writer: JsonWriter, src: User?) {
+            if (src == null) {
+                writer.nullValue()
+                return
+            }
 
-            if (src.password.isNotNullOrBlank()) user.addProperty(PASSWORD_KEY, src.password)
+            writer.beginObject()
+            writer.name(FIRST_NAME_KEY).value(src.firstName.toString())
+            writer.name(LAST_NAME_KEY).value(src.lastName.toString())
+            writer.name(PRIMARY_EMAIL_KEY).value(src.primaryEmail)
+            writer.name(ABOUT_KEY).value(src.about.toString())
+            if (src.screenName.isNotBlank()) writer.name(SCREEN_NAME).value(src.screenName)
 
-            return user
+            if (src.password.isNotNullOrBlank()) writer.name(PASSWORD_KEY).value(src.password)
+            writer.endObject()
         }
 
         companion object {
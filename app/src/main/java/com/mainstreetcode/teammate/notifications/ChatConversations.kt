@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.notifications
+
+import com.mainstreetcode.teammate.model.Chat
+import com.mainstreetcode.teammate.persistence.entity.UnreadChats
+import java.util.*
+
+/**
+ * The unread chats of each team with a notification showing, kept as they arrive so their
+ * notifications can be rebuilt without reading the database. Each team keeps its last
+ * [capacity] chats to show as lines, and a count of all of them.
+ *
+ * Teams that changed since the last [drain] are the only ones drained, so only their
+ * notifications are rebuilt. A team is drained once a chat for it has been [added][add], the
+ * chats it was [seeded][seed] with only carry over unread counts from before the process started.
+ */
+internal class ChatConversations(private val capacity: Int) {
+
+    private val conversations = LinkedHashMap<String, Lines>()
+    private val changed = LinkedHashSet<String>()
+
+    val size: Int
+        @Synchronized get() = conversations.values.count { it.item != null }
+
+    /**
+     * The ids of the teams with a notification showing.
+     */
+    val teamIds: Set<String>
+        @Synchronized get() = conversations.filterValues { it.item != null }.keys.toSet()
+
+    /**
+     * Starts the conversations of teams not added to yet with their [unread] chats, as counted
+     * from the database.
+     */
+    @Synchronized
+    fun seed(unread: List<UnreadChats>) = unread.forEach { (latest, count) ->
+        val lines = conversations.getOrPut(latest.team.id) { Lines() }
+        if (lines.item != null || lines.recent.isNotEmpty()) return@forEach
+
+        lines.unread = count
+        lines.recent.addLast(latest)
+    }
+
+    /**
+     * Adds [chat] to its team's conversation, replied to from [item]. Returns false for a chat
+     * already added.
+     */
+    @Synchronized
+    fun add(item: FeedItem<Chat>, chat: Chat): Boolean {
+        val teamId = chat.team.id
+        val lines = conversations.getOrPut(teamId) { Lines() }
+        val seen = lines.recent.any { it.id == chat.id }
+
+        // A seeded chat is counted already, but its team has nothing showing yet
+        if (seen && lines.item != null) return false
+
+        lines.item = item
+        changed.add(teamId)
+        if (seen) return true
+
+        lines.unread++
+        lines.recent.addLast(chat)
+        if (lines.recent.size > capacity) lines.recent.removeFirst()
+
+        return true
+    }
+
+    @Synchronized
+    fun remove(teamId: String) {
+        conversations.remove(teamId)
+        changed.remove(teamId)
+    }
+
+    @Synchronized
+    fun clear() {
+        conversations.clear()
+        changed.clear()
+    }
+
+    /**
+     * The conversations that changed since this was last called, oldest line first.
+     */
+    @Synchronized
+    fun drain(): List<Conversation> {
+        val drained = changed.mapNotNull { teamId ->
+            val lines = conversations[teamId] ?: return@mapNotNull null
+            val item = lines.item ?: return@mapNotNull null
+            Conversation(item, lines.recent.toList(), lines.unread)
+        }
+        changed.clear()
+        return drained
+    }
+
+    data class Conversation(val item: FeedItem<Chat>, val lines: List<Chat>, val unread: Int) {
+        val latest: Chat get() = lines.last()
+    }
+
+    private class Lines {
+        val recent = ArrayDeque<Chat>()
+        var item: FeedItem<Chat>? = null
+        var unread = 0
+    }
+}
@@ -51,15 +51,30 @@ import com.mainstreetcode.teammate.repository.ModelRepo
 import com.mainstreetcode.teammate.repository.RepoProvider
 import com.mainstreetcode.teammate.repository.UserRepo
 import com.mainstreetcode.teammate.util.ErrorHandler
+import io.reactivex.Completable
 import io.reactivex.android.schedulers.AndroidSchedulers.mainThread
+import io.reactivex.processors.PublishProcessor
 import java.util.*
-import java.util.concurrent.atomic.AtomicInteger
-import kotlin.math.min
+import java.util.concurrent.TimeUnit
 
 
 class ChatNotifier internal constructor() : Notifier<Chat>() {
 
     private val visibleChatMap = HashMap<Team, Boolean>()
+    private val conversations = ChatConversations(MAX_LINES)
+    private val changes = PublishProcessor.create<Unit>().toSerialized()
+
+    // The teams the posted summary counts, so it is only reposted when they change
+    private var summarizedTeams = emptySet<String>()
+
+    // Unread counts from before this process started, read once when the first chat arrives
+    private val seeding: Completable = Completable.defer {
+        RepoProvider.forRepo(ChatRepo::class.java).unreadChats()
+                .firstElement()
+                .doOnSuccess(conversations::seed)
+                .ignoreElement()
+                .onErrorComplete()
+    }.cache()
 
     override val notifyId: String
         get() = FeedItem.CHAT
@@ -82,6 +97,11 @@ class ChatNotifier internal constructor() : Notifier<Chat>() {
         filter.addAction(ACTION_REPLY)
 
         app.registerReceiver(NotificationActionReceiver(), filter)
+
+        changes.onBackpressureLatest()
+                .throttleLatest(POST_WINDOW_MILLIS, TimeUnit.MILLISECONDS, true)
+                .observeOn(mainThread())
+                .subscribe({ postChanged() }, ErrorHandler.EMPTY::invoke)
     }
 
     override fun filterNotifications(item: Chat): Boolean {
@@ -91,43 +111,69 @@ class ChatNotifier internal constructor() : Notifier<Chat>() {
 
     override fun getNotificationTag(model: Chat): String = model.team.id
 
-    override fun handleNotification(item: FeedItem<Chat>) = aggregateConversations(item, item.model)
+    override fun handleNotification(item: FeedItem<Chat>) = onChat(item, item.model)
 
     fun setChatVisibility(team: Team, visible: Boolean) {
         visibleChatMap[team] = visible
     }
 
-    @SuppressLint("CheckResult")
-    private fun aggregateConversations(item: FeedItem<Chat>?, received: Chat) {
-        val repository = RepoProvider.forRepo(ChatRepo::class.java)
-        val count = AtomicInteger(0)
+    /**
+     * Adds [received] to its team's conversation, once the conversations are seeded with the
+     * unread chats in the database. Notifications are rebuilt at most once per
+     * [POST_WINDOW_MILLIS], and only for the teams that changed in that time.
+     */
+    internal fun onChat(item: FeedItem<Chat>, received: Chat) {
+        seeding.subscribe({ if (conversations.add(item, received)) changes.onNext(Unit) }, ErrorHandler.EMPTY::invoke)
+    }
 
-        repository[received]
-                .flatMap { repository.fetchUnreadChats() }
-                .doOnNext { count.incrementAndGet() }
-                .map { unreadChats -> buildNotification(item, unreadChats, count.get()) to unreadChats[0] }
-                .observeOn(mainThread())
-                .subscribe(
-                        { notificationChatPair -> sendNotification(notificationChatPair.first, notificationChatPair.second) },
-                        ErrorHandler.EMPTY::invoke,
-                        { buildSummary(item, count.get()) })
+    internal fun markAsRead(read: Chat) {
+        clearNotifications(read)
+        if (conversations.size == 0) clearNotifications(Chat.empty())
+    }
+
+    override fun clearNotifications(model: Chat?) {
+        if (model == null || model.team.id.isBlank()) {
+            conversations.clear()
+            summarizedTeams = emptySet()
+        } else conversations.remove(model.team.id)
+
+        super.clearNotifications(model)
     }
 
-    private fun buildNotification(item: FeedItem<Chat>?, chats: List<Chat>, count: Int): Notification {
-        val size = chats.size
-        val latest = chats[0]
+    private fun postChanged() {
+        val changed = conversations.drain()
+        if (changed.isEmpty()) return
+
+        changed.forEach { conversation -> sendNotification(buildNotification(conversation), conversation.latest) }
+
+        val teamIds = conversations.teamIds
+        if (teamIds == summarizedTeams) return
+
+        summarizedTeams = teamIds
+        buildSummary(changed.last().item, teamIds.size)
+    }
+
+    /**
+     * Each team alerts once for its first unread line, later lines update its notification
+     * quietly until it is read or dismissed.
+     */
+    private fun buildNotification(conversation: ChatConversations.Conversation): Notification {
+        val item = conversation.item
+        val size = conversation.unread
+        val latest = conversation.latest
         val teamName = latest.team.name
 
-        val notificationBuilder = getNotificationBuilder(item!!)
+        val notificationBuilder = getNotificationBuilder(item)
                 .setContentIntent(getDeepLinkIntent(latest))
                 .setSmallIcon(R.drawable.ic_notification)
                 .addAction(getReplyAction(item, latest))
                 .addAction(getMarkAsReadAction(latest))
                 .setGroup(NOTIFICATION_GROUP)
                 .setAutoCancel(true)
+                .setOnlyAlertOnce(true)
+                .setSound(RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION))
 
-        notificationBuilder.setSound(getNotificationSound(count))
-        setGroupAlertSummary(notificationBuilder)
+        setGroupAlertChildren(notificationBuilder)
 
         if (size < 2)
             return notificationBuilder
@@ -135,12 +181,11 @@ class ChatNotifier internal constructor() : Notifier<Chat>() {
                     .setContentText(latest.content)
                     .build()
 
-        val min = min(size - 1, MAX_LINES)
         val style = NotificationCompat.InboxStyle()
 
-        for (i in min downTo 0) style.addLine(getChatLine(chats[i]))
+        for (chat in conversation.lines) style.addLine(getChatLine(chat))
 
-        if (size > MAX_LINES) style.setSummaryText(app.getString(R.string.chat_notification_multiline_summary, size - MAX_LINES))
+        if (size > conversation.lines.size) style.setSummaryText(app.getString(R.string.chat_notification_multiline_summary, size - conversation.lines.size))
 
         return notificationBuilder
                 .setContentTitle(app.getString(R.string.chat_notification_multiline_title, size, teamName))
@@ -149,10 +194,12 @@ class ChatNotifier internal constructor() : Notifier<Chat>() {
                 .build()
     }
 
-    private fun buildSummary(item: FeedItem<Chat>?, count: Int) {
-        val notificationBuilder = getNotificationBuilder(item!!)
+    private fun buildSummary(item: FeedItem<Chat>, count: Int) {
+        val notificationBuilder = getNotificationBuilder(item)
+                .setOnlyAlertOnce(true)
+                .setSound(Uri.parse("android.resource://" + app.packageName + "/" + R.raw.silent))
 
-        setGroupAlertSummary(notificationBuilder)
+        setGroupAlertChildren(notificationBuilder)
 
         sendNotification(notificationBuilder
                 .setContentTitle(app.getString(R.string.chat_notification_group_summary, count))
@@ -164,13 +211,8 @@ class ChatNotifier internal constructor() : Notifier<Chat>() {
                 .build(), Chat.empty()) // Empty chat as the summary is it's own notification
     }
 
-    private fun setGroupAlertSummary(builder: NotificationCompat.Builder) {
-        if (SDK_INT >= O) builder.setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
-    }
-
-    private fun getNotificationSound(count: Int): Uri = when (count) {
-        1 -> RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION)
-        else -> Uri.parse("android.resource://" + app.packageName + "/" + R.raw.silent)
+    private fun setGroupAlertChildren(builder: NotificationCompat.Builder) {
+        if (SDK_INT >= O) builder.setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
     }
 
     private fun getChatLine(chat: Chat): CharSequence {
@@ -208,7 +250,7 @@ class ChatNotifier internal constructor() : Notifier<Chat>() {
         @SuppressLint("CheckResult")
         override fun onReceive(context: Context, intent: Intent) {
             val repository = RepoProvider.forRepo(ChatRepo::class.java)
-            val notifier = ChatNotifier()
+            val notifier = NotifierProvider.forNotifier(ChatNotifier::class.java)
             val action = intent.action
             when (action ?: "") {
                 ACTION_REPLY -> {
@@ -219,16 +261,12 @@ class ChatNotifier internal constructor() : Notifier<Chat>() {
                     val toSend = Chat.chat(message, RepoProvider.forRepo(UserRepo::class.java).currentUser, received.model.team)
 
                     repository.createOrUpdate(toSend)
-                            .subscribe({ notifier.aggregateConversations(received, toSend) }, ErrorHandler.EMPTY::invoke)
+                            .subscribe({ notifier.onChat(received, toSend) }, ErrorHandler.EMPTY::invoke)
                 }
                 ACTION_MARK_AS_READ -> {
                     val read = intent.getParcelableExtra<Chat>(EXTRA_CHAT) ?: return
-                    repository.updateLastSeen(read.team)
-
-                    repository.fetchUnreadChats().count().subscribe { count ->
-                        notifier.clearNotifications(read)
-                        if (count < 1) notifier.clearNotifications(Chat.empty())
-                    }
+                    repository.updateLastSeen(read.team).subscribe({ }, ErrorHandler.EMPTY::invoke)
+                    notifier.markAsRead(read)
                 }
             }
         }
@@ -242,7 +280,8 @@ class ChatNotifier internal constructor() : Notifier<Chat>() {
         private const val ACTION_REPLY = "REPLY"
         private const val EXTRA_FEED_ITEM = "FEED_ITEM"
         private const val EXTRA_CHAT = "CHAT"
+        private const val MAX_LINES = 6
+        private const val POST_WINDOW_MILLIS = 1500L
 
-        private const val MAX_LINES = 5
     }
 }
@@ -27,11 +27,16 @@ package com.mainstreetcode.teammate.notifications
 import android.os.Parcel
 import android.os.Parcelable
 import com.google.firebase.messaging.RemoteMessage
-import com.google.gson.JsonDeserializationContext
-import com.google.gson.JsonDeserializer
+import com.google.gson.Gson
 import com.google.gson.JsonElement
 import com.google.gson.JsonObject
 import com.google.gson.JsonParseException
+import com.google.gson.TypeAdapter
+import com.google.gson.TypeAdapterFactory
+import com.google.gson.internal.bind.TypeAdapters
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
 import com.mainstreetcode.teammate.model.Chat
 import com.mainstreetcode.teammate.model.Competitor
 import com.mainstreetcode.teammate.model.Event
@@ -46,9 +51,12 @@ import com.mainstreetcode.teammate.model.Tournament
 import com.mainstreetcode.teammate.rest.TeammateService
 import com.mainstreetcode.teammate.util.FunctionalDiff
 import com.mainstreetcode.teammate.util.Logger
-import com.mainstreetcode.teammate.util.asStringOrEmpty
+import com.mainstreetcode.teammate.util.isNextPrimitive
+import com.mainstreetcode.teammate.util.nextStringOrEmpty
+import com.mainstreetcode.teammate.util.readObject
+import com.mainstreetcode.teammate.util.skipNull
 import com.tunjid.androidx.recyclerview.diff.Differentiable
-import java.lang.reflect.Type
+import java.io.IOException
 
 /**
  * Notifications from a user's feed
@@ -117,30 +125,79 @@ class FeedItem<T : Model<T>> : Parcelable, Differentiable, Comparable<FeedItem<*
         dest.writeValue(model)
     }
 
-    class GsonAdapter<T : Model<T>> : JsonDeserializer<FeedItem<T>> {
+    /**
+     * Streams feed items. The model is streamed when its type has already been read, otherwise
+     * only the model's subtree is buffered until the type is known.
+     */
+    class GsonAdapter : TypeAdapterFactory {
 
-        @Throws(JsonParseException::class)
-        override fun deserialize(json: JsonElement, typeOfT: Type, context: JsonDeserializationContext): FeedItem<T> {
-            val feedItemJson = json.asJsonObject
-
-            val action = feedItemJson.asStringOrEmpty(ACTION_KEY)
-            val type = feedItemJson.asStringOrEmpty(TYPE_KEY)
-            val title = feedItemJson.asStringOrEmpty(TITLE_KEY)
-            val body = feedItemJson.asStringOrEmpty(BODY_KEY)
-            val itemClass = forType<T>(type)
+        @Suppress("UNCHECKED_CAST")
+        override fun <R> create(gson: Gson, type: TypeToken<R>): TypeAdapter<R>? =
+                if (type.rawType == FeedItem::class.java) Adapter<ModelStub>(gson) as TypeAdapter<R>
+                else null
+
+        private class Adapter<T : Model<T>>(private val gson: Gson) : TypeAdapter<FeedItem<T>>() {
+
+            @Throws(IOException::class)
+            override fun write(writer: JsonWriter, value: FeedItem<T>?) {
+                if (value == null) {
+                    writer.nullValue()
+                    return
+                }
+
+                writer.beginObject()
+                writer.name(ACTION_KEY).value(value.action)
+                writer.name(TYPE_KEY).value(value.type)
+                writer.name(TITLE_KEY).value(value.title)
+                writer.name(BODY_KEY).value(value.body)
+                writer.name(MODEL_KEY)
+                gson.getAdapter(value.itemClass).write(writer, value.model)
+                writer.endObject()
+            }
 
-            var modelElement = feedItemJson.get(MODEL_KEY)
+            @Throws(IOException::class)
+            override fun read(reader: JsonReader): FeedItem<T>? {
+                if (reader.skipNull()) return null
+
+                var action = ""
+                var type = ""
+                var title = ""
+                var body = ""
+                var model: T? = null
+                var buffered: JsonElement? = null
+
+                reader.readObject { name ->
+                    when (name) {
+                        ACTION_KEY -> action = reader.nextStringOrEmpty()
+                        TYPE_KEY -> type = reader.nextStringOrEmpty()
+                        TITLE_KEY -> title = reader.nextStringOrEmpty()
+                        BODY_KEY -> body = reader.nextStringOrEmpty()
+                        MODEL_KEY ->
+                            if (type.isNotEmpty()) model = readModel(reader, forType<T>(type))
+                            else buffered = TypeAdapters.JSON_ELEMENT.read(reader)
+                        else -> reader.skipValue()
+                    }
+                }
+
+                val itemClass = forType<T>(type)
+                val element = buffered
+
+                if (element != null) model = readModel(element, itemClass)
+
+                return FeedItem(action, title, body, type, model
+                        ?: throw JsonParseException("Feed item has no model"), itemClass)
+            }
 
-            if (modelElement.isJsonPrimitive) {
-                val modelId = modelElement.asString
-                val modelBody = JsonObject()
+            private fun readModel(reader: JsonReader, itemClass: Class<T>): T? =
+                    if (reader.isNextPrimitive()) gson.getAdapter(itemClass).fromJsonTree(stub(reader.nextString()))
+                    else gson.getAdapter(itemClass).read(reader)
 
-                modelBody.addProperty(MODEL_ID_KEY, modelId)
-                modelElement = modelBody
-            }
+            private fun readModel(element: JsonElement, itemClass: Class<T>): T? =
+                    gson.getAdapter(itemClass).fromJsonTree(
+                            if (element.isJsonPrimitive) stub(element.asString) else element
+                    )
 
-            val model = context.deserialize<T>(modelElement, itemClass)
-            return FeedItem(action, title, body, type, model, itemClass)
+            private fun stub(modelId: String) = JsonObject().apply { addProperty(MODEL_ID_KEY, modelId) }
         }
 
         companion object {
@@ -31,21 +31,17 @@ import android.app.NotificationChannel
 import android.app.NotificationManager
 import android.os.Build
 
-import com.mainstreetcode.teammate.App
-import com.mainstreetcode.teammate.MediaTransferIntentService
 import com.mainstreetcode.teammate.R
+import com.mainstreetcode.teammate.UploadScheduler
 import com.mainstreetcode.teammate.model.Media
 import com.mainstreetcode.teammate.repository.ModelRepo
 import com.mainstreetcode.teammate.repository.RepoProvider
-import com.mainstreetcode.teammate.rest.ProgressRequestBody
 import com.mainstreetcode.teammate.util.ErrorHandler
-import com.mainstreetcode.teammate.viewmodel.events.Alert
 
 import java.util.concurrent.TimeUnit
 import androidx.core.app.NotificationCompat
 import io.reactivex.Completable
-import io.reactivex.Single
-import okhttp3.RequestBody
+import io.reactivex.Flowable
 
 import android.content.Context.NOTIFICATION_SERVICE
 import io.reactivex.android.schedulers.AndroidSchedulers.mainThread
@@ -63,15 +59,16 @@ class MediaNotifier internal constructor() : Notifier<Media>() {
         @TargetApi(Build.VERSION_CODES.O)
         get() = arrayOf(buildNotificationChannel(FeedItem.MEDIA, R.string.media, R.string.media_notifier_description, NotificationManager.IMPORTANCE_MIN), buildNotificationChannel(MEDIA_UPLOADS, R.string.media_upload_channel_name, R.string.media_upload_channel_description, NotificationManager.IMPORTANCE_LOW))
 
+    /**
+     * Shows the progress of a batch of uploads, and a summary once [progress] completes.
+     */
     @SuppressLint("CheckResult")
-    fun notifyOfUploads(mediaSingle: Single<Media>, requestBody: RequestBody): Single<Media> {
-        if (requestBody !is ProgressRequestBody) return mediaSingle
-
-        requestBody.progressFlowable
-                .doFinally(this::onUploadComplete)
-                .subscribe(this::updateProgress, ErrorHandler.EMPTY::invoke)
-
-        return mediaSingle.doOnSuccess { media -> App.instance.pushAlert(Alert.creation(media)) }
+    fun notifyOfUploads(progress: Flowable<UploadScheduler.Progress>) {
+        progress.sample(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS, true)
+                .observeOn(mainThread())
+                .doOnNext(this::updateProgress)
+                .lastElement()
+                .subscribe(this::onUploadComplete, ErrorHandler.EMPTY::invoke)
     }
 
     fun notifyDownloadComplete() {
@@ -79,21 +76,17 @@ class MediaNotifier internal constructor() : Notifier<Media>() {
                 .setContentTitle(app.getString(R.string.download_complete)))
     }
 
-    private fun updateProgress(percentage: Int) {
-        val stats = MediaTransferIntentService.uploadStats
-
+    private fun updateProgress(stats: UploadScheduler.Progress) {
         notifyOfUpload(mediaTransferBuilder()
                 .setContentText(app.getString(R.string.upload_progress_status, stats.numAttempted, stats.numToUpload, stats.numErrors))
                 .setContentTitle(app.getString(R.string.uploading_media))
-                .setProgress(100, percentage, false))
+                .setProgress(100, stats.percentage, false))
     }
 
     @SuppressLint("CheckResult")
-    private fun onUploadComplete() {
-        val stats = MediaTransferIntentService.uploadStats
+    private fun onUploadComplete(stats: UploadScheduler.Progress) {
         if (!stats.isComplete) return
 
-
         Completable.timer(1200, TimeUnit.MILLISECONDS).observeOn(mainThread()).subscribe(
                 {
                     notifyOfUpload(mediaTransferBuilder()
@@ -125,15 +118,16 @@ class MediaNotifier internal constructor() : Notifier<Media>() {
         notifier?.notify(notificationId, builder.build())
     }
 
-    private fun getUploadCompletionContentTitle(stats: MediaTransferIntentService.UploadStats): String =
+    private fun getUploadCompletionContentTitle(stats: UploadScheduler.Progress): String =
             if (stats.isAtMaxStorage) app.getString(R.string.upload_failed) else app.getString(R.string.upload_complete)
 
-    private fun getUploadCompletionContentText(stats: MediaTransferIntentService.UploadStats): String =
+    private fun getUploadCompletionContentText(stats: UploadScheduler.Progress): String =
             if (stats.isAtMaxStorage) stats.maxStorageMessage else app.getString(R.string.upload_complete_status, stats.numErrors)
 
     companion object {
 
         private const val MEDIA_UPLOADS = "media_uploads"
+        private const val PROGRESS_INTERVAL = 500L
         private const val UPLOAD_NOTIFICATION_ID = 1
         private const val DOWNLOAD_NOTIFICATION_ID = 2
     }
@@ -77,7 +77,7 @@ abstract class Notifier<T : Model<T>> {
 
    open fun filterNotifications(item: T) : Boolean= true
 
-    fun clearNotifications(model: T?) {
+    open fun clearNotifications(model: T?) {
         val notifier = app.getSystemService(NOTIFICATION_SERVICE) as? NotificationManager ?: return
 
         when (model) {
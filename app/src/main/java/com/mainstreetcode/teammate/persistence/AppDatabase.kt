@@ -25,6 +25,7 @@
 package com.mainstreetcode.teammate.persistence
 
 import androidx.core.util.Pair
+import androidx.annotation.VisibleForTesting
 import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
@@ -38,15 +39,22 @@ import com.mainstreetcode.teammate.persistence.entity.GameEntity
 import com.mainstreetcode.teammate.persistence.entity.GuestEntity
 import com.mainstreetcode.teammate.persistence.entity.JoinRequestEntity
 import com.mainstreetcode.teammate.persistence.entity.MediaEntity
+import com.mainstreetcode.teammate.persistence.entity.LastSeenEntity
+import com.mainstreetcode.teammate.persistence.entity.OutboxEntity
 import com.mainstreetcode.teammate.persistence.entity.RoleEntity
 import com.mainstreetcode.teammate.persistence.entity.StatEntity
 import com.mainstreetcode.teammate.persistence.entity.TeamEntity
 import com.mainstreetcode.teammate.persistence.entity.TournamentEntity
+import com.mainstreetcode.teammate.persistence.entity.UploadEntity
 import com.mainstreetcode.teammate.persistence.entity.UserEntity
 import com.mainstreetcode.teammate.persistence.migrations.Migration1To2
 import com.mainstreetcode.teammate.persistence.migrations.Migration2To3
 import com.mainstreetcode.teammate.persistence.migrations.Migration3To4
 import com.mainstreetcode.teammate.persistence.migrations.Migration4To5
+import com.mainstreetcode.teammate.persistence.migrations.Migration5To6
+import com.mainstreetcode.teammate.persistence.migrations.Migration6To7
+import com.mainstreetcode.teammate.persistence.migrations.Migration7To8
+import com.mainstreetcode.teammate.persistence.migrations.Migration8To9
 import com.mainstreetcode.teammate.persistence.typeconverters.CharSequenceConverter
 import com.mainstreetcode.teammate.persistence.typeconverters.CompetitiveTypeConverter
 import com.mainstreetcode.teammate.persistence.typeconverters.CompetitorTypeConverter
@@ -64,7 +72,9 @@ import com.mainstreetcode.teammate.persistence.typeconverters.TournamentTypeConv
 import com.mainstreetcode.teammate.persistence.typeconverters.TournamentTypeTypeConverter
 import com.mainstreetcode.teammate.persistence.typeconverters.UserTypeConverter
 import com.mainstreetcode.teammate.persistence.typeconverters.VisibilityTypeConverter
+import com.mainstreetcode.teammate.util.IdentityMap
 import com.mainstreetcode.teammate.util.Logger
+import io.reactivex.Completable
 import io.reactivex.Single
 
 /**
@@ -83,9 +93,12 @@ import io.reactivex.Single
     GameEntity::class,
     StatEntity::class,
     ChatEntity::class,
-    MediaEntity::class
+    MediaEntity::class,
+    UploadEntity::class,
+    OutboxEntity::class,
+    LastSeenEntity::class
 ],
-        version = 5)
+        version = 9)
 @TypeConverters(
         LatLngTypeConverter::class,
         DateTypeConverter::class,
@@ -131,6 +144,12 @@ abstract class AppDatabase : RoomDatabase() {
 
     abstract fun joinRequestDao(): JoinRequestDao
 
+    abstract fun uploadDao(): UploadDao
+
+    abstract fun outboxDao(): OutboxDao
+
+    abstract fun lastSeenDao(): LastSeenDao
+
     fun prefsDao(): PrefsDao = PrefsDao()
 
     fun deviceDao(): DeviceDao = DeviceDao()
@@ -139,7 +158,11 @@ abstract class AppDatabase : RoomDatabase() {
 
     fun teamMemberDao(): TeamMemberDao = TeamMemberDao()
 
-    fun clearTables(): Single<List<Pair<String, Int>>> = Single.concat(listOf(
+    // Queued writes are dropped first so they can't bring back rows once the tables are cleared
+    fun clearTables(): Single<List<Pair<String, Int>>> = Completable.fromAction(WriteBehind::discard).andThen(Single.concat(listOf(
+            clearTable(uploadDao()),
+            clearTable(outboxDao()),
+            clearTable(lastSeenDao()),
             clearTable(competitorDao()),
             clearTable(statDao()),
             clearTable(gameDao()),
@@ -154,7 +177,7 @@ abstract class AppDatabase : RoomDatabase() {
             clearTable(userDao()),
             clearTable(deviceDao()),
             clearTable(configDao())
-    )).toList()
+    )).toList()).doOnSuccess { IdentityMap.clear() }
 
     private fun clearTable(entityDao: EntityDao<*>): Single<Pair<String, Int>> {
         val tableName = entityDao.tableName
@@ -173,7 +196,17 @@ abstract class AppDatabase : RoomDatabase() {
         private const val PROD_DB = "database-name"
         private const val DEV_DB = "teammate-dev-db"
 
-        val instance: AppDatabase by lazy {
+        /**
+         * Used in place of the app's database when set, like an in memory one in tests.
+         */
+        @VisibleForTesting
+        @Volatile
+        var override: AppDatabase? = null
+
+        val instance: AppDatabase
+            get() = override ?: default
+
+        private val default: AppDatabase by lazy {
             Room.databaseBuilder(
                     App.instance,
                     AppDatabase::class.java,
@@ -183,6 +216,10 @@ abstract class AppDatabase : RoomDatabase() {
                     .addMigrations(Migration2To3())
                     .addMigrations(Migration3To4())
                     .addMigrations(Migration4To5())
+                    .addMigrations(Migration5To6())
+                    .addMigrations(Migration6To7())
+                    .addMigrations(Migration7To8())
+                    .addMigrations(Migration8To9())
                     .fallbackToDestructiveMigration()
                     .build()
         }
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import com.mainstreetcode.teammate.model.Competitive
+import com.mainstreetcode.teammate.model.Model
+import com.mainstreetcode.teammate.model.enums.MetaData
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.CRC32
+
+/**
+ * Remembers a content hash of the rows last written to a table, so [EntityDao.upsert] only
+ * rewrites rows that changed. Hashes are taken from the values a row stores, as listed by
+ * [EntityDao.storedColumns]; rows that list none are always written. Hashes are kept in memory,
+ * so the first upsert of a row after the process starts always writes it.
+ */
+internal class ChangeTracker private constructor() {
+
+    private val hashes = object : LinkedHashMap<String, Long>(64, 0.75F, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Long>): Boolean =
+                size > MAX_ROWS
+    }
+
+    @Synchronized
+    fun <T> changed(models: List<T>, columnsOf: (T) -> List<Any?>?): List<T> = models.filter { model ->
+        val key = keyOf(model)
+        val columns = columnsOf(model)
+        key == null || columns == null || hashes[key] != hashOf(columns)
+    }
+
+    @Synchronized
+    fun <T> onWritten(models: List<T>, columnsOf: (T) -> List<Any?>?) {
+        for (model in models) {
+            val key = keyOf(model) ?: continue
+            val columns = columnsOf(model)
+            if (columns == null) hashes.remove(key) else hashes[key] = hashOf(columns)
+        }
+    }
+
+    @Synchronized
+    fun clear() = hashes.clear()
+
+    private fun keyOf(model: Any?): String? =
+            if (model is Model<*> && model.id.isNotBlank()) model.id else null
+
+    private fun hashOf(columns: List<Any?>): Long {
+        val bytes = columns.joinToString(separator = SEPARATOR) { storedForm(it).toString() }.toByteArray()
+        val crc = CRC32().apply { update(bytes) }
+        return (crc.value shl 32) xor bytes.contentHashCode().toLong()
+    }
+
+    // Mirrors the type converters, relations are stored by id and enums by code
+    private fun storedForm(value: Any?): Any? = when (value) {
+        is Date -> value.time
+        is Competitive -> value.refType + "," + value.id
+        is Model<*> -> value.id
+        is MetaData -> value.code
+        is Collection<*> -> value.map(::storedForm)
+        is CharSequence -> value.toString()
+        else -> value
+    }
+
+    companion object {
+
+        private const val MAX_ROWS = 2048
+        private const val SEPARATOR = "\u0000"
+
+        private val trackers = ConcurrentHashMap<String, ChangeTracker>()
+
+        fun forTable(tableName: String): ChangeTracker =
+                trackers.getOrPut(tableName) { ChangeTracker() }
+    }
+}
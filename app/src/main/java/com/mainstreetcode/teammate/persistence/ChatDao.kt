@@ -31,6 +31,7 @@ import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import androidx.room.Update
 import com.mainstreetcode.teammate.model.Chat
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.persistence.entity.ChatEntity
 import io.reactivex.Maybe
 import java.util.*
@@ -47,20 +48,25 @@ abstract class ChatDao : EntityDao<ChatEntity>() {
 
     @Query("SELECT * FROM team_chats" +
             " WHERE team_chat_team = :teamId" +
-            " AND team_chat_created < :date" +
-            " ORDER BY team_chat_created DESC" +
+            " AND team_chat_created <= :date" +
+            " AND (team_chat_created < :date OR team_chat_id < :cursorId)" +
+            " ORDER BY team_chat_created DESC, team_chat_id DESC" +
             " LIMIT :limit")
-    abstract fun chatsBefore(teamId: String, date: Date, limit: Int): Maybe<List<Chat>>
+    internal abstract fun chatRowsBefore(teamId: String, date: Date, cursorId: String, limit: Int): Maybe<List<Chat>>
 
-    @Query("SELECT * FROM team_chats" +
+    @Query("SELECT team_chat_created AS date, team_chat_id AS id FROM team_chats" +
             " WHERE team_chat_team = :teamId" +
-            " AND team_chat_created > :date" +
-            " ORDER BY team_chat_created DESC" +
-            " LIMIT 10")
-    abstract fun unreadChats(teamId: String, date: Date): Maybe<List<Chat>>
+            " ORDER BY team_chat_created DESC, team_chat_id DESC" +
+            " LIMIT 1")
+    abstract fun newest(teamId: String): Maybe<PageCursor>
 
     @Query("SELECT * FROM team_chats" + " WHERE :id = team_chat_id")
-    abstract fun get(id: String): Maybe<Chat>
+    internal abstract fun row(id: String): Maybe<Chat>
+
+    fun chatsBefore(teamId: String, cursor: PageCursor, limit: Int): Maybe<List<Chat>> =
+            chatRowsBefore(teamId, cursor.date, cursor.id, limit).resolved()
+
+    fun get(id: String): Maybe<Chat> = row(id).resolved()
 
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<ChatEntity>)
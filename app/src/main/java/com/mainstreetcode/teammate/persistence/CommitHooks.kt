@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import java.util.concurrent.Callable
+
+/**
+ * Runs in memory bookkeeping of database writes, like change hashes and canonical instances,
+ * only once the transaction the writes belong to has committed.
+ */
+internal object CommitHooks {
+
+    private val hooks = ThreadLocal<MutableList<() -> Unit>>()
+
+    /**
+     * Runs [block] in a transaction, joining the current one if this thread is already in one of
+     * ours. The hooks registered by the outermost call run after it commits, and are discarded
+     * if it throws.
+     */
+    fun <R> transaction(block: () -> R): R {
+        if (hooks.get() != null) return block()
+
+        val registered = ArrayList<() -> Unit>()
+        hooks.set(registered)
+
+        val result = try {
+            AppDatabase.instance.runInTransaction(Callable { block() })
+        } finally {
+            hooks.remove()
+        }
+
+        registered.forEach { it.invoke() }
+        return result
+    }
+
+    /**
+     * Runs [hook] once the current transaction commits, or now if there is none. Hooks registered
+     * in a transaction not opened by [transaction] are dropped, as its outcome can't be observed.
+     */
+    fun afterCommit(hook: () -> Unit) {
+        val registered = hooks.get()
+        when {
+            registered != null -> registered.add(hook)
+            !AppDatabase.instance.inTransaction() -> hook.invoke()
+        }
+    }
+}
@@ -51,10 +51,18 @@ abstract class CompetitorDao : EntityDao<CompetitorEntity>() {
             " WHERE :tournamentId = competitor_tournament" +
             " ORDER BY competitor_created DESC" +
             " LIMIT 40")
-    abstract fun getCompetitors(tournamentId: String): Maybe<List<Competitor>>
+    internal abstract fun competitorRows(tournamentId: String): Maybe<List<Competitor>>
 
     @Query("SELECT * FROM competitors" + " WHERE :id = competitor_id")
-    abstract fun get(id: String): Maybe<Competitor>
+    internal abstract fun row(id: String): Maybe<Competitor>
+
+    @Query("SELECT * FROM competitors" + " WHERE competitor_id IN (:ids)")
+    internal abstract fun rowsById(ids: List<String>): List<Competitor>
+
+    fun getCompetitors(tournamentId: String): Maybe<List<Competitor>> =
+            competitorRows(tournamentId).resolved()
+
+    fun get(id: String): Maybe<Competitor> = row(id).resolved()
 
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<CompetitorEntity>)
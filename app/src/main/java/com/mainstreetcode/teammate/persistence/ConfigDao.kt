@@ -45,4 +45,6 @@ class ConfigDao : SharedPreferencesDao<Config>() {
 
     override fun from(serialized: String): Config =
             TeammateService.getGson().fromJson(serialized, Config::class.java)
+
+    override fun copy(item: Config): Config = Config.empty().apply { update(item) }
 }
@@ -43,4 +43,6 @@ class DeviceDao : SharedPreferencesDao<Device>() {
     override fun to(item: Device): String = item.id
 
     override fun from(serialized: String): Device = Device(serialized)
+
+    override fun copy(item: Device): Device = Device.empty().apply { update(item) }
 }
@@ -25,7 +25,7 @@
 package com.mainstreetcode.teammate.persistence
 
 import androidx.room.Delete
-import androidx.room.Transaction
+import com.mainstreetcode.teammate.util.IdentityMap
 
 import io.reactivex.Single
 
@@ -44,15 +44,46 @@ abstract class EntityDao<T> {
     @Delete
     abstract fun delete(models: List<T>)
 
-    @Transaction
+    private val changeTracker by lazy { ChangeTracker.forTable(tableName) }
+
+    /**
+     * Inserts new rows and updates only the existing rows whose content changed since they were
+     * last written. The insert is always attempted, so rows removed by cascades are restored.
+     *
+     * If a [UnitOfWork] is open on the calling thread, the write is deferred to it.
+     */
     open fun upsert(models: List<T>) {
+        if (!UnitOfWork.deferUpsert(this, models)) CommitHooks.transaction { upsertNow(models) }
+    }
+
+    /**
+     * Writes [models] in the current transaction. The change hashes and canonical instances are
+     * only updated once it commits, so a rolled back write is never skipped later.
+     */
+    internal fun upsertNow(models: List<T>) {
         insert(models)
-        update(models)
+
+        val changed = changeTracker.changed(models, ::storedColumns)
+        if (changed.isNotEmpty()) update(changed)
+
+        CommitHooks.afterCommit {
+            changeTracker.onWritten(changed, ::storedColumns)
+            IdentityMap.refresh(models)
+        }
     }
 
+    /**
+     * The values [model] stores in [tableName], compared by [upsert] to skip rewriting rows that
+     * did not change. Null if the row should always be written.
+     */
+    internal open fun storedColumns(model: T): List<Any?>? = (model as? StoredRow)?.storedColumns()
+
     internal open fun deleteAll(): Single<Int> {
         val sql = "DELETE FROM $tableName"
-        return Single.fromCallable { AppDatabase.instance.compileStatement(sql).executeUpdateDelete() }
+        return Single.fromCallable {
+            changeTracker.clear()
+            AppDatabase.instance.compileStatement(sql).executeUpdateDelete()
+        }
     }
 
     companion object {
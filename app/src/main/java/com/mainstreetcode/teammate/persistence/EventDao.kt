@@ -31,6 +31,7 @@ import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import androidx.room.Update
 import com.mainstreetcode.teammate.model.Event
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.persistence.entity.EventEntity
 import io.reactivex.Maybe
 import java.util.*
@@ -47,13 +48,22 @@ abstract class EventDao : EntityDao<EventEntity>() {
 
     @Query("SELECT * FROM events as event" +
             " WHERE :teamId = event_team" +
-            " AND event_start_date < :date" +
-            " ORDER BY event_start_date DESC" +
+            " AND event_start_date <= :date" +
+            " AND (event_start_date < :date OR event_id < :cursorId)" +
+            " ORDER BY event_start_date DESC, event_id DESC" +
             " LIMIT :limit")
-    abstract fun getEvents(teamId: String, date: Date, limit: Int): Maybe<List<Event>>
+    internal abstract fun eventRows(teamId: String, date: Date, cursorId: String, limit: Int): Maybe<List<Event>>
 
     @Query("SELECT * FROM events" + " WHERE :id = event_id")
-    abstract fun get(id: String): Maybe<Event>
+    internal abstract fun row(id: String): Maybe<Event>
+
+    @Query("SELECT * FROM events" + " WHERE event_id IN (:ids)")
+    internal abstract fun rowsById(ids: List<String>): List<Event>
+
+    fun getEvents(teamId: String, cursor: PageCursor, limit: Int): Maybe<List<Event>> =
+            eventRows(teamId, cursor.date, cursor.id, limit).resolved()
+
+    fun get(id: String): Maybe<Event> = row(id).resolved()
 
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<EventEntity>)
@@ -32,6 +32,7 @@ import androidx.room.Query
 import androidx.room.Update
 import com.mainstreetcode.teammate.model.Event
 import com.mainstreetcode.teammate.model.Game
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.persistence.entity.GameEntity
 import io.reactivex.Maybe
 import java.util.*
@@ -46,24 +47,61 @@ abstract class GameDao : EntityDao<GameEntity>() {
     override val tableName: String
         get() = "games"
 
-    @Query("SELECT * FROM games as game" +
-            " WHERE (:teamId = game_host AND game_ref_path = 'user')" +
-            " OR :teamId = game_home_entity" +
-            " OR :teamId = game_away_entity" +
-            " AND game_created < :date" +
-            " ORDER BY game_created DESC" +
+    /**
+     * Games the team hosts, or plays in as the home or away entity, created before the cursor.
+     *
+     * Each branch is its own indexed lookup capped at the limit; later branches exclude rows an
+     * earlier one matched so a game is never returned twice. A single OR'ed WHERE clause can't
+     * be served by one index walk in created order, and sorts every game the team has.
+     */
+    @Query("SELECT * FROM (SELECT * FROM games" +
+            " WHERE :teamId = game_host" +
+            " AND game_ref_path = 'user'" +
+            " AND game_created <= :date" +
+            " AND (game_created < :date OR game_id < :cursorId)" +
+            " ORDER BY game_created DESC, game_id DESC" +
+            " LIMIT :limit)" +
+            " UNION ALL" +
+            " SELECT * FROM (SELECT * FROM games" +
+            " WHERE :teamId = game_home_entity" +
+            " AND NOT (:teamId = game_host AND game_ref_path = 'user')" +
+            " AND game_created <= :date" +
+            " AND (game_created < :date OR game_id < :cursorId)" +
+            " ORDER BY game_created DESC, game_id DESC" +
+            " LIMIT :limit)" +
+            " UNION ALL" +
+            " SELECT * FROM (SELECT * FROM games" +
+            " WHERE :teamId = game_away_entity" +
+            " AND :teamId != game_home_entity" +
+            " AND NOT (:teamId = game_host AND game_ref_path = 'user')" +
+            " AND game_created <= :date" +
+            " AND (game_created < :date OR game_id < :cursorId)" +
+            " ORDER BY game_created DESC, game_id DESC" +
+            " LIMIT :limit)" +
+            " ORDER BY game_created DESC, game_id DESC" +
             " LIMIT :limit")
-    abstract fun getGames(teamId: String, date: Date, limit: Int): Maybe<List<Game>>
+    internal abstract fun gameRows(teamId: String, date: Date, cursorId: String, limit: Int): Maybe<List<Game>>
 
     @Query("SELECT * FROM games as game" +
             " WHERE :tournamentId = game_tournament" +
             " AND game_round = :round" +
             " ORDER BY game_created DESC" +
             " LIMIT :limit")
-    abstract fun getGames(tournamentId: String, round: Int, limit: Int): Maybe<List<Game>>
+    internal abstract fun gameRows(tournamentId: String, round: Int, limit: Int): Maybe<List<Game>>
 
     @Query("SELECT * FROM games" + " WHERE :id = game_id")
-    abstract fun get(id: String): Maybe<Game>
+    internal abstract fun row(id: String): Maybe<Game>
+
+    @Query("SELECT * FROM games" + " WHERE game_id IN (:ids)")
+    internal abstract fun rowsById(ids: List<String>): List<Game>
+
+    fun getGames(teamId: String, cursor: PageCursor, limit: Int): Maybe<List<Game>> =
+            gameRows(teamId, cursor.date, cursor.id, limit).resolved()
+
+    fun getGames(tournamentId: String, round: Int, limit: Int): Maybe<List<Game>> =
+            gameRows(tournamentId, round, limit).resolved()
+
+    fun get(id: String): Maybe<Game> = row(id).resolved()
 
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<GameEntity>)
@@ -32,6 +32,7 @@ import androidx.room.Query
 import androidx.room.Update
 
 import com.mainstreetcode.teammate.model.Guest
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.persistence.entity.GuestEntity
 
 import java.util.Date
@@ -45,7 +46,7 @@ abstract class GuestDao : EntityDao<GuestEntity>() {
         get() = "guests"
 
     @Query("SELECT * FROM guests" + " WHERE :id = guest_id")
-    abstract fun get(id: String): Maybe<Guest>
+    internal abstract fun row(id: String): Maybe<Guest>
 
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<GuestEntity>)
@@ -68,10 +69,11 @@ abstract class GuestDao : EntityDao<GuestEntity>() {
 
     @Query("SELECT * FROM guests" +
             " WHERE :eventId = guest_event" +
-            " AND guest_created < :date" +
-            " ORDER BY guest_created DESC" +
+            " AND guest_created <= :date" +
+            " AND (guest_created < :date OR guest_id < :cursorId)" +
+            " ORDER BY guest_created DESC, guest_id DESC" +
             " LIMIT :limit")
-    abstract fun getGuests(eventId: String, date: Date, limit: Int): Maybe<List<Guest>>
+    internal abstract fun guestRows(eventId: String, date: Date, cursorId: String, limit: Int): Maybe<List<Guest>>
 
     @Query("SELECT * FROM guests" +
             " WHERE :userId = guest_user" +
@@ -79,5 +81,13 @@ abstract class GuestDao : EntityDao<GuestEntity>() {
             " AND guest_attending = 1" +
             " ORDER BY guest_created DESC" +
             " LIMIT 40")
-    abstract fun getRsvpList(userId: String, date: Date): Maybe<List<Guest>>
+    internal abstract fun rsvpRows(userId: String, date: Date): Maybe<List<Guest>>
+
+    fun get(id: String): Maybe<Guest> = row(id).resolved()
+
+    fun getGuests(eventId: String, cursor: PageCursor, limit: Int): Maybe<List<Guest>> =
+            guestRows(eventId, cursor.date, cursor.id, limit).resolved()
+
+    fun getRsvpList(userId: String, date: Date): Maybe<List<Guest>> =
+            rsvpRows(userId, date).resolved()
 }
@@ -33,6 +33,7 @@ import androidx.room.Update
 import android.text.TextUtils
 
 import com.mainstreetcode.teammate.model.JoinRequest
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.persistence.entity.JoinRequestEntity
 import com.mainstreetcode.teammate.util.Logger
 
@@ -53,7 +54,7 @@ abstract class JoinRequestDao : EntityDao<JoinRequestEntity>() {
         get() = "join_requests"
 
     @Query("SELECT * FROM join_requests" + " WHERE :id = join_request_id")
-    abstract fun get(id: String): Maybe<JoinRequest>
+    internal abstract fun row(id: String): Maybe<JoinRequest>
 
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<JoinRequestEntity>)
@@ -83,10 +84,16 @@ abstract class JoinRequestDao : EntityDao<JoinRequestEntity>() {
 
     @Query("SELECT * FROM join_requests as request" +
             " WHERE :teamId = join_request_team" +
-            " AND join_request_created < :date" +
-            " ORDER BY join_request_created DESC" +
+            " AND join_request_created <= :date" +
+            " AND (join_request_created < :date OR join_request_id < :cursorId)" +
+            " ORDER BY join_request_created DESC, join_request_id DESC" +
             " LIMIT :limit")
-    abstract fun getRequests(teamId: String, date: Date, limit: Int): Maybe<List<JoinRequest>>
+    internal abstract fun requestRows(teamId: String, date: Date, cursorId: String, limit: Int): Maybe<List<JoinRequest>>
+
+    fun get(id: String): Maybe<JoinRequest> = row(id).resolved()
+
+    fun getRequests(teamId: String, cursor: PageCursor, limit: Int): Maybe<List<JoinRequest>> =
+            requestRows(teamId, cursor.date, cursor.id, limit).resolved()
 
     companion object {
 
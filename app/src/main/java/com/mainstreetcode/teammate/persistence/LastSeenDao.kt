@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import androidx.room.Dao
+import androidx.room.Delete
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Update
+import com.mainstreetcode.teammate.persistence.entity.LastSeenEntity
+import com.mainstreetcode.teammate.persistence.entity.UnreadChats
+import io.reactivex.Flowable
+import java.util.*
+
+/**
+ * DAO for [LastSeenEntity]
+ */
+
+@Dao
+abstract class LastSeenDao : EntityDao<LastSeenEntity>() {
+
+    override val tableName: String
+        get() = "team_last_seen"
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract override fun insert(models: List<LastSeenEntity>)
+
+    @Update(onConflict = OnConflictStrategy.IGNORE)
+    abstract override fun update(models: List<LastSeenEntity>)
+
+    @Delete
+    abstract override fun delete(models: List<LastSeenEntity>)
+
+    // SQLite takes the bare columns of each group from the row holding its MAX(), the latest chat
+    @Query("SELECT team_chat_id, team_chat_kind, team_chat_content, team_chat_user, team_chat_team," +
+            " MAX(team_chat_created) AS team_chat_created, COUNT(*) AS unread_count" +
+            " FROM team_chats" +
+            " INNER JOIN roles ON role_team = team_chat_team AND role_user = :userId" +
+            " LEFT JOIN team_last_seen ON last_seen_team = team_chat_team" +
+            " WHERE team_chat_created > COALESCE(last_seen_time, :unseenSince)" +
+            " GROUP BY team_chat_team" +
+            " ORDER BY team_chat_created DESC")
+    internal abstract fun unreadChatRows(userId: String, unseenSince: Date): Flowable<List<UnreadChats>>
+
+    /**
+     * Unread chats in each of the user's teams, updated as chats arrive and teams are seen. Teams
+     * never seen count chats created after [unseenSince].
+     */
+    fun unreadChats(userId: String, unseenSince: Date): Flowable<List<UnreadChats>> =
+            unreadChatRows(userId, unseenSince).resolved()
+}
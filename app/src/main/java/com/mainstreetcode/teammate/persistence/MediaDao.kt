@@ -31,6 +31,7 @@ import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import androidx.room.Update
 import com.mainstreetcode.teammate.model.Media
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.persistence.entity.MediaEntity
@@ -59,14 +60,20 @@ abstract class MediaDao : EntityDao<MediaEntity>() {
     @Query("SELECT *" +
             " FROM team_media" +
             " WHERE :id = media_id")
-    abstract fun get(id: String): Maybe<Media>
+    internal abstract fun row(id: String): Maybe<Media>
 
     @Query("SELECT *" +
             " FROM team_media" +
             " WHERE :team = media_team" +
-            " AND media_created < :date" +
+            " AND media_created <= :date" +
+            " AND (media_created < :date OR media_id < :cursorId)" +
             " AND media_flagged = 0" +
-            " ORDER BY media_created DESC" +
+            " ORDER BY media_created DESC, media_id DESC" +
             " LIMIT :limit")
-    abstract fun getTeamMedia(team: Team, date: Date, limit: Int): Maybe<List<Media>>
+    internal abstract fun teamMediaRows(team: Team, date: Date, cursorId: String, limit: Int): Maybe<List<Media>>
+
+    fun get(id: String): Maybe<Media> = row(id).resolved()
+
+    fun getTeamMedia(team: Team, cursor: PageCursor, limit: Int): Maybe<List<Media>> =
+            teamMediaRows(team, cursor.date, cursor.id, limit).resolved()
 }
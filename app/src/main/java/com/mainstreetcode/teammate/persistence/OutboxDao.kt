@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import androidx.room.Dao
+import androidx.room.Delete
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Update
+import com.mainstreetcode.teammate.persistence.entity.OutboxEntity
+
+/**
+ * DAO for [OutboxEntity]
+ */
+
+@Dao
+abstract class OutboxDao : EntityDao<OutboxEntity>() {
+
+    override val tableName: String
+        get() = "chat_outbox"
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract override fun insert(models: List<OutboxEntity>)
+
+    @Update(onConflict = OnConflictStrategy.IGNORE)
+    abstract override fun update(models: List<OutboxEntity>)
+
+    @Delete
+    abstract override fun delete(models: List<OutboxEntity>)
+
+    @Query("SELECT *" +
+            " FROM chat_outbox" +
+            " ORDER BY outbox_created ASC, outbox_id ASC")
+    abstract fun pending(): List<OutboxEntity>
+}
@@ -46,4 +46,6 @@ class PrefsDao : SharedPreferencesDao<Prefs>() {
 
     override fun from(serialized: String): Prefs =
             TeammateService.getGson().fromJson(serialized, Prefs::class.java)
+
+    override fun copy(item: Prefs): Prefs = Prefs.empty().apply { update(item) }
 }
@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import com.mainstreetcode.teammate.model.Competitor
+import com.mainstreetcode.teammate.model.Event
+import com.mainstreetcode.teammate.model.Game
+import com.mainstreetcode.teammate.model.Model
+import com.mainstreetcode.teammate.model.Team
+import com.mainstreetcode.teammate.model.Tournament
+import com.mainstreetcode.teammate.model.User
+import com.mainstreetcode.teammate.util.IdentityMap
+import io.reactivex.Flowable
+import io.reactivex.Maybe
+
+/**
+ * Resolves the foreign keys of rows read from the database in batches.
+ *
+ * Type converters hand out empty stubs for foreign ids and register them with the reading thread.
+ * Once a query completes, [resolve] loads each referenced type with a single IN (...) query per
+ * level of nesting, and updates the stubs in place. Stubs are shared through the [IdentityMap],
+ * so complete models already in memory are reused without touching the database.
+ */
+object RelationResolver {
+
+    // SQLite caps bound arguments at 999 per statement
+    private const val MAX_QUERY_ARGS = 900
+
+    private val relations: Map<Class<*>, Relation<*>> = listOf(
+            Relation(User::class.java, { User.empty() }) { AppDatabase.instance.userDao().rowsById(it) },
+            Relation(Team::class.java, { Team.empty() }) { AppDatabase.instance.teamDao().rowsById(it) },
+            Relation(Event::class.java, { Event.empty() }) { AppDatabase.instance.eventDao().rowsById(it) },
+            Relation(Game::class.java, { Game.empty(Team.empty()) }) { AppDatabase.instance.gameDao().rowsById(it) },
+            Relation(Tournament::class.java, { Tournament.empty(Team.empty()) }) { AppDatabase.instance.tournamentDao().rowsById(it) },
+            Relation(Competitor::class.java, { Competitor.empty() }) { AppDatabase.instance.competitorDao().rowsById(it) }
+    ).associateBy(Relation<*>::type)
+
+    private val pendingStubs = object : ThreadLocal<MutableMap<Class<*>, Pending<*>>>() {
+        override fun initialValue(): MutableMap<Class<*>, Pending<*>> = LinkedHashMap()
+    }
+
+    /**
+     * Returns the canonical model with the specified id, or a placeholder for it to be filled
+     * in by [resolve]
+     */
+    fun <T : Model<T>> stub(type: Class<T>, id: String): T {
+        @Suppress("UNCHECKED_CAST")
+        val relation = relations.getValue(type) as Relation<T>
+        if (id.isBlank()) return relation.emptyFunction.invoke()
+
+        val cached = IdentityMap.find(type, id)
+        if (cached != null && cached.hasMajorFields()) return cached
+
+        @Suppress("UNCHECKED_CAST")
+        val pending = pendingStubs.get()!!.getOrPut(type) { Pending(relation) } as Pending<T>
+        return pending.add(id)
+    }
+
+    /**
+     * Fills in every stub registered on the current thread, and returns the rows they belong to
+     */
+    fun <R> resolve(rows: R): R {
+        val pending = pendingStubs.get()!!
+        try {
+            drain(pending)
+        } finally {
+            pending.clear()
+        }
+        return rows
+    }
+
+    /**
+     * Drops the stubs registered on the current thread by a query that failed, so they are not
+     * resolved with the rows of the next one.
+     */
+    fun discard() = pendingStubs.get()!!.clear()
+
+    private fun drain(pending: MutableMap<Class<*>, Pending<*>>) {
+        if (pending.isEmpty()) return
+
+        val batch = pending.values.toList()
+        pending.clear()
+
+        // Loaded rows may register stubs of their own, resolve those first so nested models are
+        // complete when copied into the stubs of this level.
+        batch.forEach(Pending<*>::load)
+        drain(pending)
+        batch.forEach(Pending<*>::fill)
+    }
+
+    private class Relation<T : Model<T>>(
+            val type: Class<T>,
+            val emptyFunction: () -> T,
+            val loadFunction: (List<String>) -> List<T>
+    )
+
+    private class Pending<T : Model<T>>(private val relation: Relation<T>) {
+
+        private val stubs = HashMap<String, T>()
+        private var loaded: Map<String, T> = emptyMap()
+
+        // An incomplete canonical instance is filled in place, like every other canonical update
+        fun add(id: String): T = stubs.getOrPut(id) {
+            IdentityMap.find(relation.type, id) ?: relation.emptyFunction.invoke()
+        }
+
+        fun load() {
+            loaded = stubs.keys.toList()
+                    .chunked(MAX_QUERY_ARGS)
+                    .flatMap(relation.loadFunction)
+                    .associateBy { it.id }
+        }
+
+        // Stubs without a matching row stay empty, as they did with per row lookups
+        fun fill() = stubs.forEach { (id, stub) ->
+            val row = loaded[id] ?: return@forEach
+            stub.update(row)
+            IdentityMap.canonical(stub)
+        }
+    }
+}
+
+internal fun <T> Maybe<T>.resolved(): Maybe<T> =
+        doOnError { RelationResolver.discard() }.map { RelationResolver.resolve(it) }
+
+internal fun <T> Flowable<T>.resolved(): Flowable<T> =
+        doOnError { RelationResolver.discard() }.map { RelationResolver.resolve(it) }
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import android.content.Context
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.mainstreetcode.teammate.App
+import com.mainstreetcode.teammate.BuildConfig.DEV
+import com.mainstreetcode.teammate.services.VacuumJobService
+import com.mainstreetcode.teammate.util.Logger
+import io.reactivex.Maybe
+import io.reactivex.Single
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Prunes the tables that grow with use according to their [policies][Policy], then checkpoints
+ * the WAL and hands the freed pages back to the file system. Databases created before incremental
+ * auto vacuum was enabled are converted by [VacuumJobService] while the device is idle.
+ *
+ * Rows are deleted in batches of [BATCH_SIZE], each in its own statement, so writers queued
+ * behind a run are only held up briefly.
+ */
+object Retention {
+
+    private const val TAG = "Retention"
+    private const val PREFS = "retention"
+    private const val LAST_RUN = "last_run"
+    private const val LAST_PRUNED = "last_pruned"
+    private const val LAST_SIZE = "last_size"
+
+    private const val BATCH_SIZE = 500
+    private const val AUTO_VACUUM_INCREMENTAL = 2
+
+    private val RUN_INTERVAL_MS = TimeUnit.DAYS.toMillis(1)
+
+    private val policies = listOf(
+            Policy.KeepNewerThan("stats", "stat_created", TimeUnit.DAYS.toMillis(180)),
+            Policy.KeepNewerThan("games", "game_created", TimeUnit.DAYS.toMillis(365)),
+            Policy.KeepLatest("team_chats", "team_chat_team", "team_chat_created", "team_chat_id", 1000),
+            Policy.KeepLatest("team_media", "media_team", "media_created", "media_id", 500)
+    )
+
+    private val preferences
+        get() = App.instance.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+
+    /**
+     * Rows pruned by the last run.
+     */
+    val lastRowsPruned: Long
+        get() = preferences.getLong(LAST_PRUNED, 0)
+
+    /**
+     * Size in bytes of the database and its WAL after the last run.
+     */
+    val lastDatabaseSize: Long
+        get() = preferences.getLong(LAST_SIZE, 0)
+
+    /**
+     * Prunes the database if it has not been in the last day.
+     */
+    fun pruneIfDue(): Maybe<Report> = Maybe.defer {
+        val lastRun = preferences.getLong(LAST_RUN, 0)
+        if (System.currentTimeMillis() - lastRun < RUN_INTERVAL_MS) Maybe.empty()
+        else prune().toMaybe()
+    }
+
+    fun prune(): Single<Report> = Single.fromCallable {
+        val database = AppDatabase.instance.openHelper.writableDatabase
+        val sizeBefore = databaseSize()
+
+        // Queued writes would otherwise land rows the policies are about to prune
+        WriteBehind.flush()
+
+        val pruned = policies.associate { it.tableName to it.prune(database) }
+
+        reclaim(database)
+
+        val report = Report(pruned, sizeBefore, databaseSize())
+
+        preferences.edit()
+                .putLong(LAST_RUN, System.currentTimeMillis())
+                .putLong(LAST_PRUNED, report.rowsPruned.toLong())
+                .putLong(LAST_SIZE, report.sizeAfter)
+                .apply()
+
+        if (DEV) Logger.log(TAG, report.toString())
+
+        report
+    }
+
+    private fun reclaim(database: SupportSQLiteDatabase) {
+        try {
+            database.query("PRAGMA wal_checkpoint(TRUNCATE)").use { it.moveToFirst() }
+
+            val autoVacuum = database.query("PRAGMA auto_vacuum").use { if (it.moveToFirst()) it.getInt(0) else 0 }
+
+            if (autoVacuum == AUTO_VACUUM_INCREMENTAL) database.query("PRAGMA incremental_vacuum").use { while (it.moveToNext()) Unit }
+            else VacuumJobService.schedule(App.instance)
+        } catch (e: Exception) {
+            Logger.log(TAG, "Unable to reclaim free pages", e)
+        }
+    }
+
+    /**
+     * Converts the database to incremental auto vacuum. auto_vacuum only takes effect on an
+     * existing database after a full VACUUM, which rewrites the file, so this blocks every other
+     * reader and writer until it completes.
+     */
+    fun enableIncrementalVacuum() {
+        val database = AppDatabase.instance.openHelper.writableDatabase
+
+        val autoVacuum = database.query("PRAGMA auto_vacuum").use { if (it.moveToFirst()) it.getInt(0) else 0 }
+        if (autoVacuum == AUTO_VACUUM_INCREMENTAL) return
+
+        WriteBehind.flush()
+        database.execSQL("PRAGMA auto_vacuum = INCREMENTAL")
+        database.execSQL("VACUUM")
+
+        preferences.edit().putLong(LAST_SIZE, databaseSize()).apply()
+        if (DEV) Logger.log(TAG, "Enabled incremental auto vacuum")
+    }
+
+    private fun databaseSize(): Long {
+        val name = AppDatabase.instance.openHelper.databaseName ?: return 0
+        val file = App.instance.getDatabasePath(name)
+
+        return listOf(file.path, "${file.path}-wal").map { File(it).length() }.sum()
+    }
+
+    private fun deleteInBatches(database: SupportSQLiteDatabase, tableName: String, where: String, vararg args: Any): Int {
+        val sql = "DELETE FROM $tableName WHERE rowid IN" +
+                " (SELECT rowid FROM $tableName WHERE $where LIMIT $BATCH_SIZE)"
+
+        return database.compileStatement(sql).use { statement ->
+            var total = 0
+            do {
+                statement.clearBindings()
+                args.forEachIndexed { index, arg ->
+                    when (arg) {
+                        is Long -> statement.bindLong(index + 1, arg)
+                        else -> statement.bindString(index + 1, arg.toString())
+                    }
+                }
+                val deleted = statement.executeUpdateDelete()
+                total += deleted
+            } while (deleted == BATCH_SIZE)
+            total
+        }
+    }
+
+    data class Report(val pruned: Map<String, Int>, val sizeBefore: Long, val sizeAfter: Long) {
+        val rowsPruned: Int
+            get() = pruned.values.sum()
+    }
+
+    private sealed class Policy(val tableName: String) {
+
+        abstract fun prune(database: SupportSQLiteDatabase): Int
+
+        /**
+         * Keeps rows created in the last [maxAgeMillis].
+         */
+        class KeepNewerThan(
+                tableName: String,
+                private val dateColumn: String,
+                private val maxAgeMillis: Long
+        ) : Policy(tableName) {
+
+            override fun prune(database: SupportSQLiteDatabase): Int =
+                    deleteInBatches(database, tableName, "$dateColumn < ?", System.currentTimeMillis() - maxAgeMillis)
+        }
+
+        /**
+         * Keeps the latest [count] rows of each owner, ordered by date then id like the paged
+         * queries, so a kept page is never left with a gap.
+         */
+        class KeepLatest(
+                tableName: String,
+                private val ownerColumn: String,
+                private val dateColumn: String,
+                private val idColumn: String,
+                private val count: Int
+        ) : Policy(tableName) {
+
+            override fun prune(database: SupportSQLiteDatabase): Int {
+                val owners = database.query("SELECT DISTINCT $ownerColumn FROM $tableName").use { cursor ->
+                    generateSequence { if (cursor.moveToNext()) cursor.getString(0) else null }.toList()
+                }
+
+                return owners.map { owner -> pruneOwner(database, owner) }.sum()
+            }
+
+            private fun pruneOwner(database: SupportSQLiteDatabase, owner: String): Int {
+                val newestPruned = database.query("SELECT $dateColumn, $idColumn FROM $tableName" +
+                        " WHERE $ownerColumn = ?" +
+                        " ORDER BY $dateColumn DESC, $idColumn DESC" +
+                        " LIMIT 1 OFFSET $count", arrayOf(owner)).use { cursor ->
+                    if (cursor.moveToFirst()) cursor.getLong(0) to cursor.getString(1) else null
+                } ?: return 0
+
+                val (date, id) = newestPruned
+
+                return deleteInBatches(database, tableName,
+                        "$ownerColumn = ? AND $dateColumn <= ? AND ($dateColumn < ? OR $idColumn <= ?)",
+                        owner, date, date, id)
+            }
+        }
+    }
+}
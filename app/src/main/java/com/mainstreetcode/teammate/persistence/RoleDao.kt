@@ -31,6 +31,7 @@ import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import androidx.room.Update
 
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Role
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.persistence.entity.RoleEntity
@@ -53,7 +54,7 @@ abstract class RoleDao : EntityDao<RoleEntity>() {
         get() = "roles"
 
     @Query("SELECT * FROM roles" + " WHERE :id = role_id")
-    abstract fun get(id: String): Maybe<Role>
+    internal abstract fun row(id: String): Maybe<Role>
 
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<RoleEntity>)
@@ -68,12 +69,12 @@ abstract class RoleDao : EntityDao<RoleEntity>() {
             " FROM roles" +
             " WHERE :teamId = role_team" +
             " AND :userId = role_user")
-    abstract fun getRoleInTeam(userId: String, teamId: String): Maybe<Role>
+    internal abstract fun roleInTeamRow(userId: String, teamId: String): Maybe<Role>
 
     @Query("SELECT *" +
             " FROM roles" +
             " WHERE :userId = role_user")
-    abstract fun userRoles(userId: String): Maybe<List<Role>>
+    internal abstract fun userRoleRows(userId: String): Maybe<List<Role>>
 
     @Query("DELETE FROM roles WHERE role_team = :teamId")
     abstract fun deleteByTeam(teamId: String)
@@ -83,8 +84,19 @@ abstract class RoleDao : EntityDao<RoleEntity>() {
 
     @Query("SELECT * FROM roles as role" +
             " WHERE :teamId = role_team" +
-            " AND role_created < :date" +
-            " ORDER BY role_created DESC" +
+            " AND role_created <= :date" +
+            " AND (role_created < :date OR role_id < :cursorId)" +
+            " ORDER BY role_created DESC, role_id DESC" +
             " LIMIT :limit")
-    abstract fun getRoles(teamId: String, date: Date, limit: Int): Maybe<List<Role>>
+    internal abstract fun roleRows(teamId: String, date: Date, cursorId: String, limit: Int): Maybe<List<Role>>
+
+    fun get(id: String): Maybe<Role> = row(id).resolved()
+
+    fun getRoleInTeam(userId: String, teamId: String): Maybe<Role> =
+            roleInTeamRow(userId, teamId).resolved()
+
+    fun userRoles(userId: String): Maybe<List<Role>> = userRoleRows(userId).resolved()
+
+    fun getRoles(teamId: String, cursor: PageCursor, limit: Int): Maybe<List<Role>> =
+            roleRows(teamId, cursor.date, cursor.id, limit).resolved()
 }
@@ -30,6 +30,7 @@ import androidx.room.Dao
 import com.mainstreetcode.teammate.App
 import com.mainstreetcode.teammate.model.Device
 import io.reactivex.Single
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * DAO for [Device]
@@ -43,24 +44,41 @@ abstract class SharedPreferencesDao<T> : EntityDao<T>() {
 
     internal abstract val empty: T
 
+    /**
+     * A copy of the stored model, free to be changed by the caller.
+     */
     val current: T
+        get() = copy(snapshot)
+
+    /**
+     * The stored model, deserialized once and shared until the next write to this preference.
+     * It is read from any thread, so it must never be changed; use [current] for that.
+     */
+    internal val snapshot: T
         get() {
-            val preferences = preferences
-            val serialized = preferences.getString(KEY, "")
+            val snapshot = snapshots.getOrPut(tableName) { Snapshot() }
 
-            return if (serialized.isNullOrBlank()) empty else from(serialized)
+            @Suppress("UNCHECKED_CAST")
+            return snapshot.get {
+                val serialized = preferences.getString(KEY, "")
+                if (serialized.isNullOrBlank()) empty else from(serialized)
+            } as T
         }
 
     private val preferences: SharedPreferences
         get() = App.instance.getSharedPreferences(tableName, Context.MODE_PRIVATE)
 
-    fun deleteCurrent() = preferences.edit().remove(KEY).apply()
+    fun deleteCurrent() {
+        preferences.edit().remove(KEY).apply()
+        invalidate()
+    }
 
     override fun insert(models: List<T>) {
         if (models.isEmpty() || models.size > 1) return
 
         val device = models[0]
         preferences.edit().putString(KEY, to(device)).apply()
+        invalidate()
     }
 
     override fun delete(model: T) = deleteCurrent()
@@ -80,8 +98,42 @@ abstract class SharedPreferencesDao<T> : EntityDao<T>() {
 
     internal abstract fun from(serialized: String): T
 
+    internal open fun copy(item: T): T = from(to(item))
+
+    override fun storedColumns(model: T): List<Any?>? = listOf(to(model))
+
+    private fun invalidate() = snapshots[tableName]?.invalidate()
+
+    /**
+     * A deserialized value tagged with the write version it was read at. A read that races a
+     * write is returned to its caller but not kept, so a stale value never outlives the write.
+     */
+    private class Snapshot {
+
+        private var version = 0
+        private var cached: Pair<Int, Any?>? = null
+
+        fun get(read: () -> Any?): Any? {
+            val (readVersion, existing) = synchronized(this) { version to cached }
+            if (existing != null && existing.first == readVersion) return existing.second
+
+            val value = read()
+            synchronized(this) { if (readVersion == version) cached = readVersion to value }
+            return value
+        }
+
+        @Synchronized
+        fun invalidate() {
+            version++
+            cached = null
+        }
+    }
+
     companion object {
 
         private const val KEY = "SharedPreferencesDao"
+
+        // Daos are created on demand, snapshots are kept per preference file instead
+        private val snapshots = ConcurrentHashMap<String, Snapshot>()
     }
 }
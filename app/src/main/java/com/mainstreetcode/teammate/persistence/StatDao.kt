@@ -32,6 +32,7 @@ import androidx.room.Query
 import androidx.room.Update
 
 import com.mainstreetcode.teammate.model.Event
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Stat
 import com.mainstreetcode.teammate.persistence.entity.StatEntity
 
@@ -51,13 +52,19 @@ abstract class StatDao : EntityDao<StatEntity>() {
 
     @Query("SELECT * FROM stats as stat" +
             " WHERE :game_id = stat_game" +
-            " AND stat_created < :date" +
-            " ORDER BY stat_created DESC" +
+            " AND stat_created <= :date" +
+            " AND (stat_created < :date OR stat_id < :cursorId)" +
+            " ORDER BY stat_created DESC, stat_id DESC" +
             " LIMIT :limit")
-    abstract fun getStats(game_id: String, date: Date, limit: Int): Maybe<List<Stat>>
+    internal abstract fun statRows(game_id: String, date: Date, cursorId: String, limit: Int): Maybe<List<Stat>>
 
     @Query("SELECT * FROM stats" + " WHERE :id = stat_id")
-    abstract fun get(id: String): Maybe<Stat>
+    internal abstract fun row(id: String): Maybe<Stat>
+
+    fun getStats(game_id: String, cursor: PageCursor, limit: Int): Maybe<List<Stat>> =
+            statRows(game_id, cursor.date, cursor.id, limit).resolved()
+
+    fun get(id: String): Maybe<Stat> = row(id).resolved()
 
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<StatEntity>)
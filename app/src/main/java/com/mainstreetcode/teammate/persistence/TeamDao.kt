@@ -55,6 +55,9 @@ abstract class TeamDao : EntityDao<TeamEntity>() {
     @Query("SELECT * FROM teams" + " WHERE :id = team_id")
     abstract fun get(id: String): Maybe<Team>
 
+    @Query("SELECT * FROM teams" + " WHERE team_id IN (:ids)")
+    internal abstract fun rowsById(ids: List<String>): List<Team>
+
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<TeamEntity>)
 
@@ -51,6 +51,13 @@ class TeamMemberDao : EntityDao<TeamMember>() {
         }
     }
 
+    override fun upsert(models: List<TeamMember>) = daos { roleDao, requestDao ->
+        models.split { roles, requests ->
+            roleDao.upsert(Collections.unmodifiableList<RoleEntity>(roles))
+            requestDao.upsert(Collections.unmodifiableList<JoinRequestEntity>(requests))
+        }
+    }
+
     override fun delete(model: TeamMember) = daos { roleDao, requestDao ->
         val wrapped = model.wrappedModel
         if (wrapped is Role) roleDao.delete(wrapped)
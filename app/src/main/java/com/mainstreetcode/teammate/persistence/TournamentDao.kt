@@ -32,6 +32,7 @@ import androidx.room.Query
 import androidx.room.Update
 
 import com.mainstreetcode.teammate.model.Event
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Tournament
 import com.mainstreetcode.teammate.persistence.entity.TournamentEntity
 
@@ -55,14 +56,23 @@ abstract class TournamentDao : EntityDao<TournamentEntity>() {
             " WHERE (:teamId = game.game_host" +
             " OR :teamId = game.game_home_entity" +
             " OR :teamId = game.game_away_entity)" +
-            " AND tournament.tournament_created < :date" +
+            " AND tournament.tournament_created <= :date" +
+            " AND (tournament.tournament_created < :date OR tournament.tournament_id < :cursorId)" +
             " AND tournament.tournament_id != ''" +
-            " ORDER BY tournament.tournament_created DESC" +
+            " ORDER BY tournament.tournament_created DESC, tournament.tournament_id DESC" +
             " LIMIT :limit")
-    abstract fun getTournaments(teamId: String, date: Date, limit: Int): Maybe<List<Tournament>>
+    internal abstract fun tournamentRows(teamId: String, date: Date, cursorId: String, limit: Int): Maybe<List<Tournament>>
 
     @Query("SELECT * FROM tournaments" + " WHERE :id = tournament_id")
-    abstract fun get(id: String): Maybe<Tournament>
+    internal abstract fun row(id: String): Maybe<Tournament>
+
+    @Query("SELECT * FROM tournaments" + " WHERE tournament_id IN (:ids)")
+    internal abstract fun rowsById(ids: List<String>): List<Tournament>
+
+    fun getTournaments(teamId: String, cursor: PageCursor, limit: Int): Maybe<List<Tournament>> =
+            tournamentRows(teamId, cursor.date, cursor.id, limit).resolved()
+
+    fun get(id: String): Maybe<Tournament> = row(id).resolved()
 
     @Query("DELETE FROM events " +
             " WHERE event_game_id IN (" +
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import com.mainstreetcode.teammate.model.Model
+
+/**
+ * Collects the writes of a model graph being saved, so they can be deduplicated and flushed in a
+ * single transaction, parents before children.
+ *
+ * While a unit is open on a thread, [EntityDao.upsert] and nested inserts are recorded instead of
+ * executed. The outermost [run] flushes them once its block completes, the outermost [runBehind]
+ * hands them to [WriteBehind] instead.
+ */
+class UnitOfWork private constructor() {
+
+    private val writes = HashMap<String, Writes<Any?>>()
+
+    internal val isEmpty: Boolean
+        get() = writes.isEmpty()
+
+    internal fun flush() {
+        if (writes.isEmpty()) return
+        CommitHooks.transaction {
+            writes.values.sortedBy { flushOrder(it.dao.tableName) }.forEach(Writes<Any?>::flush)
+        }
+    }
+
+    /**
+     * Folds the writes of a later unit into this one, as if they had been recorded here.
+     */
+    internal fun absorb(later: UnitOfWork) = later.writes.values.forEach { writesFor(it.dao).absorb(it) }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun writesFor(dao: EntityDao<*>): Writes<Any?> =
+            writes.getOrPut(dao.tableName) { Writes(dao as EntityDao<Any?>) }
+
+    private class Writes<T>(val dao: EntityDao<T>) {
+
+        private val upserts = LinkedHashMap<Any, T>()
+        private val inserts = LinkedHashMap<Any, T>()
+
+        fun upsert(models: List<T>) = models.forEach { model ->
+            val key = keyOf(model)
+            val existing = upserts[key]
+            if (existing == null || existing !is Model<*> || (model as Model<*>).hasMajorFields()) upserts[key] = model
+        }
+
+        fun insert(models: List<T>) = models.forEach { model -> inserts.getOrPut(keyOf(model)) { model } }
+
+        fun absorb(later: Writes<T>) {
+            insert(later.inserts.values.toList())
+            upsert(later.upserts.values.toList())
+        }
+
+        fun flush() {
+            val insertOnly = inserts.filterKeys { !upserts.containsKey(it) }.values.toList()
+            if (insertOnly.isNotEmpty()) dao.insert(insertOnly)
+            if (upserts.isNotEmpty()) dao.upsertNow(upserts.values.toList())
+        }
+
+        private fun keyOf(model: T): Any =
+                if (model is Model<*> && model.id.isNotBlank()) model.id else model as Any
+    }
+
+    companion object {
+
+        // Parent tables first, so foreign keys of children always resolve
+        private val TABLE_ORDER = listOf(
+                "users",
+                "teams",
+                "tournaments",
+                "events",
+                "games",
+                "competitors",
+                "guests",
+                "roles",
+                "join_requests",
+                "stats",
+                "team_chats",
+                "team_media"
+        )
+
+        private val current = ThreadLocal<UnitOfWork>()
+
+        /**
+         * Runs [block] with writes deferred to a unit of work, joining the current one if any.
+         */
+        fun <R> run(block: () -> R): R = open(block, UnitOfWork::flush)
+
+        /**
+         * Same as [run], except the writes are queued on [WriteBehind] and [block]'s result is
+         * returned before they are committed.
+         */
+        fun <R> runBehind(block: () -> R): R = open(block, WriteBehind::enqueue)
+
+        private fun <R> open(block: () -> R, onClose: (UnitOfWork) -> Unit): R {
+            if (current.get() != null) return block()
+
+            val unit = UnitOfWork()
+            current.set(unit)
+
+            val result = try {
+                block()
+            } finally {
+                current.remove()
+            }
+
+            onClose.invoke(unit)
+            return result
+        }
+
+        internal fun <T> deferUpsert(dao: EntityDao<in T>, models: List<T>): Boolean {
+            val unit = current.get() ?: return false
+            unit.writesFor(dao).upsert(models)
+            return true
+        }
+
+        internal fun <T> deferInsert(dao: EntityDao<in T>, models: List<T>): Boolean {
+            val unit = current.get() ?: return false
+            unit.writesFor(dao).insert(models)
+            return true
+        }
+
+        private fun flushOrder(tableName: String): Int =
+                TABLE_ORDER.indexOf(tableName).let { if (it < 0) TABLE_ORDER.size else it }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import androidx.room.Dao
+import androidx.room.Delete
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Update
+import com.mainstreetcode.teammate.persistence.entity.UploadEntity
+import io.reactivex.Maybe
+
+/**
+ * DAO for [UploadEntity]
+ */
+
+@Dao
+abstract class UploadDao : EntityDao<UploadEntity>() {
+
+    override val tableName: String
+        get() = "media_uploads"
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract override fun insert(models: List<UploadEntity>)
+
+    @Update(onConflict = OnConflictStrategy.IGNORE)
+    abstract override fun update(models: List<UploadEntity>)
+
+    @Delete
+    abstract override fun delete(models: List<UploadEntity>)
+
+    @Query("UPDATE media_uploads" +
+            " SET upload_committed = :committed" +
+            " WHERE :id = upload_id")
+    abstract fun commit(id: String, committed: Long)
+
+    @Query("SELECT *" +
+            " FROM media_uploads" +
+            " ORDER BY upload_created ASC, upload_id ASC")
+    internal abstract fun rows(): Maybe<List<UploadEntity>>
+
+    fun pending(): Maybe<List<UploadEntity>> = rows().resolved()
+}
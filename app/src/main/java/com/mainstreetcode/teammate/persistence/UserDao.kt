@@ -52,6 +52,9 @@ abstract class UserDao : EntityDao<UserEntity>() {
     @Query("SELECT * FROM users WHERE :id = user_id")
     abstract fun get(id: String): Maybe<User>
 
+    @Query("SELECT * FROM users WHERE user_id IN (:ids)")
+    internal abstract fun rowsById(ids: List<String>): List<User>
+
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     abstract override fun insert(models: List<UserEntity>)
 
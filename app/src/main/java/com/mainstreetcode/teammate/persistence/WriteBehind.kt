@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence
+
+import com.mainstreetcode.teammate.BuildConfig.DEV
+import com.mainstreetcode.teammate.util.Logger
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Single writer for the [units of work][UnitOfWork] of remote responses, so the responses can be
+ * emitted before they are persisted.
+ *
+ * Units queued within [COALESCE_WINDOW_MS] of the first pending one are merged and committed in
+ * one transaction. A batch that fails to commit stays queued and is retried with a backoff, up to
+ * [MAX_ATTEMPTS] times. Callers blocking on the queue, like [flush], get the failure instead.
+ */
+object WriteBehind {
+
+    private const val TAG = "WriteBehind"
+    private const val COALESCE_WINDOW_MS = 50L
+    private const val RETRY_DELAY_MS = 500L
+    private const val MAX_ATTEMPTS = 3
+
+    private val executor = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, TAG).apply { isDaemon = true }
+    }
+
+    private val pending = ArrayList<UnitOfWork>()
+    private var scheduled: ScheduledFuture<*>? = null
+
+    // Only touched on the writer thread
+    private var failedAttempts = 0
+
+    val unitsCommitted = AtomicLong()
+    val batchesCommitted = AtomicLong()
+    val batchesDropped = AtomicLong()
+
+    internal fun enqueue(unit: UnitOfWork) {
+        if (unit.isEmpty) return
+
+        synchronized(pending) {
+            pending.add(unit)
+            if (scheduled == null) schedule(COALESCE_WINDOW_MS)
+        }
+    }
+
+    /**
+     * Commits every queued write, blocking until they are.
+     *
+     * @throws Exception the failure of the queued writes, which stay queued
+     */
+    fun flush() = await(executor.submit(Callable { drain(true) }))
+
+    /**
+     * Commits every queued write, blocking for at most [timeout].
+     *
+     * @return true if the writes were committed in time
+     * @throws Exception the failure of the queued writes, which stay queued
+     */
+    fun await(timeout: Long, timeUnit: TimeUnit): Boolean = try {
+        await(executor.submit(Callable { drain(true) }), timeout, timeUnit)
+        true
+    } catch (e: TimeoutException) {
+        false
+    }
+
+    /**
+     * Runs [action] on the writer once every write queued before it is committed, so a local
+     * delete is never undone by an older write still in the queue.
+     *
+     * @throws Exception the failure of the queued writes, [action] is not run if they fail
+     */
+    fun <R> afterPending(action: () -> R): R = await(executor.submit(Callable {
+        drain(true)
+        action()
+    }))
+
+    /**
+     * Drops every queued write, once the batch being committed, if any, is done.
+     */
+    fun discard() = await(executor.submit(Callable {
+        synchronized(pending) {
+            scheduled?.cancel(false)
+            scheduled = null
+            pending.clear()
+        }
+        failedAttempts = 0
+    }))
+
+    private fun drain(rethrow: Boolean) {
+        val units = synchronized(pending) {
+            scheduled = null
+            pending.toList().also { pending.clear() }
+        }
+        if (units.isEmpty()) return
+
+        val batch = units.reduce { merged, unit -> merged.apply { absorb(unit) } }
+
+        try {
+            batch.flush()
+            failedAttempts = 0
+            unitsCommitted.addAndGet(units.size.toLong())
+            batchesCommitted.incrementAndGet()
+            if (DEV) Logger.log(TAG, "Committed ${units.size} queued units in one transaction")
+        } catch (e: Exception) {
+            Logger.log(TAG, "Failed to commit ${units.size} queued units", e)
+            onFailed(batch)
+            if (rethrow) throw e
+        }
+    }
+
+    private fun onFailed(batch: UnitOfWork) {
+        if (++failedAttempts >= MAX_ATTEMPTS) {
+            failedAttempts = 0
+            batchesDropped.incrementAndGet()
+            Logger.log(TAG, "Dropped a batch after $MAX_ATTEMPTS failed commits")
+            return
+        }
+
+        // Ahead of anything queued since, so writes keep their order
+        synchronized(pending) {
+            pending.add(0, batch)
+            scheduled?.cancel(false)
+            schedule(RETRY_DELAY_MS shl (failedAttempts - 1))
+        }
+    }
+
+    private fun schedule(delayMillis: Long) {
+        scheduled = executor.schedule(Runnable { drain(false) }, delayMillis, TimeUnit.MILLISECONDS)
+    }
+
+    private fun <R> await(future: Future<R>, timeout: Long = 0, timeUnit: TimeUnit? = null): R = try {
+        if (timeUnit == null) future.get() else future.get(timeout, timeUnit)
+    } catch (e: ExecutionException) {
+        throw e.cause ?: e
+    }
+}
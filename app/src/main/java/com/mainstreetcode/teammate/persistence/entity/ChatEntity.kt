@@ -30,10 +30,12 @@ import android.os.Parcelable
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.ForeignKey.CASCADE
 import androidx.room.PrimaryKey
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
+import com.mainstreetcode.teammate.persistence.StoredRow
 import com.mainstreetcode.teammate.util.processEmoji
 import java.util.*
 
@@ -42,9 +44,12 @@ import java.util.*
         foreignKeys = [
             ForeignKey(entity = UserEntity::class, parentColumns = ["user_id"], childColumns = ["team_chat_user"], onDelete = CASCADE),
             ForeignKey(entity = TeamEntity::class, parentColumns = ["team_id"], childColumns = ["team_chat_team"], onDelete = CASCADE)
+        ],
+        indices = [
+            Index(value = ["team_chat_team", "team_chat_created", "team_chat_id"])
         ]
 )
-open class ChatEntity : Parcelable {
+open class ChatEntity : Parcelable, StoredRow {
 
     @PrimaryKey
     @ColumnInfo(name = "team_chat_id")
@@ -104,6 +109,8 @@ open class ChatEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(id, kind, content, user, hiddenTeam, created)
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
@@ -28,6 +28,7 @@ package com.mainstreetcode.teammate.persistence.entity
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import android.os.Parcel
 import android.os.Parcelable
@@ -37,6 +38,7 @@ import com.mainstreetcode.teammate.model.Competitive
 import com.mainstreetcode.teammate.model.EmptyCompetitor
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
+import com.mainstreetcode.teammate.persistence.StoredRow
 
 import java.util.Date
 
@@ -47,8 +49,11 @@ import androidx.room.ForeignKey.CASCADE
         foreignKeys = [
             ForeignKey(entity = TournamentEntity::class, parentColumns = ["tournament_id"], childColumns = ["competitor_tournament"], onDelete = CASCADE),
             ForeignKey(entity = GameEntity::class, parentColumns = ["game_id"], childColumns = ["competitor_game"], onDelete = CASCADE)
+        ],
+        indices = [
+            Index(value = ["competitor_tournament", "competitor_created"])
         ])
-open class CompetitorEntity : Parcelable {
+open class CompetitorEntity : Parcelable, StoredRow {
 
     @NonNull
     @PrimaryKey
@@ -147,6 +152,10 @@ open class CompetitorEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(
+            id, refPath, tournamentId, gameId, entity, created, seed, isAccepted, isDeclined
+    )
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
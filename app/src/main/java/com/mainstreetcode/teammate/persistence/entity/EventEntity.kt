@@ -30,12 +30,14 @@ import androidx.annotation.NonNull
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.ForeignKey.CASCADE
 import androidx.room.PrimaryKey
 import com.google.android.gms.maps.model.LatLng
 import com.mainstreetcode.teammate.model.Config
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.enums.Visibility
+import com.mainstreetcode.teammate.persistence.StoredRow
 import com.mainstreetcode.teammate.util.asIntOrZero
 import com.mainstreetcode.teammate.util.parsePrettyDate
 import com.mainstreetcode.teammate.util.prettyPrint
@@ -47,9 +49,12 @@ import java.util.*
         tableName = "events",
         foreignKeys = [
             ForeignKey(entity = TeamEntity::class, parentColumns = ["team_id"], childColumns = ["event_team"], onDelete = CASCADE)
+        ],
+        indices = [
+            Index(value = ["event_team", "event_start_date", "event_id"])
         ]
 )
-open class EventEntity : Parcelable {
+open class EventEntity : Parcelable, StoredRow {
 
     //private static final SimpleDateFormat timePrinter = new SimpleDateFormat("HH:mm", Locale.US);
 
@@ -181,6 +186,11 @@ open class EventEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(
+            id, gameId, imageUrl, name, notes, locationName, team, startDate, endDate, location,
+            visibility, spots
+    )
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
@@ -30,6 +30,7 @@ import androidx.annotation.NonNull
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.ForeignKey.CASCADE
 import androidx.room.PrimaryKey
 import com.mainstreetcode.teammate.model.Competitive
@@ -40,6 +41,7 @@ import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.Tournament
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.model.enums.Sport
+import com.mainstreetcode.teammate.persistence.StoredRow
 import com.mainstreetcode.teammate.util.EMPTY_STRING
 import com.mainstreetcode.teammate.util.asIntOrZero
 import java.text.SimpleDateFormat
@@ -50,9 +52,15 @@ import java.util.*
         tableName = "games",
         foreignKeys = [
             ForeignKey(entity = TournamentEntity::class, parentColumns = ["tournament_id"], childColumns = ["game_tournament"], onDelete = CASCADE)
+        ],
+        indices = [
+            Index(value = ["game_tournament", "game_round", "game_created"]),
+            Index(value = ["game_host", "game_created", "game_id"]),
+            Index(value = ["game_home_entity", "game_created", "game_id"]),
+            Index(value = ["game_away_entity", "game_created", "game_id"])
         ]
 )
-open class GameEntity : Parcelable {
+open class GameEntity : Parcelable, StoredRow {
 
     @NonNull
     @PrimaryKey
@@ -247,6 +255,12 @@ open class GameEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(
+            id, name, refPath, score, matchUp, homeEntityId, awayEntityId, winnerEntityId, created,
+            sport, referee, host, event, tournament, home, away, winner, leg, seed, round,
+            homeScore, awayScore, isEnded, canDraw
+    )
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
@@ -28,6 +28,7 @@ package com.mainstreetcode.teammate.persistence.entity
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import android.os.Parcel
 import android.os.Parcelable
@@ -35,6 +36,7 @@ import androidx.annotation.NonNull
 
 import com.mainstreetcode.teammate.model.Event
 import com.mainstreetcode.teammate.model.User
+import com.mainstreetcode.teammate.persistence.StoredRow
 
 import java.util.Date
 
@@ -45,9 +47,13 @@ import androidx.room.ForeignKey.CASCADE
         foreignKeys = [
             ForeignKey(entity = UserEntity::class, parentColumns = ["user_id"], childColumns = ["guest_user"], onDelete = CASCADE),
             ForeignKey(entity = EventEntity::class, parentColumns = ["event_id"], childColumns = ["guest_event"], onDelete = CASCADE)
+        ],
+        indices = [
+            Index(value = ["guest_event", "guest_created", "guest_id"]),
+            Index(value = ["guest_user", "guest_created"])
         ]
 )
-open class GuestEntity : Parcelable {
+open class GuestEntity : Parcelable, StoredRow {
 
     @NonNull
     @PrimaryKey
@@ -101,6 +107,8 @@ open class GuestEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(id, user, event, created, isAttending)
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
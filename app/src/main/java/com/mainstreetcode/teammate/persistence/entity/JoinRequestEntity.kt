@@ -28,6 +28,7 @@ package com.mainstreetcode.teammate.persistence.entity
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import android.os.Parcel
 import android.os.Parcelable
@@ -37,6 +38,7 @@ import com.mainstreetcode.teammate.model.Config
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.model.enums.Position
+import com.mainstreetcode.teammate.persistence.StoredRow
 
 import java.util.Date
 
@@ -47,9 +49,12 @@ import androidx.room.ForeignKey.CASCADE
         foreignKeys = [
             ForeignKey(entity = TeamEntity::class, parentColumns = ["team_id"], childColumns = ["join_request_team"], onDelete = CASCADE),
             ForeignKey(entity = UserEntity::class, parentColumns = ["user_id"], childColumns = ["join_request_user"], onDelete = CASCADE)
+        ],
+        indices = [
+            Index(value = ["join_request_team", "join_request_created", "join_request_id"])
         ]
 )
-open class JoinRequestEntity : Parcelable {
+open class JoinRequestEntity : Parcelable, StoredRow {
 
     @ColumnInfo(name = "join_request_team_approved")
     var isTeamApproved: Boolean = false
@@ -118,6 +123,8 @@ open class JoinRequestEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(isTeamApproved, isUserApproved, id, position, team, user, created)
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
@@ -30,10 +30,12 @@ import android.os.Parcelable
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.ForeignKey.CASCADE
 import androidx.room.PrimaryKey
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
+import com.mainstreetcode.teammate.persistence.StoredRow
 import java.util.*
 
 @Entity(
@@ -41,10 +43,13 @@ import java.util.*
         foreignKeys = [
             ForeignKey(entity = UserEntity::class, parentColumns = ["user_id"], childColumns = ["media_user"], onDelete = CASCADE),
             ForeignKey(entity = TeamEntity::class, parentColumns = ["team_id"], childColumns = ["media_team"], onDelete = CASCADE)
+        ],
+        indices = [
+            Index(value = ["media_team", "media_flagged", "media_created", "media_id"])
         ]
 )
 
-open class MediaEntity : Parcelable {
+open class MediaEntity : Parcelable, StoredRow {
 
     @PrimaryKey
     @ColumnInfo(name = "media_id")
@@ -114,6 +119,10 @@ open class MediaEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(
+            id, url, mimeType, thumbnail, user, hiddenTeam, created, isFlagged
+    )
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
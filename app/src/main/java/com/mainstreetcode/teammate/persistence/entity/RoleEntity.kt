@@ -28,6 +28,7 @@ package com.mainstreetcode.teammate.persistence.entity
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import android.os.Parcel
 import android.os.Parcelable
@@ -37,13 +38,19 @@ import com.mainstreetcode.teammate.model.Config
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.model.enums.Position
+import com.mainstreetcode.teammate.persistence.StoredRow
 
 import java.util.Date
 
 import androidx.room.ForeignKey.CASCADE
 
-@Entity(tableName = "roles", foreignKeys = [ForeignKey(entity = TeamEntity::class, parentColumns = ["team_id"], childColumns = ["role_team"], onDelete = CASCADE), ForeignKey(entity = UserEntity::class, parentColumns = ["user_id"], childColumns = ["role_user"], onDelete = CASCADE)])
-open class RoleEntity : Parcelable {
+@Entity(tableName = "roles", foreignKeys = [ForeignKey(entity = TeamEntity::class, parentColumns = ["team_id"], childColumns = ["role_team"], onDelete = CASCADE), ForeignKey(entity = UserEntity::class, parentColumns = ["user_id"], childColumns = ["role_user"], onDelete = CASCADE)],
+        indices = [
+            Index(value = ["role_team", "role_created", "role_id"]),
+            Index(value = ["role_user"])
+        ]
+)
+open class RoleEntity : Parcelable, StoredRow {
 
     @NonNull
     @PrimaryKey
@@ -112,6 +119,8 @@ open class RoleEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(id, imageUrl, nickname, position, team, user, created)
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
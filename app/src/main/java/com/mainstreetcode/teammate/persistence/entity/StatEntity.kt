@@ -30,6 +30,7 @@ import androidx.annotation.NonNull
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.ForeignKey.CASCADE
 import androidx.room.PrimaryKey
 import com.mainstreetcode.teammate.model.Config
@@ -40,6 +41,7 @@ import com.mainstreetcode.teammate.model.enums.Sport
 import com.mainstreetcode.teammate.model.enums.StatAttribute
 import com.mainstreetcode.teammate.model.enums.StatAttributes
 import com.mainstreetcode.teammate.model.enums.StatType
+import com.mainstreetcode.teammate.persistence.StoredRow
 import com.mainstreetcode.teammate.util.EMPTY_STRING
 import com.mainstreetcode.teammate.util.asFloatOrZero
 import java.util.*
@@ -51,9 +53,12 @@ import java.util.*
             ForeignKey(entity = GameEntity::class, parentColumns = ["game_id"], childColumns = ["stat_game"], onDelete = CASCADE),
             ForeignKey(entity = TeamEntity::class, parentColumns = ["team_id"], childColumns = ["stat_team"], onDelete = CASCADE),
             ForeignKey(entity = UserEntity::class, parentColumns = ["user_id"], childColumns = ["stat_user"], onDelete = CASCADE)
+        ],
+        indices = [
+            Index(value = ["stat_game", "stat_created", "stat_id"])
         ]
 )
-open class StatEntity : Parcelable {
+open class StatEntity : Parcelable, StoredRow {
 
     @NonNull
     @PrimaryKey
@@ -164,6 +169,10 @@ open class StatEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(
+            id, created, statType, sport, user, team, game, attributes, value, time
+    )
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
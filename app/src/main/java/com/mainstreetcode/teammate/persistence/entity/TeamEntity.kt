@@ -33,13 +33,14 @@ import androidx.room.PrimaryKey
 import com.google.android.gms.maps.model.LatLng
 import com.mainstreetcode.teammate.model.Config
 import com.mainstreetcode.teammate.model.enums.Sport
+import com.mainstreetcode.teammate.persistence.StoredRow
 import com.mainstreetcode.teammate.util.asIntOrZero
 import com.mainstreetcode.teammate.util.processEmoji
 import java.util.*
 
 
 @Entity(tableName = "teams")
-open class TeamEntity : Parcelable {
+open class TeamEntity : Parcelable, StoredRow {
 
     @NonNull
     @PrimaryKey
@@ -175,6 +176,11 @@ open class TeamEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(
+            id, imageUrl, screenName, city, state, zip, name, description, sport, created, location,
+            storageUsed, maxStorage, minAge, maxAge
+    )
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
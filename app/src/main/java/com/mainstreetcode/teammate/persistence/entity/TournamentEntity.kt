@@ -38,6 +38,7 @@ import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.enums.Sport
 import com.mainstreetcode.teammate.model.enums.TournamentStyle
 import com.mainstreetcode.teammate.model.enums.TournamentType
+import com.mainstreetcode.teammate.persistence.StoredRow
 import com.mainstreetcode.teammate.util.asIntOrZero
 import com.mainstreetcode.teammate.util.asBooleanOrFalse
 import com.mainstreetcode.teammate.util.processEmoji
@@ -49,7 +50,7 @@ import java.util.*
         foreignKeys = [
             ForeignKey(entity = TeamEntity::class, parentColumns = ["team_id"], childColumns = ["tournament_host"], onDelete = CASCADE)
         ])
-open class TournamentEntity : Parcelable {
+open class TournamentEntity : Parcelable, StoredRow {
 
     //private static final SimpleDateFormat timePrinter = new SimpleDateFormat("HH:mm", Locale.US);
     //    refPath:
@@ -209,6 +210,11 @@ open class TournamentEntity : Parcelable {
 
     override fun hashCode(): Int = id.hashCode()
 
+    override fun storedColumns(): List<Any?> = listOf(
+            id, imageUrl, refPath, name, description, host, created, sport, type, style, winner,
+            numLegs, numRounds, currentRound, numCompetitors, isSingleFinal
+    )
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
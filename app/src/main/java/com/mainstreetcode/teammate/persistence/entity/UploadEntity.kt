@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+import com.mainstreetcode.teammate.model.Team
+import com.mainstreetcode.teammate.model.User
+
+/**
+ * A media upload waiting to be completed. [committed] is the number of bytes the server last
+ * acknowledged, so an upload interrupted by process death continues from there.
+ */
+@Entity(tableName = "media_uploads")
+data class UploadEntity(
+        @PrimaryKey
+        @ColumnInfo(name = "upload_id")
+        val id: String,
+
+        @ColumnInfo(name = "upload_uri")
+        val uri: String,
+
+        @ColumnInfo(name = "upload_mime_type")
+        val mimeType: String,
+
+        @ColumnInfo(name = "upload_length")
+        val length: Long,
+
+        @ColumnInfo(name = "upload_committed")
+        val committed: Long,
+
+        @ColumnInfo(name = "upload_user")
+        val user: User,
+
+        @ColumnInfo(name = "upload_team")
+        val team: Team,
+
+        @ColumnInfo(name = "upload_created")
+        val created: Long
+)
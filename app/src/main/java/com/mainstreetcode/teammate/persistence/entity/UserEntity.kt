@@ -32,10 +32,11 @@ import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.PrimaryKey
 import com.mainstreetcode.teammate.model.User
+import com.mainstreetcode.teammate.persistence.StoredRow
 import com.mainstreetcode.teammate.util.processEmoji
 
 @Entity(tableName = "users")
-open class UserEntity : Parcelable {
+open class UserEntity : Parcelable, StoredRow {
 
     @NonNull
     @PrimaryKey
@@ -110,6 +111,10 @@ open class UserEntity : Parcelable {
         about = `in`.readString()!!
     }
 
+    override fun storedColumns(): List<Any?> = listOf(
+            id, imageUrl, screenName, primaryEmail, firstName, lastName, about
+    )
+
     override fun describeContents(): Int = 0
 
     override fun writeToParcel(dest: Parcel, flags: Int) {
@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence.migrations
+
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * Adds composite indexes for the owner, date and id columns paginated queries filter and sort by.
+ */
+class Migration5To6 : Migration(5, 6) {
+
+    private val indices = listOf(
+            "team_chats" to listOf("team_chat_team", "team_chat_created", "team_chat_id"),
+            "team_media" to listOf("media_team", "media_flagged", "media_created", "media_id"),
+            "events" to listOf("event_team", "event_start_date", "event_id"),
+            "stats" to listOf("stat_game", "stat_created", "stat_id"),
+            "roles" to listOf("role_team", "role_created", "role_id"),
+            "roles" to listOf("role_user"),
+            "guests" to listOf("guest_event", "guest_created", "guest_id"),
+            "guests" to listOf("guest_user", "guest_created"),
+            "join_requests" to listOf("join_request_team", "join_request_created", "join_request_id"),
+            "competitors" to listOf("competitor_tournament", "competitor_created"),
+            "games" to listOf("game_tournament", "game_round", "game_created"),
+            "games" to listOf("game_host", "game_created", "game_id"),
+            "games" to listOf("game_home_entity", "game_created", "game_id"),
+            "games" to listOf("game_away_entity", "game_created", "game_id")
+    )
+
+    override fun migrate(database: SupportSQLiteDatabase) =
+            indices.forEach { (tableName, columns) -> database.execSQL(createIndexSql(tableName, columns)) }
+
+    // Matches the names and definitions Room generates for the indices declared on the entities
+    private fun createIndexSql(tableName: String, columns: List<String>): String {
+        val indexName = "index_${tableName}_${columns.joinToString("_")}"
+        val columnList = columns.joinToString(", ") { "`$it`" }
+
+        return "CREATE INDEX IF NOT EXISTS `$indexName` ON `$tableName` ($columnList)"
+    }
+}
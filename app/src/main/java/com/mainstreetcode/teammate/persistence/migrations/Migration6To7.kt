@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.persistence.migrations
+
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * Adds the table media uploads are queued in until the server has the whole file.
+ */
+class Migration6To7 : Migration(6, 7) {
+
+    override fun migrate(database: SupportSQLiteDatabase) = database.execSQL(
+            "CREATE TABLE IF NOT EXISTS `media_uploads` (" +
+                    "`upload_id` TEXT NOT NULL, " +
+                    "`upload_uri` TEXT NOT NULL, " +
+                    "`upload_mime_type` TEXT NOT NULL, " +
+                    "`upload_length` INTEGER NOT NULL, " +
+                    "`upload_committed` INTEGER NOT NULL, " +
+                    "`upload_user` TEXT NOT NULL, " +
+                    "`upload_team` TEXT NOT NULL, " +
+                    "`upload_created` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`upload_id`))"
+    )
+}
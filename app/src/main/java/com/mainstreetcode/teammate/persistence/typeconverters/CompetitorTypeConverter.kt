@@ -27,7 +27,7 @@ package com.mainstreetcode.teammate.persistence.typeconverters
 import androidx.room.TypeConverter
 
 import com.mainstreetcode.teammate.model.Competitor
-import com.mainstreetcode.teammate.persistence.AppDatabase
+import com.mainstreetcode.teammate.persistence.RelationResolver
 
 
 class CompetitorTypeConverter {
@@ -36,7 +36,6 @@ class CompetitorTypeConverter {
     fun toId(competitor: Competitor): String = competitor.id
 
     @TypeConverter
-    fun fromId(id: String): Competitor =
-            AppDatabase.instance.competitorDao().get(id).blockingGet(Competitor.empty())
+    fun fromId(id: String): Competitor = RelationResolver.stub(Competitor::class.java, id)
 
 }
@@ -27,7 +27,7 @@ package com.mainstreetcode.teammate.persistence.typeconverters
 import androidx.room.TypeConverter
 
 import com.mainstreetcode.teammate.model.Event
-import com.mainstreetcode.teammate.persistence.AppDatabase
+import com.mainstreetcode.teammate.persistence.RelationResolver
 
 
 class EventTypeConverter {
@@ -36,6 +36,5 @@ class EventTypeConverter {
     fun toId(event: Event): String = event.id
 
     @TypeConverter
-    fun fromId(id: String): Event = AppDatabase.instance.eventDao().get(id)
-            .onErrorReturn { Event.empty() }.blockingGet(Event.empty())
+    fun fromId(id: String): Event = RelationResolver.stub(Event::class.java, id)
 }
@@ -27,8 +27,7 @@ package com.mainstreetcode.teammate.persistence.typeconverters
 import androidx.room.TypeConverter
 
 import com.mainstreetcode.teammate.model.Game
-import com.mainstreetcode.teammate.model.Team
-import com.mainstreetcode.teammate.persistence.AppDatabase
+import com.mainstreetcode.teammate.persistence.RelationResolver
 
 
 class GameTypeConverter {
@@ -37,6 +36,5 @@ class GameTypeConverter {
     fun toId(game: Game): String? = game.id
 
     @TypeConverter
-    fun fromId(id: String): Game =
-            AppDatabase.instance.gameDao().get(id).blockingGet(Game.empty(Team.empty()))
+    fun fromId(id: String): Game = RelationResolver.stub(Game::class.java, id)
 }
@@ -27,7 +27,7 @@ package com.mainstreetcode.teammate.persistence.typeconverters
 import androidx.room.TypeConverter
 
 import com.mainstreetcode.teammate.model.Team
-import com.mainstreetcode.teammate.persistence.AppDatabase
+import com.mainstreetcode.teammate.persistence.RelationResolver
 
 
 class TeamTypeConverter {
@@ -36,6 +36,5 @@ class TeamTypeConverter {
     fun toId(team: Team): String = team.id
 
     @TypeConverter
-    fun fromId(id: String): Team = AppDatabase.instance.teamDao().get(id)
-            .onErrorReturn { Team.empty() }.blockingGet(Team.empty())
+    fun fromId(id: String): Team = RelationResolver.stub(Team::class.java, id)
 }
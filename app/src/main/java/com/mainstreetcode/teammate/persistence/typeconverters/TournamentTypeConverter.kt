@@ -26,9 +26,8 @@ package com.mainstreetcode.teammate.persistence.typeconverters
 
 import androidx.room.TypeConverter
 
-import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.Tournament
-import com.mainstreetcode.teammate.persistence.AppDatabase
+import com.mainstreetcode.teammate.persistence.RelationResolver
 
 
 class TournamentTypeConverter {
@@ -37,6 +36,5 @@ class TournamentTypeConverter {
     fun toId(tournament: Tournament): String? = tournament.id
 
     @TypeConverter
-    fun fromId(id: String): Tournament = AppDatabase.instance.tournamentDao().get(id)
-            .onErrorReturn { Tournament.empty(Team.empty()) }.blockingGet(Tournament.empty(Team.empty()))
+    fun fromId(id: String): Tournament = RelationResolver.stub(Tournament::class.java, id)
 }
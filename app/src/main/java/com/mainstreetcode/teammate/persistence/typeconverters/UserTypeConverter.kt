@@ -27,7 +27,7 @@ package com.mainstreetcode.teammate.persistence.typeconverters
 import androidx.room.TypeConverter
 
 import com.mainstreetcode.teammate.model.User
-import com.mainstreetcode.teammate.persistence.AppDatabase
+import com.mainstreetcode.teammate.persistence.RelationResolver
 
 
 class UserTypeConverter {
@@ -36,6 +36,5 @@ class UserTypeConverter {
     fun toId(user: User): String = user.id
 
     @TypeConverter
-    fun fromId(id: String): User = AppDatabase.instance.userDao().get(id)
-            .onErrorReturn { User.empty() }.blockingGet(User.empty())
+    fun fromId(id: String): User = RelationResolver.stub(User::class.java, id)
 }
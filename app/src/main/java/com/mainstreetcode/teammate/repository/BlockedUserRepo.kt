@@ -26,16 +26,17 @@ package com.mainstreetcode.teammate.repository
 
 
 import com.mainstreetcode.teammate.model.BlockedUser
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.persistence.AppDatabase
 import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.Paging
 import io.reactivex.Flowable
 import io.reactivex.Maybe
 import io.reactivex.Single
-import java.util.*
 
 class BlockedUserRepo internal constructor() : TeamQueryRepo<BlockedUser>() {
 
@@ -52,11 +53,11 @@ class BlockedUserRepo internal constructor() : TeamQueryRepo<BlockedUser>() {
     override fun delete(model: BlockedUser): Single<BlockedUser> =
             api.unblockUser(model.team.id, model)
 
-    override fun localModelsBefore(key: Team, pagination: Date?): Maybe<List<BlockedUser>> =
+    override fun localModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<BlockedUser>> =
             Maybe.empty()
 
-    override fun remoteModelsBefore(key: Team, pagination: Date?): Maybe<List<BlockedUser>> =
-            api.blockedUsers(key.id, pagination, DEF_QUERY_LIMIT).map(saveManyFunction).toMaybe()
+    override fun remoteModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<BlockedUser>> =
+            api.blockedUsers(key.id, pagination?.date, pagination?.id, Paging.pageSize).map(writeBehindFunction).toMaybe()
 
     override fun provideSaveManyFunction(): (List<BlockedUser>) -> List<BlockedUser> =
             { models -> models }
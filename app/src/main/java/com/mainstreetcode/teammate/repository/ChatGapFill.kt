@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.repository
+
+import com.mainstreetcode.teammate.model.Chat
+import com.mainstreetcode.teammate.model.PageCursor
+import com.mainstreetcode.teammate.rest.TeammateApi
+import io.reactivex.Flowable
+
+/**
+ * Recovers the chats a team received while nobody was listening to it. Pages are read back from
+ * the latest chat until one reaches the newest chat already stored, so only the gap is downloaded.
+ */
+class ChatGapFill(
+        private val api: TeammateApi,
+        private val pageSize: Int = PAGE_SIZE,
+        private val maxPages: Int = MAX_PAGES
+) {
+
+    /**
+     * Pages of chats sent to [teamId] after [newest], latest first. Chats are compared on their
+     * creation date, then id, so ones sharing the newest stored timestamp are not dropped. A gap
+     * wider than [maxPages] is left for the list to page through as it is scrolled.
+     */
+    fun since(teamId: String, newest: PageCursor): Flowable<List<Chat>> = pagesBefore(teamId, newest, null, 0)
+
+    private fun pagesBefore(teamId: String, newest: PageCursor, cursor: PageCursor?, page: Int): Flowable<List<Chat>> =
+            api.chatsBefore(teamId, cursor?.date, cursor?.id, pageSize).toFlowable().concatMap { chats ->
+                val missed = chats.filter { PageCursor(it.created, it.id) > newest }
+                val oldest = chats.map { PageCursor(it.created, it.id) }.min()
+
+                val caughtUp = oldest == null || missed.size < chats.size || chats.size < pageSize || page + 1 >= maxPages
+                val rest: Flowable<List<Chat>> =
+                        if (caughtUp) Flowable.empty()
+                        else Flowable.defer { pagesBefore(teamId, newest, oldest, page + 1) }
+
+                if (missed.isEmpty()) rest
+                else Flowable.just(missed).concatWith(rest)
+            }
+
+    companion object {
+
+        private const val PAGE_SIZE = 50
+        private const val MAX_PAGES = 10
+    }
+}
@@ -25,46 +25,58 @@
 package com.mainstreetcode.teammate.repository
 
 import android.content.Context
-import android.util.Pair
 
 import com.google.gson.Gson
 import com.google.gson.GsonBuilder
-import com.google.gson.JsonElement
-import com.google.gson.JsonSerializationContext
 import com.mainstreetcode.teammate.App
 import com.mainstreetcode.teammate.model.Chat
-import com.mainstreetcode.teammate.model.Role
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.persistence.AppDatabase
 import com.mainstreetcode.teammate.persistence.ChatDao
 import com.mainstreetcode.teammate.persistence.EntityDao
+import com.mainstreetcode.teammate.persistence.LastSeenDao
+import com.mainstreetcode.teammate.persistence.entity.LastSeenEntity
+import com.mainstreetcode.teammate.persistence.entity.UnreadChats
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.socket.ChatDispatcher
+import com.mainstreetcode.teammate.socket.ChatOutbox
 import com.mainstreetcode.teammate.socket.SocketFactory
+import com.mainstreetcode.teammate.util.Logger
+import com.mainstreetcode.teammate.util.Paging
 import com.mainstreetcode.teammate.util.TeammateException
 
-import org.json.JSONObject
-
-import java.lang.reflect.Type
 import java.util.ArrayList
 import java.util.Date
 import java.util.concurrent.TimeUnit
-import io.reactivex.BackpressureStrategy
 import io.reactivex.Completable
 import io.reactivex.Flowable
 import io.reactivex.Maybe
 import io.reactivex.Single
 
-import com.mainstreetcode.teammate.socket.SocketFactory.Companion.EVENT_NEW_MESSAGE
 import io.reactivex.schedulers.Schedulers.io
-import io.socket.client.Socket.EVENT_ERROR
 
 class ChatRepo internal constructor() : TeamQueryRepo<Chat>() {
 
     private val app: App = App.instance
     private val api: TeammateApi = TeammateService.getApiInstance()
     private val chatDao: ChatDao = AppDatabase.instance.teamChatDao()
+    private val chatDispatcher = ChatDispatcher(CHAT_GSON)
+    private val outbox = ChatOutbox(
+            AppDatabase.instance.outboxDao(),
+            { SocketFactory.instance.teamChatSocket },
+            SocketFactory.instance.supervisor.connections
+    )
+    private val gapFill = ChatGapFill(api)
+    private val lastSeenDao: LastSeenDao = AppDatabase.instance.lastSeenDao()
+
+    // Reads and writes of seen times wait for the ones kept in shared preferences to be moved over
+    private val importedLastSeen: Completable = Completable.fromAction(this::importLastSeen)
+            .subscribeOn(io())
+            .onErrorComplete()
+            .cache()
 
     override fun dao(): EntityDao<in Chat> = chatDao
 
@@ -75,13 +87,10 @@ class ChatRepo internal constructor() : TeamQueryRepo<Chat>() {
         val local = chatDao.get(id).subscribeOn(io())
         val remote = api.getTeamChat(id).map(saveFunction).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
-    override fun delete(model: Chat): Single<Chat> = api.deleteChat(model.id).map {
-        chatDao.delete(model)
-        model
-    }
+    override fun delete(model: Chat): Single<Chat> = api.deleteChat(model.id).map(this::deleteLocally)
 
     override fun provideSaveManyFunction(): (List<Chat>) -> List<Chat> = { chats ->
         val size = chats.size
@@ -100,81 +109,77 @@ class ChatRepo internal constructor() : TeamQueryRepo<Chat>() {
         chats
     }
 
-    override fun localModelsBefore(key: Team, pagination: Date?): Maybe<List<Chat>> {
-        var date = pagination
-        if (date == null) date = Date()
-        return chatDao.chatsBefore(key.id, date, DEF_QUERY_LIMIT).subscribeOn(io())
+    override fun localModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Chat>> {
+        val cursor = pagination ?: PageCursor(Date())
+        return chatDao.chatsBefore(key.id, cursor, Paging.pageSize).subscribeOn(io())
     }
 
-    override fun remoteModelsBefore(key: Team, pagination: Date?): Maybe<List<Chat>> =
-            api.chatsBefore(key.id, pagination, DEF_QUERY_LIMIT).map(saveManyFunction).toMaybe()
-
-    fun fetchUnreadChats(): Flowable<List<Chat>> = RepoProvider.forRepo(RoleRepo::class.java).myRoles
-            .firstElement()
-            .toFlowable()
-            .flatMap { Flowable.fromIterable(it) }
-            .map(Role::team)
-            .map { team -> Pair(team.id, getLastTeamSeen(team)) }
-            .flatMapMaybe { teamDatePair -> chatDao.unreadChats(teamDatePair.first, teamDatePair.second) }
-            .filter { chats -> chats.isNotEmpty() }
-
-    fun listenForChat(team: Team): Flowable<Chat> = SocketFactory.instance.teamChatSocket.flatMapPublisher { socket ->
-        val result: JSONObject = try {
-            JSONObject(CHAT_GSON.toJson(team))
-        } catch (e: Exception) {
-            return@flatMapPublisher Flowable.error<Chat>(e)
-        }
+    override fun remoteModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Chat>> =
+            api.chatsBefore(key.id, pagination?.date, pagination?.id, Paging.pageSize).map(writeBehindFunction).toMaybe()
 
-        socket.emit(SocketFactory.EVENT_JOIN, result)
-        val signedInUser = RepoProvider.forRepo(UserRepo::class.java).currentUser
+    /**
+     * Unread chats in each of the signed in user's teams, kept current as chats arrive and teams
+     * are seen.
+     */
+    fun unreadChats(): Flowable<List<UnreadChats>> = importedLastSeen.andThen(lastSeenDao.unreadChats(
+            RepoProvider.forRepo(UserRepo::class.java).currentUser.id,
+            Date(System.currentTimeMillis() - UNSEEN_WINDOW_MILLIS)
+    ).subscribeOn(io()))
 
-        Flowable.create<Chat>(
-                { emitter ->
-                    socket.on(EVENT_NEW_MESSAGE) { parseChat(*it)?.apply { emitter.onNext(this) } }
-                    socket.once(EVENT_ERROR) { if (!emitter.isCancelled) emitter.onError(it[0] as Throwable) }
-                },
-                BackpressureStrategy.DROP)
-                .filter { chat -> team == chat.team && signedInUser != chat.user }
+    fun listenForChat(team: Team): Flowable<Chat> {
+        val signedInUser = RepoProvider.forRepo(UserRepo::class.java).currentUser
+        return chatDispatcher.listen(team).filter { chat -> signedInUser != chat.user }
     }
 
-    private fun post(chat: Chat): Completable = SocketFactory.instance.teamChatSocket.flatMapCompletable { socket ->
-        Completable.create { emitter ->
-            val result = JSONObject(CHAT_GSON.toJson(chat))
-            socket.emit(EVENT_NEW_MESSAGE, arrayOf<Any>(result)) { args ->
-                parseChat(*args)?.let { chat.update(it) }
-                        ?: return@emit emitter.onError(TeammateException("Unable to post chat"))
-
-                if (!emitter.isDisposed) emitter.onComplete()
+    /**
+     * Chats [team] received after the newest one stored, fetched when it is first listened to and
+     * again each time the socket reconnects. Teams with no stored chats are left to [modelsBefore].
+     */
+    fun missedChats(team: Team): Flowable<List<Chat>> = SocketFactory.instance.supervisor.connections
+            .map { Unit }
+            .startWith(Unit)
+            .concatMap {
+                chatDao.newest(team.id)
+                        .subscribeOn(io())
+                        .flatMapPublisher { newest -> gapFill.since(team.id, newest) }
+                        .map(saveManyFunction)
+                        .doOnError { throwable -> Logger.log(TAG, "Unable to fill chat gap", throwable) }
+                        .onErrorResumeNext(Flowable.empty<List<Chat>>())
             }
-        }
-    }.onErrorResumeNext { throwable -> postRetryFunction(throwable, chat, 0) }
 
-    private fun postRetryFunction(throwable: Throwable, chat: Chat, previousRetries: Int): Completable = when (val retries = previousRetries + 1) {
-        in 0..3 -> Completable.timer(300, TimeUnit.MILLISECONDS)
-                .andThen(post(chat).onErrorResumeNext { thrown -> postRetryFunction(thrown, chat, retries) })
-        else -> Completable.error(throwable)
-    }
+    /**
+     * Sends chats a previous process left unacknowledged.
+     */
+    fun flushOutbox(): Completable = outbox.resume()
 
-    fun updateLastSeen(team: Team) {
-        val preferences = app.getSharedPreferences(TEAM_SEEN_TIMES, Context.MODE_PRIVATE)
-        preferences.edit().putLong(team.id, Date().time).apply()
-    }
+    // The chat stays in the outbox if this times out, and is sent once the socket is back
+    private fun post(chat: Chat): Completable = outbox.send(chat.id, chat.team.id, CHAT_GSON.toJson(chat))
+            .timeout(POST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .map { ack -> parseChat(ack) ?: throw TeammateException("Unable to post chat") }
+            .doOnSuccess(chat::update)
+            .ignoreElement()
+
+    fun updateLastSeen(team: Team): Completable = importedLastSeen.andThen(Completable.fromAction {
+        lastSeenDao.upsert(listOf(LastSeenEntity(team.id, Date())))
+    }.subscribeOn(io()))
 
-    private fun getLastTeamSeen(team: Team): Date {
+    // Seen times used to be kept in shared preferences, they are moved over the first time they are read
+    private fun importLastSeen() {
         val preferences = app.getSharedPreferences(TEAM_SEEN_TIMES, Context.MODE_PRIVATE)
-        var timeStamp = preferences.getLong(team.id, TEAM_NOT_SEEN.toLong())
-        if (timeStamp == TEAM_NOT_SEEN.toLong()) {
-            updateLastSeen(team)
-            timeStamp = Date().time - 1000 * 60 * 2
-        }
-        return Date(timeStamp)
+        val seen = preferences.all.mapNotNull { (teamId, time) -> (time as? Long)?.let { LastSeenEntity(teamId, Date(it)) } }
+
+        if (seen.isNotEmpty()) lastSeenDao.upsert(seen)
+        preferences.edit().clear().apply()
     }
 
     companion object {
 
 
+        private const val TAG = "ChatRepo"
         private const val TEAM_SEEN_TIMES = "TeamRepository.team.seen.times"
-        private const val TEAM_NOT_SEEN = -1
+        private const val UNSEEN_WINDOW_MILLIS = 1000L * 60 * 2
+        private const val POST_TIMEOUT_SECONDS = 10L
+
         private val CHAT_GSON = chatGson
 
         private fun parseChat(vararg args: Any): Chat? = try {
@@ -185,20 +190,8 @@ class ChatRepo internal constructor() : TeamQueryRepo<Chat>() {
 
         private val chatGson: Gson
             get() {
-                val teamAdapter = object : Team.GsonAdapter() {
-                    override fun serialize(src: Team, typeOfSrc: Type, context: JsonSerializationContext): JsonElement {
-                        val result = super.serialize(src, typeOfSrc, context).asJsonObject
-                        result.addProperty("_id", src.id)
-                        return result
-                    }
-                }
-                val chatAdapter = object : Chat.GsonAdapter() {
-                    override fun serialize(src: Chat, typeOfSrc: Type, context: JsonSerializationContext): JsonElement {
-                        val result = super.serialize(src, typeOfSrc, context).asJsonObject
-                        result.addProperty("_id", src.id)
-                        return result
-                    }
-                }
+                val teamAdapter = Team.GsonAdapter(writesId = true)
+                val chatAdapter = Chat.GsonAdapter(writesId = true)
                 return GsonBuilder()
                         .registerTypeAdapter(Team::class.java, teamAdapter)
                         .registerTypeAdapter(Chat::class.java, chatAdapter)
@@ -35,6 +35,7 @@ import com.mainstreetcode.teammate.persistence.CompetitorDao
 import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.Paging
 import com.mainstreetcode.teammate.util.TeammateException
 import io.reactivex.Flowable
 import io.reactivex.Maybe
@@ -60,20 +61,20 @@ class CompetitorRepo internal constructor() : QueryRepo<Competitor, Tournament,
         val local = competitorDao.get(id).subscribeOn(io())
         val remote = api.getCompetitor(id).map(saveFunction).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Competitor): Single<Competitor> =
             Single.error(TeammateException(""))
 
     fun getDeclined(date: Date?): Single<List<Competitor>> =
-            api.getDeclinedCompetitors(date, DEF_QUERY_LIMIT).map(saveManyFunction)
+            api.getDeclinedCompetitors(date, Paging.pageSize).map(writeBehindFunction)
 
     override fun localModelsBefore(key: Tournament, pagination: Int?): Maybe<List<Competitor>> =
             competitorDao.getCompetitors(key.id).subscribeOn(io())
 
     override fun remoteModelsBefore(key: Tournament, pagination: Int?): Maybe<List<Competitor>> =
-            api.getCompetitors(key.id).map(saveManyFunction).toMaybe()
+            api.getCompetitors(key.id).map(writeBehindFunction).toMaybe()
 
     override fun provideSaveManyFunction(): (List<Competitor>) -> List<Competitor> = { models ->
         val teams = ArrayList<Team>(models.size)
@@ -29,20 +29,18 @@ import com.mainstreetcode.teammate.model.Config
 import com.mainstreetcode.teammate.persistence.AppDatabase
 import com.mainstreetcode.teammate.persistence.ConfigDao
 import com.mainstreetcode.teammate.persistence.EntityDao
+import com.mainstreetcode.teammate.rest.CircuitBreaker
+import com.mainstreetcode.teammate.rest.RetryPolicy
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
 import com.mainstreetcode.teammate.util.ErrorHandler
 import com.mainstreetcode.teammate.util.TeammateException
-import io.reactivex.Completable
 import io.reactivex.Flowable
 import io.reactivex.Single
-import java.util.concurrent.TimeUnit
-import kotlin.math.min
 
 class ConfigRepo internal constructor() : ModelRepo<Config>() {
 
     private var numRefreshes = 0
-    private var retryPeriod = 3
 
     private val api: TeammateApi = TeammateService.getApiInstance()
     private val dao: ConfigDao = AppDatabase.instance.configDao()
@@ -58,7 +56,9 @@ class ConfigRepo internal constructor() : ModelRepo<Config>() {
     override fun get(id: String): Flowable<Config> {
         val config = dao.current
         return when {
-            config.isEmpty -> api.config.map(saveFunction).toFlowable()
+            config.isEmpty -> api.config.map(saveFunction)
+                    .compose(RetryPolicy.INTERACTIVE.single(CircuitBreaker.named(CONFIG)))
+                    .toFlowable()
             else -> Flowable.just(config).doFinally(this::refreshConfig)
         }
     }
@@ -79,21 +79,14 @@ class ConfigRepo internal constructor() : ModelRepo<Config>() {
     private fun refreshConfig() {
         if (numRefreshes++ % REFRESH_THRESHOLD != 0) return
         api.config.map(saveFunction)
-                .onErrorResumeNext(retryConfig()::invoke)
+                .compose(RetryPolicy.BACKGROUND.single(CircuitBreaker.named(CONFIG)))
+                .doOnError { numRefreshes = 0 }
                 .subscribe({ }, ErrorHandler.EMPTY::invoke)
     }
 
-    private fun retryConfig(): (Throwable) -> Single<Config> = {
-        numRefreshes = 0
-        retryPeriod *= retryPeriod
-        retryPeriod = min(retryPeriod, 60)
-        Completable.timer(retryPeriod.toLong(), TimeUnit.SECONDS)
-                .andThen<Config>(api.config.map(saveFunction)
-                        .onErrorResumeNext(retryConfig()::invoke))
-    }
-
     companion object {
 
         private const val REFRESH_THRESHOLD = 10
+        private const val CONFIG = "config"
     }
 }
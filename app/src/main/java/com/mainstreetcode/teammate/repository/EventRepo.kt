@@ -28,12 +28,14 @@ package com.mainstreetcode.teammate.repository
 import com.mainstreetcode.teammate.model.Event
 import com.mainstreetcode.teammate.model.Game
 import com.mainstreetcode.teammate.model.Guest
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.persistence.AppDatabase
 import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.persistence.EventDao
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.Paging
 import io.reactivex.Flowable
 import io.reactivex.Maybe
 import io.reactivex.Single
@@ -63,7 +65,7 @@ class EventRepo internal constructor() : TeamQueryRepo<Event>() {
         val local = eventDao.get(id).subscribeOn(io())
         val remote = api.getEvent(id).map(saveFunction).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Event): Single<Event> =
@@ -71,14 +73,13 @@ class EventRepo internal constructor() : TeamQueryRepo<Event>() {
                     .map(this::deleteLocally)
                     .doOnError { throwable -> deleteInvalidModel(model, throwable) }
 
-    override fun localModelsBefore(key: Team, pagination: Date?): Maybe<List<Event>> {
-        var date = pagination
-        if (date == null) date = futureDate
-        return eventDao.getEvents(key.id, date, DEF_QUERY_LIMIT).subscribeOn(io())
+    override fun localModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Event>> {
+        val cursor = pagination ?: PageCursor(futureDate)
+        return eventDao.getEvents(key.id, cursor, Paging.pageSize).subscribeOn(io())
     }
 
-    override fun remoteModelsBefore(key: Team, pagination: Date?): Maybe<List<Event>> =
-            api.getEvents(key.id, pagination, DEF_QUERY_LIMIT).map(saveManyFunction).toMaybe()
+    override fun remoteModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Event>> =
+            api.getEvents(key.id, pagination?.date, pagination?.id, Paging.pageSize).map(writeBehindFunction).toMaybe()
 
     fun attending(date: Date?): Flowable<List<Event>> {
         val current = RepoProvider.forRepo(UserRepo::class.java).currentUser
@@ -88,7 +89,7 @@ class EventRepo internal constructor() : TeamQueryRepo<Event>() {
                 .map<List<Event>> { guests -> guests.map(Guest::event) }
                 .subscribeOn(io())
 
-        val remote = api.eventsAttending(date, DEF_QUERY_LIMIT).map(saveManyFunction).toMaybe()
+        val remote = api.eventsAttending(date, Paging.pageSize).map(writeBehindFunction).toMaybe()
 
         return fetchThenGet(local, remote)
     }
@@ -103,9 +104,9 @@ class EventRepo internal constructor() : TeamQueryRepo<Event>() {
         models
     }
 
-    override fun deleteLocally(model: Event): Event {
+    override fun deleteRows(model: Event) {
         val game = Game.withId(model.gameId)
         if (!game.isEmpty) AppDatabase.instance.gameDao().delete(game)
-        return super.deleteLocally(model)
+        super.deleteRows(model)
     }
 }
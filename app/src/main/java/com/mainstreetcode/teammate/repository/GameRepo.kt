@@ -28,6 +28,7 @@ package com.mainstreetcode.teammate.repository
 import com.mainstreetcode.teammate.model.Competitor
 import com.mainstreetcode.teammate.model.Event
 import com.mainstreetcode.teammate.model.Game
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.Tournament
 import com.mainstreetcode.teammate.model.User
@@ -36,6 +37,7 @@ import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.persistence.GameDao
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.Paging
 import io.reactivex.Flowable
 import io.reactivex.Maybe
 import io.reactivex.Single
@@ -61,7 +63,7 @@ class GameRepo internal constructor() : TeamQueryRepo<Game>() {
         val local = gameDao.get(id).subscribeOn(io())
         val remote = api.getGame(id).map(saveFunction).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Game): Single<Game> {
@@ -70,14 +72,13 @@ class GameRepo internal constructor() : TeamQueryRepo<Game>() {
                 .doOnError { throwable -> deleteInvalidModel(model, throwable) }
     }
 
-    override fun localModelsBefore(key: Team, pagination: Date?): Maybe<List<Game>> {
-        var date = pagination
-        if (date == null) date = futureDate
-        return gameDao.getGames(key.id, date, DEF_QUERY_LIMIT).subscribeOn(io())
+    override fun localModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Game>> {
+        val cursor = pagination ?: PageCursor(futureDate)
+        return gameDao.getGames(key.id, cursor, Paging.pageSize).subscribeOn(io())
     }
 
-    override fun remoteModelsBefore(key: Team, pagination: Date?): Maybe<List<Game>> =
-            api.getGames(key.id, pagination, DEF_QUERY_LIMIT).map(saveManyFunction).toMaybe()
+    override fun remoteModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Game>> =
+            api.getGames(key.id, pagination?.date, pagination?.id, Paging.pageSize).map(writeBehindFunction).toMaybe()
 
     override fun provideSaveManyFunction(): (List<Game>) -> List<Game> = { models ->
         val teams = ArrayList<Team>(models.size)
@@ -123,9 +124,9 @@ class GameRepo internal constructor() : TeamQueryRepo<Game>() {
         models
     }
 
-    override fun deleteLocally(model: Game): Game {
+    override fun deleteRows(model: Game) {
         AppDatabase.instance.eventDao().delete(model.event)
-        return super.deleteLocally(model)
+        super.deleteRows(model)
     }
 
     private fun addIfValid(competitor: Competitor, users: MutableList<User>, teams: MutableList<Team>) {
@@ -62,7 +62,7 @@ class GameRoundRepo internal constructor() : QueryRepo<Game, Tournament, Int>()
     }
 
     override fun remoteModelsBefore(key: Tournament, pagination: Int?): Maybe<List<Game>> =
-            api.getGamesForRound(key.id, pagination ?: 0, 30).map(saveManyFunction).toMaybe()
+            api.getGamesForRound(key.id, pagination ?: 0, 30).map(writeBehindFunction).toMaybe()
 
     override fun provideSaveManyFunction(): (List<Game>) -> List<Game> = // Will recurse as a method reference
             { games -> RepoProvider.forRepo(GameRepo::class.java).provideSaveManyFunction().invoke(games) }
@@ -26,12 +26,14 @@ package com.mainstreetcode.teammate.repository
 
 import com.mainstreetcode.teammate.model.Event
 import com.mainstreetcode.teammate.model.Guest
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.persistence.AppDatabase
 import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.persistence.GuestDao
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.Paging
 import com.mainstreetcode.teammate.util.TeammateException
 import io.reactivex.Flowable
 import io.reactivex.Maybe
@@ -39,7 +41,7 @@ import io.reactivex.Single
 import io.reactivex.schedulers.Schedulers.io
 import java.util.*
 
-class GuestRepo internal constructor() : QueryRepo<Guest, Event, Date>() {
+class GuestRepo internal constructor() : QueryRepo<Guest, Event, PageCursor>() {
 
     private val api: TeammateApi = TeammateService.getApiInstance()
     private val guestDao: GuestDao = AppDatabase.instance.guestDao()
@@ -55,20 +57,19 @@ class GuestRepo internal constructor() : QueryRepo<Guest, Event, Date>() {
         val local = guestDao.get(id).subscribeOn(io())
         val remote = api.getGuest(id).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Guest): Single<Guest> =
             Single.error(TeammateException("Unimplemented"))
 
-    override fun localModelsBefore(key: Event, pagination: Date?): Maybe<List<Guest>> {
-        var date = pagination
-        if (date == null) date = futureDate
-        return guestDao.getGuests(key.id, date, DEF_QUERY_LIMIT).subscribeOn(io())
+    override fun localModelsBefore(key: Event, pagination: PageCursor?): Maybe<List<Guest>> {
+        val cursor = pagination ?: PageCursor(futureDate)
+        return guestDao.getGuests(key.id, cursor, Paging.pageSize).subscribeOn(io())
     }
 
-    override fun remoteModelsBefore(key: Event, pagination: Date?): Maybe<List<Guest>> =
-            api.getEventGuests(key.id, pagination, DEF_QUERY_LIMIT).map(saveManyFunction).toMaybe()
+    override fun remoteModelsBefore(key: Event, pagination: PageCursor?): Maybe<List<Guest>> =
+            api.getEventGuests(key.id, pagination?.date, pagination?.id, Paging.pageSize).map(writeBehindFunction).toMaybe()
 
     override fun provideSaveManyFunction(): (List<Guest>) -> List<Guest> = { models ->
         val users = ArrayList<User>(models.size)
@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.repository
+
+import io.reactivex.Maybe
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Shares reads that are already in flight. A subscriber arriving while a read with the same key
+ * is pending joins it and receives its result, instead of issuing its own. Keys are released
+ * once the read terminates, so later subscribers read afresh.
+ */
+internal class InFlight {
+
+    private val pending = ConcurrentHashMap<Any, Maybe<*>>()
+
+    fun <R> share(key: Any, source: Maybe<R>): Maybe<R> = Maybe.defer {
+        lateinit var shared: Maybe<R>
+        shared = source.doFinally { pending.remove(key, shared) }.cache()
+
+        @Suppress("UNCHECKED_CAST")
+        val existing = pending.putIfAbsent(key, shared) as Maybe<R>?
+
+        if (existing != null) saved.incrementAndGet()
+        existing ?: shared
+    }
+
+    companion object {
+
+        private val saved = AtomicLong()
+
+        /**
+         * Reads served by joining one already in flight, across all repositories.
+         */
+        val requestsSaved: Long
+            get() = saved.get()
+    }
+}
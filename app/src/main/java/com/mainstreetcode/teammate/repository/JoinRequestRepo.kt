@@ -53,7 +53,7 @@ class JoinRequestRepo internal constructor() : ModelRepo<JoinRequest>() {
         val local = joinRequestDao.get(id).subscribeOn(io())
         val remote = api.getJoinRequest(id).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: JoinRequest): Single<JoinRequest> = api.deleteJoinRequest(model.id)
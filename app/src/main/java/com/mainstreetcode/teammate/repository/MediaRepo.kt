@@ -24,19 +24,23 @@
 
 package com.mainstreetcode.teammate.repository
 
+import android.annotation.SuppressLint
 import android.net.Uri
 import com.mainstreetcode.teammate.App
 import com.mainstreetcode.teammate.model.Media
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
-import com.mainstreetcode.teammate.notifications.MediaNotifier
-import com.mainstreetcode.teammate.notifications.NotifierProvider
 import com.mainstreetcode.teammate.persistence.AppDatabase
 import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.persistence.MediaDao
+import com.mainstreetcode.teammate.persistence.WriteBehind
 import com.mainstreetcode.teammate.rest.ProgressRequestBody
+import com.mainstreetcode.teammate.rest.ResumableUpload
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.ErrorHandler
+import com.mainstreetcode.teammate.util.Paging
 import com.mainstreetcode.teammate.util.TeammateException
 import io.reactivex.Flowable
 import io.reactivex.Maybe
@@ -46,7 +50,9 @@ import okhttp3.Interceptor
 import okhttp3.MediaType
 import okhttp3.MultipartBody
 import okhttp3.logging.HttpLoggingInterceptor
+import retrofit2.HttpException
 import java.util.*
+import java.util.concurrent.atomic.AtomicBoolean
 
 class MediaRepo internal constructor() : TeamQueryRepo<Media>() {
 
@@ -62,22 +68,44 @@ class MediaRepo internal constructor() : TeamQueryRepo<Media>() {
 
     override fun dao(): EntityDao<in Media> = mediaDao
 
-    override fun createOrUpdate(model: Media): Single<Media> {
-        val body = getBody(model.url, Media.UPLOAD_KEY)
-                ?: return Single.error(TeammateException("Unable to upload media"))
-
-        val mediaSingle = api.uploadTeamMedia(model.team.id, body)
+    override fun createOrUpdate(model: Media): Single<Media> = multipartUpload(model, 0) { }
+
+    /**
+     * Uploads [model] in resumable chunks, continuing from the [offset] the server last committed.
+     * Files of unknown length, and servers without the chunked endpoint, are sent in one request.
+     *
+     * [onCommitted] is called with the bytes the server has stored for good, and is only called
+     * for chunked uploads. [onProgress] is called with the bytes sent as they are written, the
+     * ones past the last commit are lost if the request fails.
+     */
+    fun upload(model: Media, length: Long, offset: Long, onProgress: (Long) -> Unit, onCommitted: (Long) -> Unit): Single<Media> {
+        val mediaType = MediaType.parse(model.mimeType)
+        if (length <= 0 || mediaType == null || !chunkedUploads.get()) return multipartUpload(model, length, onProgress)
+
+        return ResumableUpload(api, model.team.id, model.id, Uri.parse(model.url), mediaType, length,
+                numWriteToCallsToIgnore = numCallsToIgnore)
+                .upload(offset, onProgress, onCommitted)
                 .map(getLocalUpdateFunction(model))
                 .map(saveFunction)
-
-        return NotifierProvider.forNotifier(MediaNotifier::class.java).notifyOfUploads(mediaSingle, body.body())
+                .onErrorResumeNext { throwable ->
+                    val code = (throwable as? HttpException)?.code()
+                    when {
+                        // The server no longer has the partial upload, start it over
+                        code == HTTP_NOT_FOUND && offset > 0 -> upload(model, length, 0, onProgress, onCommitted)
+                        code in UNSUPPORTED_CODES && offset == 0L -> {
+                            chunkedUploads.set(false)
+                            multipartUpload(model, length, onProgress)
+                        }
+                        else -> Single.error(throwable)
+                    }
+                }
     }
 
     override fun get(id: String): Flowable<Media> {
         val local = mediaDao.get(id).subscribeOn(io())
         val remote = api.getMedia(id).map(saveFunction).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Media): Single<Media> =
@@ -109,14 +137,13 @@ class MediaRepo internal constructor() : TeamQueryRepo<Media>() {
         models
     }
 
-    override fun localModelsBefore(key: Team, pagination: Date?): Maybe<List<Media>> {
-        var date = pagination
-        if (date == null) date = Date()
-        return mediaDao.getTeamMedia(key, date, DEF_QUERY_LIMIT).subscribeOn(io())
+    override fun localModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Media>> {
+        val cursor = pagination ?: PageCursor(Date())
+        return mediaDao.getTeamMedia(key, cursor, Paging.pageSize).subscribeOn(io())
     }
 
-    override fun remoteModelsBefore(key: Team, pagination: Date?): Maybe<List<Media>> =
-            api.getTeamMedia(key.id, pagination, DEF_QUERY_LIMIT).map(saveManyFunction).toMaybe()
+    override fun remoteModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Media>> =
+            api.getTeamMedia(key.id, pagination?.date, pagination?.id, Paging.pageSize).map(writeBehindFunction).toMaybe()
 
     fun ownerDelete(models: List<Media>): Single<List<Media>> =
             api.deleteMedia(models).doAfterSuccess(this::delete)
@@ -124,17 +151,41 @@ class MediaRepo internal constructor() : TeamQueryRepo<Media>() {
     fun privilegedDelete(team: Team, models: List<Media>): Single<List<Media>> =
             api.adminDeleteMedia(team.id, models).doAfterSuccess(this::delete)
 
-    private fun getBody(path: String, photoKey: String): MultipartBody.Part? {
+    @SuppressLint("CheckResult")
+    private fun multipartUpload(model: Media, length: Long, onProgress: (Long) -> Unit): Single<Media> {
+        val part = getBody(model.url, model.mimeType, Media.UPLOAD_KEY)
+                ?: return Single.error(TeammateException("Unable to upload media"))
+
+        (part.body() as ProgressRequestBody).progressFlowable
+                .subscribe({ percentage -> onProgress(length * percentage / 100) }, ErrorHandler.EMPTY::invoke)
+
+        return api.uploadTeamMedia(model.team.id, part)
+                .map(getLocalUpdateFunction(model))
+                .map(saveFunction)
+    }
+
+    // Downscaled copies are plain files, which the content resolver has no type for
+    private fun getBody(path: String, mimeType: String, photoKey: String): MultipartBody.Part? {
         val uri = Uri.parse(path)
-        val type = App.instance.contentResolver.getType(uri) ?: return null
+        val type = mimeType.ifBlank { App.instance.contentResolver.getType(uri) } ?: return null
         val mediaType = MediaType.parse(type) ?: return null
 
         val requestBody = ProgressRequestBody(uri, numCallsToIgnore, mediaType)
         return MultipartBody.Part.createFormData(photoKey, "test.jpg", requestBody)
     }
 
-    private fun delete(list: List<Media>) = mediaDao.delete(list)
+    private fun delete(list: List<Media>) = WriteBehind.afterPending { mediaDao.delete(list) }
 
     private fun logsRequestBody(interceptor: Interceptor): Boolean =
             interceptor is HttpLoggingInterceptor && interceptor.level == HttpLoggingInterceptor.Level.BODY
+
+    companion object {
+
+        private const val HTTP_NOT_FOUND = 404
+
+        // Responses from a server that predates chunked uploads
+        private val UNSUPPORTED_CODES = listOf(HTTP_NOT_FOUND, 405, 501)
+
+        private val chunkedUploads = AtomicBoolean(true)
+    }
 }
@@ -30,7 +30,12 @@ import android.webkit.MimeTypeMap
 import com.mainstreetcode.teammate.model.Message
 import com.mainstreetcode.teammate.model.Model
 import com.mainstreetcode.teammate.persistence.EntityDao
+import com.mainstreetcode.teammate.persistence.UnitOfWork
+import com.mainstreetcode.teammate.persistence.WriteBehind
+import com.mainstreetcode.teammate.rest.CircuitBreaker
+import com.mainstreetcode.teammate.rest.RetryPolicy
 import com.mainstreetcode.teammate.util.ErrorHandler
+import com.mainstreetcode.teammate.util.IdentityMap
 import io.reactivex.Completable
 import io.reactivex.Flowable
 import io.reactivex.Maybe
@@ -51,9 +56,21 @@ import java.util.concurrent.atomic.AtomicReference
 abstract class ModelRepo<T : Model<T>> {
 
     @Suppress("LeakingThis")
-    internal val saveManyFunction = provideSaveManyFunction()
+    private val graphSaveFunction = provideSaveManyFunction()
+
+    // Nested saves of a model graph are flushed together in a single transaction
+    internal val saveManyFunction = { models: List<T> -> UnitOfWork.run { graphSaveFunction.invoke(models) } }
     internal val saveFunction = { model: T -> saveManyFunction.invoke(listOf(model))[0] }
 
+    // Remote lists are emitted as soon as their graph is collected, and persisted write behind
+    internal val writeBehindFunction = { models: List<T> -> UnitOfWork.runBehind { graphSaveFunction.invoke(models) } }
+
+    // Concurrent reads of the same model or page share a single local read and remote call
+    internal val inFlight = InFlight()
+
+    // Remote reads of a repository stop being attempted while its backend keeps failing
+    internal val remoteBreaker: CircuitBreaker by lazy { CircuitBreaker.named(javaClass.simpleName) }
+
     abstract fun dao(): EntityDao<in T>
 
     abstract fun createOrUpdate(model: T): Single<T>
@@ -76,7 +93,11 @@ abstract class ModelRepo<T : Model<T>> {
                 .subscribe({ }, ErrorHandler.EMPTY::invoke)
     }
 
-    internal fun getLocalUpdateFunction(original: T): (T) -> T = { original.update(it); original }
+    internal fun getLocalUpdateFunction(original: T): (T) -> T = {
+        original.update(it)
+        IdentityMap.refresh(original)
+        original
+    }
 
     internal fun saveAsNested(): (List<T>) -> List<T> = inner@{ models ->
         if (models.isEmpty()) return@inner models
@@ -84,11 +105,17 @@ abstract class ModelRepo<T : Model<T>> {
         val parted = models.partition { it.isEmpty || it.hasMajorFields() }
 
         saveManyFunction.invoke(parted.first) // Nested save empty models or complete ones with upsert
-        dao().insert(parted.second) // For non empty models with incomplete data, insert, if a copy exists, it will be rejected
+
+        // For non empty models with incomplete data, insert, if a copy exists, it will be rejected
+        val dao = dao()
+        if (!UnitOfWork.deferInsert(dao, parted.second)) dao.insert(parted.second)
 
         models
     }
 
+    internal fun fetchThenGetModel(id: String, localSource: Maybe<T>, remoteSource: Maybe<T>): Flowable<T> =
+            fetchThenGetModel(inFlight.share(LOCAL to id, localSource), inFlight.share(REMOTE to id, retried(remoteSource)))
+
     internal fun fetchThenGetModel(localSource: Maybe<T>, remoteSource: Maybe<T>): Flowable<T> {
         var local = localSource
         var remote = remoteSource
@@ -99,6 +126,9 @@ abstract class ModelRepo<T : Model<T>> {
         return fetchThenGet(local, remote)
     }
 
+    internal fun <R> retried(remote: Maybe<R>): Maybe<R> =
+            remote.compose(RetryPolicy.INTERACTIVE.maybe<R>(remoteBreaker))
+
     internal fun deleteInvalidModel(model: T?, throwable: Throwable) {
         if (model == null || throwable !is HttpException) return
 
@@ -106,11 +136,17 @@ abstract class ModelRepo<T : Model<T>> {
         if (message.isInvalidObject || message.isIllegalTeamMember) deleteLocally(model)
     }
 
-    internal open fun deleteLocally(model: T): T {
-        dao().delete(model)
-        return model
+    /**
+     * Deletes the rows of [model] once the writes queued before it are committed, so they can't
+     * restore them.
+     */
+    internal fun deleteLocally(model: T): T = WriteBehind.afterPending {
+        deleteRows(model)
+        model
     }
 
+    internal open fun deleteRows(model: T) = dao().delete(model)
+
     internal fun getBody(path: CharSequence?, photoKey: String): MultipartBody.Part? {
         path ?: return null
 
@@ -129,7 +165,8 @@ abstract class ModelRepo<T : Model<T>> {
 
     companion object {
 
-        internal const val DEF_QUERY_LIMIT = 12
+        internal const val LOCAL = "local"
+        internal const val REMOTE = "remote"
 
         internal fun <R> fetchThenGet(local: Maybe<R>, remote: Maybe<R>): Flowable<R> =
                 concatDelayError(listOf(local, remote))
@@ -41,7 +41,10 @@ abstract class QueryRepo<T : Model<T>, S : Model<S>, R> : ModelRepo<T>() {
 
     fun modelsBefore(key: S, pagination: R?): Flowable<List<T>> =
             if (key.isEmpty) Flowable.just(listOf())
-            else fetchThenGet(localModelsBefore(key, pagination), remoteModelsBefore(key, pagination))
+            else fetchThenGet(
+                    inFlight.share(Triple(LOCAL, key.id, pagination), localModelsBefore(key, pagination)),
+                    inFlight.share(Triple(REMOTE, key.id, pagination), retried(remoteModelsBefore(key, pagination)))
+            )
 
     internal abstract fun localModelsBefore(key: S, pagination: R?): Maybe<List<T>>
 
@@ -47,7 +47,7 @@ class RoleRepo internal constructor() : ModelRepo<Role>() {
         get() {
             val userId = RepoProvider.forRepo(UserRepo::class.java).currentUser.id
             val local = roleDao.userRoles(userId).subscribeOn(io())
-            val remote = api.myRoles.map(saveManyFunction).toMaybe()
+            val remote = api.myRoles.map(writeBehindFunction).toMaybe()
 
             return fetchThenGet(local, remote)
         }
@@ -70,7 +70,7 @@ class RoleRepo internal constructor() : ModelRepo<Role>() {
         val local = roleDao.get(id).subscribeOn(io())
         val remote = api.getRole(id).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Role): Single<Role> =
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.repository
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.os.Build
+import android.os.PowerManager
+import android.os.SystemClock
+import com.mainstreetcode.teammate.App
+import com.mainstreetcode.teammate.BuildConfig.DEV
+import com.mainstreetcode.teammate.model.Config
+import com.mainstreetcode.teammate.model.Team
+import com.mainstreetcode.teammate.model.User
+import com.mainstreetcode.teammate.util.Logger
+import io.reactivex.Completable
+import io.reactivex.Flowable
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Warms the caches at startup. The signed in user is refreshed first, then config and roles in
+ * parallel, then the first page of each of the default team's screens, a few at a time.
+ *
+ * Pages are only prefetched when the network allows it: none when offline, in battery saver or
+ * with data saver on, and only the most visited ones on a metered network.
+ */
+object StartupPrefetch {
+
+    private const val TAG = "StartupPrefetch"
+    private const val UNMETERED_CONCURRENCY = 3
+    private const val METERED_CONCURRENCY = 1
+
+    private val pages = listOf(
+            Page("chat", metered = true) { RepoProvider.forRepo(ChatRepo::class.java).modelsBefore(it, null) },
+            Page("events", metered = true) { RepoProvider.forRepo(EventRepo::class.java).modelsBefore(it, null) },
+            Page("media", metered = false) { RepoProvider.forRepo(MediaRepo::class.java).modelsBefore(it, null) },
+            Page("games", metered = false) { RepoProvider.forRepo(GameRepo::class.java).modelsBefore(it, null) },
+            Page("members", metered = false) { RepoProvider.forRepo(TeamMemberRepo::class.java).modelsBefore(it, null) }
+    )
+
+    private val firstContent = ConcurrentHashMap<String, Long>()
+
+    /**
+     * Milliseconds from the start of the last prefetch to the first items of each page.
+     */
+    val timeToFirstContent: Map<String, Long>
+        get() = firstContent.toMap()
+
+    fun prefetch(): Completable = Completable.defer {
+        val start = SystemClock.elapsedRealtime()
+        firstContent.clear()
+
+        val userRepo = RepoProvider.forRepo(UserRepo::class.java)
+        val configRepo = RepoProvider.forRepo(ConfigRepo::class.java)
+        val roleRepo = RepoProvider.forRepo(RoleRepo::class.java)
+
+        userRepo.me.lastOrError().onErrorReturnItem(User.empty()).ignoreElement()
+                .andThen(Completable.mergeArrayDelayError(
+                        configRepo[""].lastOrError().onErrorReturnItem(Config.empty()).ignoreElement(),
+                        roleRepo.myRoles.lastOrError().onErrorReturnItem(listOf()).ignoreElement()
+                ))
+                .andThen(RepoProvider.forRepo(TeamRepo::class.java).defaultTeam
+                        .flatMapCompletable { team -> prefetchPages(team, start) })
+    }
+
+    private fun prefetchPages(team: Team, start: Long): Completable {
+        val network = currentNetwork()
+        if (network == Network.NONE) return Completable.complete()
+
+        val metered = network == Network.METERED
+        val concurrency = if (metered) METERED_CONCURRENCY else UNMETERED_CONCURRENCY
+
+        return Flowable.fromIterable(pages.filter { !metered || it.metered })
+                .flatMapCompletable({ page -> page.prefetch(team, start) }, true, concurrency)
+                .doOnComplete { if (DEV) Logger.log(TAG, "Time to first content: $firstContent") }
+    }
+
+    private fun currentNetwork(): Network {
+        val app = App.instance
+        val connectivityManager = app.getSystemService(Context.CONNECTIVITY_SERVICE) as? ConnectivityManager
+        val powerManager = app.getSystemService(Context.POWER_SERVICE) as? PowerManager
+
+        val activeNetwork = connectivityManager?.activeNetworkInfo
+        val dataSaver = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                && connectivityManager?.restrictBackgroundStatus == ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED
+
+        return when {
+            activeNetwork == null || !activeNetwork.isConnected -> Network.NONE
+            powerManager?.isPowerSaveMode == true || dataSaver -> Network.NONE
+            connectivityManager?.isActiveNetworkMetered == true -> Network.METERED
+            else -> Network.UNMETERED
+        }
+    }
+
+    private enum class Network { NONE, METERED, UNMETERED }
+
+    private class Page(
+            val name: String,
+            val metered: Boolean,
+            val load: (Team) -> Flowable<out List<*>>
+    ) {
+        fun prefetch(team: Team, start: Long): Completable = load(team)
+                .filter { it.isNotEmpty() }
+                .doOnNext { firstContent.putIfAbsent(name, SystemClock.elapsedRealtime() - start) }
+                .ignoreElements()
+                .onErrorComplete()
+    }
+}
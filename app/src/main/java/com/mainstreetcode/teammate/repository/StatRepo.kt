@@ -26,6 +26,7 @@ package com.mainstreetcode.teammate.repository
 
 
 import com.mainstreetcode.teammate.model.Game
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Stat
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.User
@@ -34,13 +35,14 @@ import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.persistence.StatDao
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.Paging
 import io.reactivex.Flowable
 import io.reactivex.Maybe
 import io.reactivex.Single
 import io.reactivex.schedulers.Schedulers.io
 import java.util.*
 
-class StatRepo internal constructor() : QueryRepo<Stat, Game, Date>() {
+class StatRepo internal constructor() : QueryRepo<Stat, Game, PageCursor>() {
 
     private val api: TeammateApi = TeammateService.getApiInstance()
     private val statDao: StatDao = AppDatabase.instance.statDao()
@@ -58,7 +60,7 @@ class StatRepo internal constructor() : QueryRepo<Stat, Game, Date>() {
         val local = statDao.get(id).subscribeOn(io())
         val remote = api.getStat(id).subscribeOn(io()).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Stat): Single<Stat> =
@@ -66,14 +68,13 @@ class StatRepo internal constructor() : QueryRepo<Stat, Game, Date>() {
                     .map { this.deleteLocally(it) }
                     .doOnError { throwable -> deleteInvalidModel(model, throwable) }
 
-    override fun localModelsBefore(key: Game, pagination: Date?): Maybe<List<Stat>> {
-        var date = pagination
-        if (date == null) date = futureDate
-        return statDao.getStats(key.id, date, DEF_QUERY_LIMIT).subscribeOn(io())
+    override fun localModelsBefore(key: Game, pagination: PageCursor?): Maybe<List<Stat>> {
+        val cursor = pagination ?: PageCursor(futureDate)
+        return statDao.getStats(key.id, cursor, Paging.pageSize).subscribeOn(io())
     }
 
-    override fun remoteModelsBefore(key: Game, pagination: Date?): Maybe<List<Stat>> =
-            api.getStats(key.id, pagination, DEF_QUERY_LIMIT).map(saveManyFunction)
+    override fun remoteModelsBefore(key: Game, pagination: PageCursor?): Maybe<List<Stat>> =
+            api.getStats(key.id, pagination?.date, pagination?.id, Paging.pageSize).map(writeBehindFunction)
                     .doOnSuccess { stats -> for (stat in stats) stat.game.update(key) }
                     .toMaybe()
 
@@ -25,6 +25,7 @@
 package com.mainstreetcode.teammate.repository
 
 import com.mainstreetcode.teammate.model.JoinRequest
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Role
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.TeamMember
@@ -33,9 +34,11 @@ import com.mainstreetcode.teammate.model.toTeamMember
 import com.mainstreetcode.teammate.persistence.AppDatabase
 import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.persistence.TeamMemberDao
+import com.mainstreetcode.teammate.persistence.WriteBehind
 import com.mainstreetcode.teammate.repository.RepoProvider.Companion.forModel
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.Paging
 import com.mainstreetcode.teammate.util.TeammateException
 import io.reactivex.Flowable
 import io.reactivex.Maybe
@@ -68,14 +71,14 @@ class TeamMemberRepo internal constructor() : TeamQueryRepo<TeamMember>() {
         else -> Single.error(TeammateException("Unimplemented"))
     }
 
-    override fun localModelsBefore(key: Team, pagination: Date?): Maybe<List<TeamMember>> {
-        val date = pagination ?: Date()
+    override fun localModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<TeamMember>> {
+        val cursor = pagination ?: PageCursor(Date())
 
         val database = AppDatabase.instance
         val teamId = key.id
 
-        val rolesMaybe = database.roleDao().getRoles(key.id, date, DEF_QUERY_LIMIT).defaultIfEmpty(ArrayList())
-        val requestsMaybe = database.joinRequestDao().getRequests(teamId, date, DEF_QUERY_LIMIT).defaultIfEmpty(ArrayList())
+        val rolesMaybe = database.roleDao().getRoles(key.id, cursor, Paging.pageSize).defaultIfEmpty(ArrayList())
+        val requestsMaybe = database.joinRequestDao().getRequests(teamId, cursor, Paging.pageSize).defaultIfEmpty(ArrayList())
 
         return Maybes.zip<List<Role>, List<JoinRequest>, List<TeamMember>>(rolesMaybe, requestsMaybe, { roles, requests ->
             val result = ArrayList<TeamMember>(roles.size + requests.size)
@@ -83,7 +86,8 @@ class TeamMemberRepo internal constructor() : TeamQueryRepo<TeamMember>() {
             for (role in roles) result.add(role.toTeamMember())
             for (request in requests) result.add(request.toTeamMember())
 
-            result
+            // Both pages share the cursor, keep only the members of the merged page before the next one
+            result.sortedByDescending { PageCursor(it.created, it.id) }.take(Paging.pageSize)
         }).subscribeOn(io())
     }
 
@@ -101,13 +105,13 @@ class TeamMemberRepo internal constructor() : TeamQueryRepo<TeamMember>() {
 
     private fun invoke(request: JoinRequest, apiSingle: Single<Role>): Single<TeamMember> = request.toTeamMember().let {
         apiSingle.map(forModel(Role::class.java).saveFunction)
-                .doOnSuccess { AppDatabase.instance.joinRequestDao().delete(request) }
+                .doOnSuccess { WriteBehind.afterPending { AppDatabase.instance.joinRequestDao().delete(request) } }
                 .map { _ -> it }
                 .doOnError { throwable -> deleteInvalidModel(it, throwable) }
     }
 
-    override fun remoteModelsBefore(key: Team, pagination: Date?): Maybe<List<TeamMember>> =
-            api.getTeamMembers(key.id, pagination, DEF_QUERY_LIMIT).toMaybe().map(saveManyFunction)
+    override fun remoteModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<TeamMember>> =
+            api.getTeamMembers(key.id, pagination?.date, pagination?.id, Paging.pageSize).toMaybe().map(writeBehindFunction)
 
     override fun provideSaveManyFunction(): (List<TeamMember>) -> List<TeamMember> = { models ->
         models.split { roles, requests ->
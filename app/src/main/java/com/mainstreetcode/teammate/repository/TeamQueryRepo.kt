@@ -26,8 +26,7 @@ package com.mainstreetcode.teammate.repository
 
 
 import com.mainstreetcode.teammate.model.Model
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Team
 
-import java.util.Date
-
-abstract class TeamQueryRepo<T : Model<T>> internal constructor() : QueryRepo<T, Team, Date>()
+abstract class TeamQueryRepo<T : Model<T>> internal constructor() : QueryRepo<T, Team, PageCursor>()
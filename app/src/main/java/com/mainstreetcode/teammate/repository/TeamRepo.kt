@@ -77,7 +77,7 @@ class TeamRepo internal constructor() : ModelRepo<Team>() {
         val local = teamDao.get(id).subscribeOn(io())
         val remote = api.getTeam(id).map(saveFunction).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Team): Single<Team> =
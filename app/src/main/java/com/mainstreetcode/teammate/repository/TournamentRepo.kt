@@ -26,6 +26,7 @@ package com.mainstreetcode.teammate.repository
 
 
 import com.mainstreetcode.teammate.model.Competitor
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.Tournament
 import com.mainstreetcode.teammate.model.User
@@ -34,6 +35,7 @@ import com.mainstreetcode.teammate.persistence.EntityDao
 import com.mainstreetcode.teammate.persistence.TournamentDao
 import com.mainstreetcode.teammate.rest.TeammateApi
 import com.mainstreetcode.teammate.rest.TeammateService
+import com.mainstreetcode.teammate.util.Paging
 import io.reactivex.Flowable
 import io.reactivex.Maybe
 import io.reactivex.Single
@@ -71,23 +73,22 @@ class TournamentRepo internal constructor() : TeamQueryRepo<Tournament>() {
         val local = tournamentDao.get(id).subscribeOn(io())
         val remote = api.getTournament(id).map(saveFunction).toMaybe()
 
-        return fetchThenGetModel(local, remote)
+        return fetchThenGetModel(id, local, remote)
     }
 
     override fun delete(model: Tournament): Single<Tournament> = api.deleteTournament(model.id)
             .map { this.deleteLocally(it) }
             .doOnError { throwable -> deleteInvalidModel(model, throwable) }
 
-    override fun localModelsBefore(key: Team, pagination: Date?): Maybe<List<Tournament>> {
-        var date = pagination
-        if (date == null) date = futureDate
+    override fun localModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Tournament>> {
+        val cursor = pagination ?: PageCursor(futureDate)
         // To concatenate team to account for the way the id is stored in the db to accommodate users and teams
         val teamId = key.id
-        return tournamentDao.getTournaments(teamId, date, DEF_QUERY_LIMIT).subscribeOn(io())
+        return tournamentDao.getTournaments(teamId, cursor, Paging.pageSize).subscribeOn(io())
     }
 
-    override fun remoteModelsBefore(key: Team, pagination: Date?): Maybe<List<Tournament>> =
-            api.getTournaments(key.id, pagination, DEF_QUERY_LIMIT).map(saveManyFunction).toMaybe()
+    override fun remoteModelsBefore(key: Team, pagination: PageCursor?): Maybe<List<Tournament>> =
+            api.getTournaments(key.id, pagination?.date, pagination?.id, Paging.pageSize).map(writeBehindFunction).toMaybe()
 
     override fun provideSaveManyFunction(): (List<Tournament>) -> List<Tournament> = { models ->
         val size = models.size
@@ -118,8 +119,8 @@ class TournamentRepo internal constructor() : TeamQueryRepo<Tournament>() {
         models
     }
 
-    override fun deleteLocally(model: Tournament): Tournament {
+    override fun deleteRows(model: Tournament) {
         tournamentDao.deleteTournamentEvents(model.id)
-        return super.deleteLocally(model)
+        super.deleteRows(model)
     }
 }
@@ -178,7 +178,10 @@ class UserRepo internal constructor() : ModelRepo<User>() {
 
     private fun clearTables(): Single<Boolean> {
         val database = AppDatabase.instance
-        return database.clearTables().flatMap { clearUser() }.onErrorReturn { false }
+        return database.clearTables()
+                .doOnSuccess { TeammateService.evictHttpCache() }
+                .flatMap { clearUser() }
+                .onErrorReturn { false }
     }
 
     /**
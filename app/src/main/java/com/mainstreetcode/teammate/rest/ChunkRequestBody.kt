@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.rest
+
+import android.net.Uri
+import android.os.SystemClock
+import com.mainstreetcode.teammate.App
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import okio.BufferedSink
+import okio.Okio
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import kotlin.math.min
+
+/**
+ * The [count] bytes of the file at [uri] starting at [offset], streamed straight from the
+ * content resolver each time the body is written.
+ *
+ * [onProgress] is called with the bytes of the chunk sent so far, at most once every
+ * [PROGRESS_INTERVAL_MILLIS] and once the whole chunk is sent. Like [ProgressRequestBody], the
+ * first [numWriteToCallsToIgnore] writes are taken to be for logging and are not reported.
+ */
+class ChunkRequestBody(
+        private val uri: Uri,
+        private val mediaType: MediaType,
+        private val offset: Long,
+        private val count: Long,
+        private val numWriteToCallsToIgnore: Int = 0,
+        private val onProgress: (Long) -> Unit = {}
+) : RequestBody() {
+
+    private var numWriteToCalls: Int = 0
+
+    override fun contentType(): MediaType? = mediaType
+
+    override fun contentLength(): Long = count
+
+    @Throws(IOException::class)
+    override fun writeTo(sink: BufferedSink) {
+        val stream = App.instance.contentResolver.openInputStream(uri)
+                ?: throw IOException("Unable to create stream from URI")
+
+        val isUploading = ++numWriteToCalls > numWriteToCallsToIgnore
+
+        stream.use {
+            skipFully(it, offset)
+
+            val source = Okio.source(it)
+            val buffer = sink.buffer()
+            var sent = 0L
+            var lastPublished = SystemClock.elapsedRealtime()
+
+            while (sent < count) {
+                val read = source.read(buffer, min(TRANSFER_SIZE, count - sent))
+                if (read == -1L) throw EOFException("Chunk ends past the end of $uri")
+
+                sink.emitCompleteSegments()
+                sent += read
+
+                if (!isUploading) continue
+
+                val now = SystemClock.elapsedRealtime()
+                if (now - lastPublished < PROGRESS_INTERVAL_MILLIS) continue
+
+                onProgress(sent)
+                lastPublished = now
+            }
+        }
+
+        if (isUploading) onProgress(count)
+    }
+
+    // InputStream.skip may skip fewer bytes than asked, or none at all without being at the end
+    private fun skipFully(stream: InputStream, bytes: Long) {
+        var remaining = bytes
+        while (remaining > 0) {
+            val skipped = stream.skip(remaining)
+            remaining -= when {
+                skipped > 0 -> skipped
+                stream.read() != -1 -> 1
+                else -> throw EOFException("Chunk starts past the end of $uri")
+            }
+        }
+    }
+
+    companion object {
+
+        // A multiple of Okio's 8 KiB segment size
+        private const val TRANSFER_SIZE = 64L * 1024
+        private const val PROGRESS_INTERVAL_MILLIS = 250L
+    }
+}
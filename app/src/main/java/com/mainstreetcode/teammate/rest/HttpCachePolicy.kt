@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.rest
+
+import okhttp3.Cache
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import okhttp3.Response
+import java.io.File
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Disk caching rules for API responses. The server's own cache headers are replaced by a
+ * per endpoint [Rule], so responses carrying an ETag or Last-Modified header are revalidated
+ * with a conditional request instead of being downloaded again. Endpoints without a rule keep
+ * the server's Cache-Control, and are revalidated only when the server sent none.
+ *
+ * Every response is tagged with its [Outcome] in the [OUTCOME_HEADER] header.
+ */
+object HttpCachePolicy {
+
+    const val OUTCOME_HEADER = "Teammate-Cache"
+
+    private const val CACHE_DIRECTORY = "http"
+    private const val CACHE_SIZE = 10L * 1024 * 1024
+    private const val CACHE_CONTROL = "Cache-Control"
+    private const val PRAGMA = "Pragma"
+    private const val ETAG = "ETag"
+    private const val LAST_MODIFIED = "Last-Modified"
+    private const val GET = "GET"
+    private const val HTTP_NOT_MODIFIED = 304
+
+    // First match wins, anything unmatched is revalidated unless the server sent its own Cache-Control
+    private val rules = listOf(
+            // GETs with side effects
+            "/api/signOut" to Rule.NoStore,
+            "/api/join-requests/[^/]+/(approve|accept)" to Rule.NoStore,
+            "/api/events/[^/]+/rsvpGuest" to Rule.NoStore,
+            "/api/media/[^/]+/flag" to Rule.NoStore,
+
+            "/api/config" to Rule.FreshFor(TimeUnit.HOURS.toSeconds(6)),
+            "/api/me/feed" to Rule.Revalidate,
+            "/api/teams/[^/]+" to Rule.FreshFor(TimeUnit.MINUTES.toSeconds(1))
+    ).map { (path, rule) -> Regex(path) to rule }
+
+    private val hits = AtomicLong()
+    private val revalidations = AtomicLong()
+    private val misses = AtomicLong()
+    private val bytesSaved = AtomicLong()
+
+    val stats: Stats
+        get() = Stats(hits.get(), revalidations.get(), misses.get(), bytesSaved.get())
+
+    fun cache(cacheDirectory: File): Cache = Cache(File(cacheDirectory, CACHE_DIRECTORY), CACHE_SIZE)
+
+    /**
+     * Adds the cache and the interceptors enforcing this policy to the client being built.
+     */
+    fun install(builder: OkHttpClient.Builder, cache: Cache): OkHttpClient.Builder = builder
+            .cache(cache)
+            .addInterceptor(Interceptor { tagOutcome(it) })
+            .addNetworkInterceptor(Interceptor { applyRule(it) })
+
+    fun ruleFor(path: String): Rule = matchingRule(path) ?: Rule.Revalidate
+
+    private fun matchingRule(path: String): Rule? = rules.firstOrNull { (regex, _) -> regex.matches(path) }?.second
+
+    private fun applyRule(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val response = chain.proceed(request)
+
+        // A 304's headers replace the stored ones, so they are rewritten as well
+        val storable = response.isSuccessful || response.code() == HTTP_NOT_MODIFIED
+        if (request.method() != GET || !storable) return response
+
+        val rule = matchingRule(request.url().encodedPath())
+                ?: if (response.header(CACHE_CONTROL) == null) Rule.Revalidate else return response
+
+        // Revalidating needs a validator, without one the stored copy could never be reused
+        val cacheControl =
+                if (rule == Rule.Revalidate && !hasValidator(response)) Rule.NoStore.cacheControl
+                else rule.cacheControl
+
+        return response.newBuilder()
+                .removeHeader(PRAGMA)
+                .header(CACHE_CONTROL, cacheControl)
+                .build()
+    }
+
+    // A 304 only answers a conditional request, so the stored response already has a validator
+    private fun hasValidator(response: Response): Boolean = response.code() == HTTP_NOT_MODIFIED ||
+            response.header(ETAG) != null ||
+            response.header(LAST_MODIFIED) != null
+
+    private fun tagOutcome(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val response = chain.proceed(request)
+
+        val networkResponse = response.networkResponse()
+        val cacheResponse = response.cacheResponse()
+
+        val outcome = when {
+            request.method() != GET || ruleFor(request.url().encodedPath()) == Rule.NoStore -> Outcome.BYPASS
+            networkResponse == null && cacheResponse != null -> Outcome.HIT
+            networkResponse?.code() == HTTP_NOT_MODIFIED -> Outcome.REVALIDATED
+            else -> Outcome.MISS
+        }
+
+        when (outcome) {
+            Outcome.HIT -> hits.incrementAndGet()
+            Outcome.REVALIDATED -> revalidations.incrementAndGet()
+            Outcome.MISS -> misses.incrementAndGet()
+            Outcome.BYPASS -> Unit
+        }
+
+        if (outcome == Outcome.HIT || outcome == Outcome.REVALIDATED)
+            bytesSaved.addAndGet(response.body()?.contentLength()?.coerceAtLeast(0) ?: 0)
+
+        return response.newBuilder().header(OUTCOME_HEADER, outcome.name).build()
+    }
+
+    sealed class Rule(internal val cacheControl: String) {
+        /**
+         * Stored if it has an ETag or Last-Modified header, but checked with the server before
+         * every use.
+         */
+        object Revalidate : Rule("no-cache")
+
+        /**
+         * Served from the cache without a request until it is older than [seconds].
+         */
+        class FreshFor(seconds: Long) : Rule("max-age=$seconds")
+
+        /**
+         * Never stored.
+         */
+        object NoStore : Rule("no-store")
+    }
+
+    enum class Outcome { HIT, REVALIDATED, MISS, BYPASS }
+
+    data class Stats(val hits: Long, val revalidations: Long, val misses: Long, val bytesSaved: Long) {
+
+        val hitRatio: Float
+            get() = (hits + revalidations).let { served ->
+                if (served + misses == 0L) 0F else served.toFloat() / (served + misses)
+            }
+    }
+}
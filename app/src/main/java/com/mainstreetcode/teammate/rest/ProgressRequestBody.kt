@@ -25,19 +25,26 @@
 package com.mainstreetcode.teammate.rest
 
 
+import android.content.res.AssetFileDescriptor
 import android.net.Uri
-
+import android.os.SystemClock
 import com.mainstreetcode.teammate.App
-
-import java.io.IOException
-import java.io.InputStream
-
 import io.reactivex.Flowable
 import io.reactivex.processors.PublishProcessor
 import okhttp3.MediaType
 import okhttp3.RequestBody
 import okio.BufferedSink
+import okio.Okio
+import java.io.IOException
 
+/**
+ * Streams the file at [uri] into the request through Okio, moving whole segments from the file
+ * into the sink rather than copying through a small intermediate array.
+ *
+ * The length comes from the file's [AssetFileDescriptor], so the request carries a
+ * Content-Length instead of being chunked, and progress is published at most once every
+ * [PROGRESS_INTERVAL_MILLIS] however fast or slow the upload is.
+ */
 class ProgressRequestBody(
         private val uri: Uri,
         private val numWriteToCallsToIgnore: Int,
@@ -47,11 +54,22 @@ class ProgressRequestBody(
     private var numWriteToCalls: Int = 0
     private val processor = PublishProcessor.create<Int>()
 
+    private val length: Long by lazy {
+        try {
+            App.instance.contentResolver.openAssetFileDescriptor(uri, "r")?.use { it.length }
+                    ?: AssetFileDescriptor.UNKNOWN_LENGTH
+        } catch (exception: Exception) {
+            AssetFileDescriptor.UNKNOWN_LENGTH
+        }
+    }
+
     val progressFlowable: Flowable<Int>
         get() = processor
 
     override fun contentType(): MediaType? = mediaType
 
+    override fun contentLength(): Long = length
+
     @Throws(IOException::class)
     override fun writeTo(sink: BufferedSink) {
         numWriteToCalls++
@@ -61,58 +79,44 @@ class ProgressRequestBody(
         // the second call to write to is the progress we actually want to track
         val isUploading = numWriteToCalls > numWriteToCallsToIgnore
 
-        val `in`: InputStream?
-
         try {
-            `in` = App.instance.contentResolver.openInputStream(uri)
-        } catch (exception: Exception) {
-            processor.onError(exception)
-            throw exception
-        }
-
-        if (`in` == null) {
-            val exception = IOException("Unable to create stream from URI")
-            processor.onError(exception)
-            throw exception
-        }
+            val stream = App.instance.contentResolver.openInputStream(uri)
+                    ?: throw IOException("Unable to create stream from URI")
 
-        var uploaded = 0f
-        val fileLength = `in`.available().toFloat()
-        val buffer = ByteArray(UPLOAD_BUFFER_SIZE)
+            Okio.source(stream).use { source ->
+                val buffer = sink.buffer()
+                var uploaded = 0L
+                var lastPublished = SystemClock.elapsedRealtime()
 
-        try {
-            var overallProgress = 0f
-            var read: Int
-            read = `in`.read(buffer)
+                while (true) {
+                    val read = source.read(buffer, TRANSFER_SIZE)
+                    if (read == -1L) break
 
-            while (read != -1) {
-                uploaded += read.toFloat()
-                sink.write(buffer, 0, read)
-                read = `in`.read(buffer)
+                    sink.emitCompleteSegments()
+                    uploaded += read
 
-                if (!isUploading) continue
-                val currentProgress = uploaded / fileLength * 100
+                    if (!isUploading || length <= 0) continue
 
-                // prevent publishing too many updates, which slows upload,
-                // by checking if the upload has progressed by at least 1 percent
-                if (currentProgress - overallProgress <= 1) continue
+                    val now = SystemClock.elapsedRealtime()
+                    if (now - lastPublished < PROGRESS_INTERVAL_MILLIS) continue
 
-                // publish progress
-                processor.onNext(currentProgress.toInt())
-                overallProgress = currentProgress
+                    processor.onNext((uploaded * 100 / length).toInt())
+                    lastPublished = now
+                }
             }
 
+            if (isUploading) processor.onNext(100)
             if (isUploading) processor.onComplete()
         } catch (exception: Exception) {
             processor.onError(exception)
             throw exception
         }
-
     }
 
     companion object {
 
-        private const val UPLOAD_BUFFER_SIZE = 2048
+        // A multiple of Okio's 8 KiB segment size
+        private const val TRANSFER_SIZE = 64L * 1024
+        private const val PROGRESS_INTERVAL_MILLIS = 250L
     }
 }
-
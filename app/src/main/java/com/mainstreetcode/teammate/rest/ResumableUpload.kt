@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.rest
+
+import android.net.Uri
+import com.mainstreetcode.teammate.model.Media
+import io.reactivex.Single
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import retrofit2.HttpException
+import retrofit2.Response
+import kotlin.math.min
+
+/**
+ * Uploads a file to a team in chunks of [chunkSize] bytes, each described by a Content-Range
+ * header. The server answers every chunk but the last with a 308 and the Range it has committed,
+ * and the last with the created [Media].
+ *
+ * A failed chunk is retried from wherever the server says it stopped, so an interrupted upload
+ * only resends what was lost rather than the whole file.
+ */
+class ResumableUpload(
+        private val api: TeammateApi,
+        private val teamId: String,
+        private val uploadId: String,
+        private val uri: Uri,
+        private val mediaType: MediaType,
+        private val length: Long,
+        private val chunkSize: Long = DEFAULT_CHUNK_SIZE,
+        private val numWriteToCallsToIgnore: Int = 0
+) {
+
+    /**
+     * Uploads from [offset], calling [onCommitted] with the number of bytes the server holds
+     * after each chunk, and [onProgress] with the bytes sent so far as each chunk is written. A
+     * non zero offset is confirmed with the server before anything is sent, as the chunk in
+     * flight when the upload was interrupted may or may not have been committed.
+     */
+    fun upload(offset: Long, onProgress: (Long) -> Unit, onCommitted: (Long) -> Unit): Single<Media> =
+            (if (offset > 0) status() else Single.just<Step>(Step.Partial(0)))
+                    .flatMap { continueFrom(it, onProgress, onCommitted) }
+
+    private fun continueFrom(step: Step, onProgress: (Long) -> Unit, onCommitted: (Long) -> Unit): Single<Media> = when (step) {
+        is Step.Complete -> Single.just(step.media)
+        is Step.Partial -> {
+            onCommitted(step.committed)
+            chunkFrom(step.committed, onProgress).flatMap { continueFrom(it, onProgress, onCommitted) }
+        }
+    }
+
+    // After a failure the server may hold some, all or none of the chunk, so retries ask it first
+    private fun chunkFrom(offset: Long, onProgress: (Long) -> Unit): Single<Step> {
+        var failed = false
+
+        return Single.defer {
+            if (!failed) send(offset, onProgress)
+            else status().flatMap { if (it is Step.Partial) send(it.committed, onProgress) else Single.just(it) }
+        }
+                .doOnError { failed = true }
+                .compose(CHUNK_RETRY_POLICY.single<Step>())
+    }
+
+    private fun send(offset: Long, onProgress: (Long) -> Unit): Single<Step> {
+        val end = min(offset + chunkSize, length) - 1
+        val chunk = ChunkRequestBody(uri, mediaType, offset, end - offset + 1, numWriteToCallsToIgnore) { sent ->
+            onProgress(offset + sent)
+        }
+
+        return api.uploadTeamMediaChunk(teamId, uploadId, "bytes $offset-$end/$length", chunk).map(this::toStep)
+    }
+
+    private fun status(): Single<Step> =
+            api.uploadTeamMediaChunk(teamId, uploadId, "bytes */$length", RequestBody.create(null, ByteArray(0))).map(this::toStep)
+
+    private fun toStep(response: Response<Media>): Step {
+        val media = response.body()
+        return when {
+            response.isSuccessful && media != null -> Step.Complete(media)
+            response.code() == RESUME_INCOMPLETE -> Step.Partial(committedBytes(response.headers().get(RANGE)))
+            else -> throw HttpException(response)
+        }
+    }
+
+    private sealed class Step {
+        class Partial(val committed: Long) : Step()
+        class Complete(val media: Media) : Step()
+    }
+
+    companion object {
+
+        const val DEFAULT_CHUNK_SIZE = 512L * 1024
+
+        private const val RANGE = "Range"
+        private const val RESUME_INCOMPLETE = 308
+
+        private val CHUNK_RETRY_POLICY = RetryPolicy(maxRetries = 4, baseDelayMillis = 1_000, maxDelayMillis = 20_000)
+
+        /**
+         * The bytes committed according to a Range header such as "bytes=0-1023", or none if
+         * the header is missing.
+         */
+        fun committedBytes(range: String?): Long =
+                range?.substringAfterLast('-')?.toLongOrNull()?.plus(1) ?: 0
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.rest
+
+import android.os.SystemClock
+import com.google.gson.JsonParseException
+import com.mainstreetcode.teammate.util.TeammateException
+import io.reactivex.CompletableTransformer
+import io.reactivex.Flowable
+import io.reactivex.FlowableTransformer
+import io.reactivex.MaybeTransformer
+import io.reactivex.SingleTransformer
+import retrofit2.HttpException
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.math.min
+
+/**
+ * Retries transient failures with exponential backoff and full jitter.
+ *
+ * Retries are drawn from a [budget][RetryBudget] shared by every policy that successes refill,
+ * so a failing backend sees at most a trickle of retries. Sources guarded by a [CircuitBreaker]
+ * fail fast with a [CircuitOpenException] while the breaker is open.
+ */
+class RetryPolicy(
+        private val maxRetries: Int,
+        private val baseDelayMillis: Long,
+        private val maxDelayMillis: Long,
+        private val isRetryable: (Throwable) -> Boolean = ::isTransient
+) {
+
+    fun <T> single(breaker: CircuitBreaker? = null): SingleTransformer<T, T> = SingleTransformer { upstream ->
+        upstream.toFlowable().compose(flowable<T>(breaker)).singleOrError()
+    }
+
+    fun <T> maybe(breaker: CircuitBreaker? = null): MaybeTransformer<T, T> = MaybeTransformer { upstream ->
+        upstream.toFlowable().compose(flowable<T>(breaker)).singleElement()
+    }
+
+    fun completable(breaker: CircuitBreaker? = null): CompletableTransformer = CompletableTransformer { upstream ->
+        upstream.toFlowable<Unit>().compose(flowable<Unit>(breaker)).ignoreElements()
+    }
+
+    /**
+     * Resubscribes to the source on retryable errors. For long lived sources, the retry count
+     * starts over every time an item is received.
+     */
+    fun <T> flowable(breaker: CircuitBreaker? = null): FlowableTransformer<T, T> = FlowableTransformer { upstream ->
+        Flowable.defer {
+            val attempts = AtomicInteger()
+
+            guard(upstream, breaker)
+                    .doOnNext { attempts.set(0) }
+                    .retryWhen { errors -> errors.flatMap { backOff(it, attempts.incrementAndGet()) } }
+        }
+    }
+
+    private fun <T> guard(upstream: Flowable<T>, breaker: CircuitBreaker?): Flowable<T> = Flowable.defer {
+        if (breaker != null && !breaker.tryAcquire()) return@defer Flowable.error<T>(CircuitOpenException(breaker.name))
+
+        upstream
+                .doOnNext { onSuccess(breaker) }
+                .doOnComplete { onSuccess(breaker) }
+                .doOnError { if (isRetryable(it)) breaker?.onFailure() else breaker?.onSuccess() }
+    }
+
+    private fun backOff(error: Throwable, attempt: Int): Flowable<Long> = when {
+        error is CircuitOpenException || !isRetryable(error) || attempt > maxRetries -> Flowable.error(error)
+        !RetryBudget.tryWithdraw() -> Flowable.error<Long>(error).also { budgetExhausted.incrementAndGet() }
+        else -> Flowable.timer(jitteredDelay(attempt - 1, baseDelayMillis, maxDelayMillis), TimeUnit.MILLISECONDS)
+                .also { retries.incrementAndGet() }
+    }
+
+    private fun onSuccess(breaker: CircuitBreaker?) {
+        RetryBudget.deposit()
+        breaker?.onSuccess()
+    }
+
+    data class Metrics(val retries: Long, val budgetExhausted: Long, val shortCircuits: Long, val openCircuits: List<String>)
+
+    companion object {
+
+        private const val MAX_SHIFT = 20
+
+        private val retries = AtomicLong()
+        private val budgetExhausted = AtomicLong()
+
+        /**
+         * For reads a user is waiting on.
+         */
+        val INTERACTIVE = RetryPolicy(maxRetries = 2, baseDelayMillis = 250, maxDelayMillis = 2_000)
+
+        /**
+         * For refreshes nobody is waiting on.
+         */
+        val BACKGROUND = RetryPolicy(maxRetries = 6, baseDelayMillis = 3_000, maxDelayMillis = 60_000)
+
+        val metrics: Metrics
+            get() = Metrics(retries.get(), budgetExhausted.get(), CircuitBreaker.shortCircuits, CircuitBreaker.openCircuits)
+
+        /**
+         * A delay picked uniformly up to [baseDelayMillis] doubled [attempt] times, capped at
+         * [maxDelayMillis]. Full jitter keeps clients failing together from retrying together.
+         */
+        fun jitteredDelay(attempt: Int, baseDelayMillis: Long, maxDelayMillis: Long): Long {
+            val ceiling = min(maxDelayMillis, baseDelayMillis shl min(attempt, MAX_SHIFT))
+            return ThreadLocalRandom.current().nextLong(ceiling + 1)
+        }
+
+        /**
+         * Network failures, timeouts and server errors, but not client errors or malformed responses.
+         */
+        fun isTransient(throwable: Throwable): Boolean = when (throwable) {
+            is CircuitOpenException, is JsonParseException -> false
+            is HttpException -> throwable.code().let { it >= 500 || it == 408 || it == 429 }
+            is IOException, is TimeoutException -> true
+            else -> throwable.cause?.let(::isTransient) ?: false
+        }
+    }
+}
+
+/**
+ * Opens after [failureThreshold] consecutive transient failures, rejecting calls for [openMillis].
+ * A single trial call is then let through, closing the breaker if it succeeds.
+ */
+class CircuitBreaker private constructor(
+        val name: String,
+        private val failureThreshold: Int,
+        private val openMillis: Long
+) {
+
+    private var failures = 0
+    private var openedAt = 0L
+    private var trialStartedAt = 0L
+
+    val isOpen: Boolean
+        @Synchronized get() = failures >= failureThreshold
+
+    @Synchronized
+    fun tryAcquire(): Boolean {
+        if (failures < failureThreshold) return true
+
+        val now = SystemClock.elapsedRealtime()
+        val trialPending = trialStartedAt > openedAt && now - trialStartedAt < openMillis
+
+        if (now - openedAt < openMillis || trialPending) {
+            rejected.incrementAndGet()
+            return false
+        }
+
+        trialStartedAt = now
+        return true
+    }
+
+    // Called for any response from the backend, including client errors
+    @Synchronized
+    fun onSuccess() {
+        failures = 0
+    }
+
+    @Synchronized
+    fun onFailure() {
+        if (++failures >= failureThreshold) openedAt = SystemClock.elapsedRealtime()
+    }
+
+    companion object {
+
+        private const val FAILURE_THRESHOLD = 5
+        private val OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30)
+
+        private val breakers = ConcurrentHashMap<String, CircuitBreaker>()
+        private val rejected = AtomicLong()
+
+        internal val shortCircuits: Long
+            get() = rejected.get()
+
+        internal val openCircuits: List<String>
+            get() = breakers.values.filter(CircuitBreaker::isOpen).map(CircuitBreaker::name)
+
+        fun named(name: String): CircuitBreaker =
+                breakers.getOrPut(name) { CircuitBreaker(name, FAILURE_THRESHOLD, OPEN_MILLIS) }
+    }
+}
+
+class CircuitOpenException(name: String) : TeammateException("$name is unavailable, try again shortly")
+
+/**
+ * Token bucket shared by every [RetryPolicy]. Each retry spends a token and each success earns
+ * back a tenth of one, retries stop while the bucket is at most half full.
+ */
+internal object RetryBudget {
+
+    private const val TOKEN = 10
+    private const val CAPACITY = 10 * TOKEN
+
+    private val tokens = AtomicInteger(CAPACITY)
+
+    fun tryWithdraw(): Boolean {
+        while (true) {
+            val current = tokens.get()
+            if (current <= CAPACITY / 2) return false
+            if (tokens.compareAndSet(current, current - TOKEN)) return true
+        }
+    }
+
+    fun deposit() {
+        while (true) {
+            val current = tokens.get()
+            if (current >= CAPACITY || tokens.compareAndSet(current, current + 1)) return
+        }
+    }
+}
@@ -56,9 +56,12 @@ import java.util.List;
 
 import io.reactivex.Single;
 import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import retrofit2.Response;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Multipart;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
@@ -82,8 +85,11 @@ public interface TeammateApi {
     String COMPETITOR_PATH = "competitorId";
 
     String DATE_QUERY = "date";
+    String CURSOR_ID_QUERY = "cursorId";
     String LIMIT_QUERY = "limit";
 
+    String CONTENT_RANGE = "Content-Range";
+
     @GET("api/config")
     Single<Config> getConfig();
 
@@ -152,7 +158,7 @@ public interface TeammateApi {
     Single<List<Team>> findTeam(@Query("name") String teamName, @Query("screenName") String screenName,@Query("sport") String sport);
 
     @GET("api/teams/{id}/members")
-    Single<List<TeamMember>> getTeamMembers(@Path(ID_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<TeamMember>> getTeamMembers(@Path(ID_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     // =============================================================================================
     // Role endpoints
@@ -201,7 +207,7 @@ public interface TeammateApi {
     // =============================================================================================
 
     @GET("/api/teams/{teamId}/events")
-    Single<List<Event>> getEvents(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<Event>> getEvents(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     @GET("/api/events/attending")
     Single<List<Event>> eventsAttending(@Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
@@ -223,7 +229,7 @@ public interface TeammateApi {
     Single<Event> getEvent(@Path(ID_PATH) String eventId);
 
     @GET("api/events/{id}/guests")
-    Single<List<Guest>> getEventGuests(@Path(ID_PATH) String eventId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<Guest>> getEventGuests(@Path(ID_PATH) String eventId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     @DELETE("api/events/{id}")
     Single<Event> deleteEvent(@Path(ID_PATH) String eventId);
@@ -245,7 +251,7 @@ public interface TeammateApi {
     Single<Chat> deleteChat(@Path(ID_PATH) String chatId);
 
     @GET("/api/teams/{teamId}/chats")
-    Single<List<Chat>> chatsBefore(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<Chat>> chatsBefore(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     // =============================================================================================
     // Team Media endpoints
@@ -261,12 +267,15 @@ public interface TeammateApi {
     Single<Media> deleteMedia(@Path("mediaId") String mediaId);
 
     @GET("/api/teams/{teamId}/media")
-    Single<List<Media>> getTeamMedia(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<Media>> getTeamMedia(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     @Multipart
     @POST("api/teams/{teamId}/media")
     Single<Media> uploadTeamMedia(@Path(TEAM_PATH) String teamId, @Part MultipartBody.Part file);
 
+    @PUT("api/teams/{teamId}/media/uploads/{uploadId}")
+    Single<Response<Media>> uploadTeamMediaChunk(@Path(TEAM_PATH) String teamId, @Path("uploadId") String uploadId, @Header(CONTENT_RANGE) String contentRange, @Body RequestBody chunk);
+
     @POST("api/media/delete")
     Single<List<Media>> deleteMedia(@Body List<Media> delete);
 
@@ -294,7 +303,7 @@ public interface TeammateApi {
     Single<BlockedUser> unblockUser(@Path(ID_PATH) String teamId, @Body BlockedUser blockedUser);
 
     @GET("api/teams/{id}/blocked")
-    Single<List<BlockedUser>> blockedUsers(@Path(ID_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<BlockedUser>> blockedUsers(@Path(ID_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     // =============================================================================================
     // Tournament endpoints
@@ -317,7 +326,7 @@ public interface TeammateApi {
     Single<Tournament> deleteTournament(@Path(ID_PATH) String tournamentId);
 
     @GET("api/teams/{teamId}/tournaments")
-    Single<List<Tournament>> getTournaments(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<Tournament>> getTournaments(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     @GET("api/tournaments/{tournamentId}/competitors")
     Single<List<Competitor>> getCompetitors(@Path(TOURNAMENT_PATH) String tournamentId);
@@ -348,7 +357,7 @@ public interface TeammateApi {
     Single<Game> deleteGame(@Path(GAME_PATH) String gameId);
 
     @GET("api/teams/{teamId}/games")
-    Single<List<Game>> getGames(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<Game>> getGames(@Path(TEAM_PATH) String teamId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     @GET("api/tournaments/{tournamentId}/games")
     Single<List<Game>> getGamesForRound(@Path(TOURNAMENT_PATH) String tournamentId, @Query("round") int round, @Query(LIMIT_QUERY) int limit);
@@ -389,7 +398,7 @@ public interface TeammateApi {
     Single<Stat> deleteStat(@Path(STAT_PATH) String statId);
 
     @GET("api/games/{gameId}/stats")
-    Single<List<Stat>> getStats(@Path(GAME_PATH) String gameId, @Query(DATE_QUERY) Date date, @Query(LIMIT_QUERY) int limit);
+    Single<List<Stat>> getStats(@Path(GAME_PATH) String gameId, @Query(DATE_QUERY) Date date, @Query(CURSOR_ID_QUERY) String cursorId, @Query(LIMIT_QUERY) int limit);
 
     @POST("api/stats/aggregate")
     Single<StatAggregate.Result> statsAggregate(@Body StatAggregate.Request request);
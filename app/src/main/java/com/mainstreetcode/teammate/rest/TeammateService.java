@@ -90,6 +90,7 @@ import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 
 import io.reactivex.schedulers.Schedulers;
+import okhttp3.Cache;
 import okhttp3.Cookie;
 import okhttp3.CookieJar;
 import okhttp3.HttpUrl;
@@ -123,6 +124,7 @@ public class TeammateService {
             loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.NONE);
 
             OkHttpClient.Builder builder = new OkHttpClient.Builder().cookieJar(new SessionCookieJar());
+            HttpCachePolicy.INSTANCE.install(builder, HttpCachePolicy.INSTANCE.cache(App.Companion.getInstance().getCacheDir()));
             if (BuildConfig.DEV) builder.addInterceptor(loggingInterceptor);
 
             httpClient = builder.build();
@@ -146,7 +148,7 @@ public class TeammateService {
                 .registerTypeAdapter(Team.class, new Team.GsonAdapter())
                 .registerTypeAdapter(User.class, new User.GsonAdapter())
                 .registerTypeAdapter(Role.class, new Role.GsonAdapter())
-                .registerTypeAdapter(Game.class, new Game.GsonAdapter())
+                .registerTypeAdapterFactory(new Game.GsonAdapter())
                 .registerTypeAdapter(Stat.class, new Stat.GsonAdapter())
                 .registerTypeAdapter(Chat.class, new Chat.GsonAdapter())
                 .registerTypeAdapter(Event.class, new Event.GsonAdapter())
@@ -156,7 +158,7 @@ public class TeammateService {
                 .registerTypeAdapter(Config.class, new Config.GsonAdapter())
                 .registerTypeAdapter(Device.class, new Device.GsonAdapter())
                 .registerTypeAdapter(Message.class, new Message.GsonAdapter())
-                .registerTypeAdapter(FeedItem.class, new FeedItem.GsonAdapter())
+                .registerTypeAdapterFactory(new FeedItem.GsonAdapter())
                 .registerTypeAdapter(Position.class, new Position.GsonAdapter())
                 .registerTypeAdapter(StatRank.class, new StatRank.GsonAdapter())
                 .registerTypeAdapter(StatType.class, new StatType.GsonAdapter())
@@ -191,6 +193,21 @@ public class TeammateService {
         return httpClient;
     }
 
+    /**
+     * Drops cached responses, they belong to the signed in user.
+     */
+    public static void evictHttpCache() {
+        Cache cache = getHttpClient().cache();
+        if (cache == null) return;
+
+        try {
+            cache.evictAll();
+        }
+        catch (IOException e) {
+            Logger.INSTANCE.log(TAG, "Unable to evict HTTP cache", e);
+        }
+    }
+
     @SuppressWarnings("unused")
     private static void assignSSLSocketFactory(OkHttpClient.Builder builder) {
         try {
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.services
+
+import android.app.job.JobInfo
+import android.app.job.JobParameters
+import android.app.job.JobScheduler
+import android.app.job.JobService
+import android.content.ComponentName
+import android.content.Context
+import com.mainstreetcode.teammate.persistence.Retention
+import io.reactivex.Completable
+import io.reactivex.disposables.Disposable
+import io.reactivex.schedulers.Schedulers.io
+
+/**
+ * Rewrites the database with incremental auto vacuum enabled. The rewrite copies the whole
+ * file, so it only runs while the device is idle and charging.
+ */
+class VacuumJobService : JobService() {
+
+    private var disposable: Disposable? = null
+
+    override fun onStartJob(params: JobParameters): Boolean {
+        disposable = Completable.fromAction(Retention::enableIncrementalVacuum)
+                .subscribeOn(io())
+                .subscribe({ jobFinished(params, false) }, { jobFinished(params, true) })
+        return true
+    }
+
+    override fun onStopJob(params: JobParameters): Boolean {
+        disposable?.dispose()
+        return true
+    }
+
+    companion object {
+
+        private const val JOB_ID = 0x7661
+
+        fun schedule(context: Context) {
+            val scheduler = context.getSystemService(Context.JOB_SCHEDULER_SERVICE) as? JobScheduler
+                    ?: return
+            if (scheduler.allPendingJobs.any { it.id == JOB_ID }) return
+
+            scheduler.schedule(JobInfo.Builder(JOB_ID, ComponentName(context, VacuumJobService::class.java))
+                    .setRequiresDeviceIdle(true)
+                    .setRequiresCharging(true)
+                    .build())
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.socket
+
+import com.google.gson.Gson
+import com.mainstreetcode.teammate.model.Chat
+import com.mainstreetcode.teammate.model.Team
+import com.mainstreetcode.teammate.socket.SocketFactory.Companion.EVENT_JOIN
+import com.mainstreetcode.teammate.socket.SocketFactory.Companion.EVENT_LEAVE
+import com.mainstreetcode.teammate.socket.SocketFactory.Companion.EVENT_NEW_MESSAGE
+import com.mainstreetcode.teammate.util.ErrorHandler
+import io.reactivex.Flowable
+import io.reactivex.processors.PublishProcessor
+import io.socket.client.Socket
+import io.socket.emitter.Emitter
+import org.json.JSONObject
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Routes chats from the team chat socket to whoever listens to their team. A single listener
+ * on the socket parses each message once, and looks up its team's subscribers by id.
+ *
+ * Teams are joined when their first subscriber arrives and left when their last one goes.
+ * Subscribers keep the socket warm, and follow it to its replacement when it drops, so a
+ * connection blip does not end them.
+ */
+class ChatDispatcher(private val gson: Gson) {
+
+    private val routes = HashMap<String, Route>()
+    private var socket: Socket? = null
+
+    private val supervisor = SocketFactory.instance.supervisor
+    private val messageListener = Emitter.Listener(this::onMessage)
+
+    init {
+        @Suppress("LeakingThis")
+        supervisor.connections.subscribe(this::onConnected, ErrorHandler.EMPTY::invoke)
+    }
+
+    fun listen(team: Team): Flowable<Chat> = supervisor.socket().flatMapPublisher { socket ->
+        val route = try {
+            acquire(socket, team)
+        } catch (e: Exception) {
+            return@flatMapPublisher Flowable.error<Chat>(e)
+        }
+
+        route.processor
+                .onBackpressureDrop { dropped.incrementAndGet() }
+                .doFinally { release(route) }
+    }
+            .doOnSubscribe { supervisor.retain() }
+            .doFinally { supervisor.release() }
+
+    @Synchronized
+    private fun acquire(socket: Socket, team: Team): Route {
+        if (this.socket !== socket) attach(socket)
+
+        val route = routes.getOrPut(team.id) { Route(team) }
+        if (route.subscribers++ == 0) socket.emit(EVENT_JOIN, toJson(team))
+
+        return route
+    }
+
+    @Synchronized
+    private fun release(route: Route) {
+        if (routes[route.team.id] !== route || --route.subscribers > 0) return
+
+        routes.remove(route.team.id)
+        socket?.emit(EVENT_LEAVE, toJson(route.team))
+        if (routes.isEmpty()) detach()
+    }
+
+    @Synchronized
+    private fun onConnected(socket: Socket) {
+        if (routes.isNotEmpty() && this.socket !== socket) attach(socket)
+    }
+
+    // Teams still listened to on a socket that was replaced are joined again on the new one
+    private fun attach(socket: Socket) {
+        detach()
+
+        this.socket = socket
+        socket.on(EVENT_NEW_MESSAGE, messageListener)
+
+        routes.values.forEach { socket.emit(EVENT_JOIN, toJson(it.team)) }
+    }
+
+    private fun detach() {
+        socket?.off(EVENT_NEW_MESSAGE, messageListener)
+        socket = null
+    }
+
+    private fun onMessage(vararg args: Any) {
+        val chat = parse(args)
+        val route = if (chat == null) null else synchronized(this) { routes[chat.team.id] }
+
+        if (chat == null || route == null) {
+            dropped.incrementAndGet()
+            return
+        }
+
+        route.processor.onNext(chat)
+        dispatched.incrementAndGet()
+    }
+
+    private fun parse(args: Array<out Any>): Chat? = try {
+        gson.fromJson(args[0].toString(), Chat::class.java)
+    } catch (e: Exception) {
+        null
+    }
+
+    private fun toJson(team: Team) = JSONObject(gson.toJson(team))
+
+    private class Route(val team: Team) {
+        val processor: PublishProcessor<Chat> = PublishProcessor.create()
+        var subscribers = 0
+    }
+
+    data class Metrics(val dispatched: Long, val dropped: Long)
+
+    companion object {
+
+        private val dispatched = AtomicLong()
+        private val dropped = AtomicLong()
+
+        /**
+         * Chats handed to a team's subscribers, and chats that could not be parsed, had no
+         * subscribers for their team, or arrived faster than a subscriber could take them.
+         */
+        val metrics: Metrics
+            get() = Metrics(dispatched.get(), dropped.get())
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.socket
+
+import android.annotation.SuppressLint
+import com.mainstreetcode.teammate.BuildConfig.DEV
+import com.mainstreetcode.teammate.persistence.OutboxDao
+import com.mainstreetcode.teammate.persistence.entity.OutboxEntity
+import com.mainstreetcode.teammate.rest.CircuitBreaker
+import com.mainstreetcode.teammate.rest.RetryPolicy
+import com.mainstreetcode.teammate.socket.SocketFactory.Companion.EVENT_NEW_MESSAGE
+import com.mainstreetcode.teammate.util.ErrorHandler
+import com.mainstreetcode.teammate.util.Logger
+import com.mainstreetcode.teammate.util.TeammateException
+import io.reactivex.Completable
+import io.reactivex.Flowable
+import io.reactivex.Single
+import io.reactivex.schedulers.Schedulers
+import io.reactivex.subjects.SingleSubject
+import io.socket.client.Socket
+import io.socket.client.Socket.EVENT_DISCONNECT
+import io.socket.client.Socket.EVENT_ERROR
+import org.json.JSONObject
+import java.util.*
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Sends chats on the team chat socket in the order they were written, with up to [window] of them
+ * waiting on an acknowledgement at once. Each acknowledgement answers the emit it was passed to,
+ * the chat it carries may have an id assigned by the server. Database writes all run on one thread.
+ *
+ * Chats stay in the database until they are acknowledged. Those in flight when the socket drops
+ * are sent again, in order, once it is back, and [resume] sends those left by a previous process.
+ */
+class ChatOutbox(
+        private val dao: OutboxDao,
+        private val connect: () -> Single<Socket>,
+        connections: Flowable<Socket>,
+        private val window: Int = DEFAULT_WINDOW
+) {
+
+    // Writes run one at a time, so chats are queued in the order they were sent
+    private val writer = Schedulers.from(Executors.newSingleThreadExecutor())
+
+    private val queue = ArrayDeque<OutboxEntity>()
+    private val inFlight = LinkedHashMap<String, OutboxEntity>()
+    private val results = HashMap<String, SingleSubject<String>>()
+
+    private var socket: Socket? = null
+    private var isConnecting = false
+
+    // Chats left queued after connecting gave up are sent once the socket is back
+    init {
+        @Suppress("LeakingThis")
+        connections.subscribe({ flush() }, ErrorHandler.EMPTY::invoke)
+    }
+
+    /**
+     * Queues [payload] for sending, and returns the server's acknowledgement. Sending an id that
+     * is already queued waits on the queued chat instead of sending it twice.
+     */
+    fun send(id: String, teamId: String, payload: String): Single<String> = Single.fromCallable {
+        OutboxEntity(id, teamId, payload, System.currentTimeMillis()).apply { dao.insert(listOf(this)) }
+    }
+            .subscribeOn(writer)
+            .flatMap(this::add)
+
+    /**
+     * Sends chats left in the outbox by a previous process.
+     */
+    fun resume(): Completable = Completable.fromAction { dao.pending().forEach { add(it) } }
+            .subscribeOn(writer)
+
+    @Synchronized
+    private fun add(entity: OutboxEntity): Single<String> {
+        val result = results.getOrPut(entity.id) { SingleSubject.create() }
+        val isQueued = inFlight.containsKey(entity.id) || queue.any { it.id == entity.id }
+
+        if (!isQueued) queue.add(entity)
+        flush()
+
+        return result
+    }
+
+    @Synchronized
+    private fun flush() {
+        val current = socket
+        if (current == null) connect()
+        else while (inFlight.size < window && queue.isNotEmpty()) emit(current, queue.remove())
+    }
+
+    @SuppressLint("CheckResult")
+    private fun connect() {
+        if (isConnecting || queue.isEmpty()) return
+        isConnecting = true
+
+        connect.invoke()
+                .compose(CONNECT_RETRY_POLICY.single<Socket>(CircuitBreaker.named(CHAT_SOCKET)))
+                .subscribe(this::onConnected, this::onConnectionFailed)
+    }
+
+    @Synchronized
+    private fun onConnected(socket: Socket) {
+        isConnecting = false
+        this.socket = socket
+
+        socket.once(EVENT_DISCONNECT) { onDisconnected(socket) }
+        socket.once(EVENT_ERROR) { onDisconnected(socket) }
+        flush()
+    }
+
+    // The chats stay queued for the next send or resume, only those waiting on them are told
+    private fun onConnectionFailed(throwable: Throwable) {
+        val waiting = synchronized(this) {
+            isConnecting = false
+            queue.mapNotNull { results.remove(it.id) }
+        }
+
+        waiting.forEach { it.onError(throwable) }
+    }
+
+    @SuppressLint("CheckResult")
+    private fun emit(socket: Socket, entity: OutboxEntity) {
+        inFlight[entity.id] = entity
+        socket.emit(EVENT_NEW_MESSAGE, arrayOf<Any>(JSONObject(entity.payload))) { args -> onAck(entity, args) }
+
+        Completable.timer(ACK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .subscribe({ onAckTimeout(socket, entity) }, ErrorHandler.EMPTY::invoke)
+    }
+
+    // The ack callback belongs to its own emit, so any chat it carries means this one was delivered,
+    // whatever id the server gave it
+    @SuppressLint("CheckResult")
+    private fun onAck(entity: OutboxEntity, args: Array<out Any>) {
+        val ack = args.getOrNull(0)
+        val isAcknowledged = ack is JSONObject
+        val isExhausted = !isAcknowledged && entity.attempts + 1 >= MAX_ATTEMPTS
+
+        Completable.fromAction {
+            when {
+                isAcknowledged || isExhausted -> dao.delete(entity)
+                else -> dao.update(listOf(entity.copy(attempts = entity.attempts + 1)))
+            }
+        }
+                .subscribeOn(writer)
+                .subscribe({ }, ErrorHandler.EMPTY::invoke)
+
+        val result = synchronized(this) {
+            inFlight.remove(entity.id)
+            when {
+                isAcknowledged || isExhausted -> {
+                    // It may have been queued again after a disconnect the acknowledgement outran
+                    queue.removeAll { it.id == entity.id }
+                    results.remove(entity.id)
+                }
+                else -> {
+                    if (queue.none { it.id == entity.id }) queue.addFirst(entity.copy(attempts = entity.attempts + 1))
+                    null
+                }
+            }
+        }
+
+        when {
+            isAcknowledged -> result?.onSuccess(ack.toString())
+            isExhausted -> result?.onError(TeammateException("Unable to post chat"))
+        }
+        flush()
+    }
+
+    // No acknowledgement in time means the socket is as good as gone
+    @Synchronized
+    private fun onAckTimeout(socket: Socket, entity: OutboxEntity) {
+        if (inFlight[entity.id] === entity) onDisconnected(socket)
+    }
+
+    @Synchronized
+    private fun onDisconnected(socket: Socket) {
+        if (this.socket !== socket) return
+        this.socket = null
+
+        val unacknowledged = inFlight.values.toList()
+        inFlight.clear()
+        unacknowledged.asReversed().forEach(queue::addFirst)
+
+        if (DEV) Logger.log(TAG, "Socket lost with ${unacknowledged.size} chats in flight, ${queue.size} queued")
+        flush()
+    }
+
+    companion object {
+
+        private const val TAG = "ChatOutbox"
+        private const val CHAT_SOCKET = "chat-socket"
+        private const val DEFAULT_WINDOW = 4
+        private const val MAX_ATTEMPTS = 5
+        private const val ACK_TIMEOUT_SECONDS = 15L
+
+        private val CONNECT_RETRY_POLICY = RetryPolicy(maxRetries = 5, baseDelayMillis = 500, maxDelayMillis = 30_000) { true }
+    }
+}
@@ -26,66 +26,33 @@ package com.mainstreetcode.teammate.socket
 
 import android.content.Context.MODE_PRIVATE
 import com.mainstreetcode.teammate.App
-import com.mainstreetcode.teammate.R
 import com.mainstreetcode.teammate.rest.TeammateService.API_BASE_URL
 import com.mainstreetcode.teammate.rest.TeammateService.SESSION_COOKIE
 import com.mainstreetcode.teammate.rest.TeammateService.SESSION_PREFS
 import com.mainstreetcode.teammate.rest.TeammateService.getHttpClient
 import com.mainstreetcode.teammate.util.Logger
-import com.mainstreetcode.teammate.util.TeammateException
 import io.reactivex.Single
-import io.reactivex.processors.PublishProcessor
 import io.socket.client.IO
-import io.socket.client.Manager.EVENT_OPEN
 import io.socket.client.Manager.EVENT_TRANSPORT
 import io.socket.client.Socket
-import io.socket.client.Socket.EVENT_ERROR
 import io.socket.client.Socket.EVENT_RECONNECT_ERROR
 import io.socket.engineio.client.Transport
 import io.socket.engineio.client.Transport.EVENT_REQUEST_HEADERS
 import io.socket.engineio.client.transports.WebSocket
 import java.net.URISyntaxException
-import java.util.concurrent.TimeUnit
-import java.util.concurrent.atomic.AtomicReference
 
 
 class SocketFactory private constructor() {
 
     private val app = App.instance
-    private val teamChatSocketRef = AtomicReference<Socket>()
 
-    val teamChatSocket: Single<Socket>
-        get() {
-            val current = teamChatSocketRef.get()
-
-            if (isConnected(current)) return Single.just(current)
-
-            if (current != null) return Single.timer(1200, TimeUnit.MILLISECONDS).map {
-                val delayed = teamChatSocketRef.get()
-                val isConnected = isConnected(delayed)
-
-                if (!isConnected) teamChatSocketRef.set(null)
-
-                if (isConnected) return@map delayed
-                else throw TeammateException(app.getString(R.string.error_socket))
-            }
-
-            val pending = buildTeamChatSocket()
-                    ?: return Single.error(TeammateException(app.getString(R.string.error_socket)))
-
-            val processor = PublishProcessor.create<Socket>()
-
-            pending.io().once(EVENT_OPEN) {
-                teamChatSocketRef.set(pending)
-                processor.onNext(pending)
-                processor.onComplete()
-            }
-
-            pending.once(EVENT_ERROR, this::onError)
-            pending.connect()
+    /**
+     * Keeps the team chat socket connected for as long as chat is being listened to.
+     */
+    val supervisor = SocketSupervisor(this::buildTeamChatSocket)
 
-            return processor.firstOrError()
-        }
+    val teamChatSocket: Single<Socket>
+        get() = supervisor.socket()
 
     private fun buildBaseSocket(): Socket? {
         var socket: Socket? = null
@@ -149,21 +116,6 @@ class SocketFactory private constructor() {
     private fun onReconnectionError(vararg args: Any) =
             Logger.log(TAG, "Reconnection Error", args[0] as Exception)
 
-    private fun onError(vararg args: Any) {
-        Logger.log(TAG, "Socket Error", args[0] as Exception)
-
-        val socket = teamChatSocketRef.get()
-
-        if (socket != null) {
-            socket.off(EVENT_NEW_MESSAGE)
-            socket.close()
-        }
-
-        teamChatSocketRef.set(null)
-    }
-
-    private fun isConnected(socket: Socket?): Boolean = socket != null && socket.connected()
-
     companion object {
 
         private const val RECONNECTION_ATTEMPTS = 3
@@ -172,6 +124,7 @@ class SocketFactory private constructor() {
         private const val TEAM_CHAT_NAMESPACE = "/team-chat"
         const val EVENT_NEW_MESSAGE = "newMessage"
         const val EVENT_JOIN = "join"
+        const val EVENT_LEAVE = "leave"
 
         private lateinit var INSTANCE: SocketFactory
 
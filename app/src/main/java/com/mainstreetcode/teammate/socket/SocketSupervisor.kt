@@ -0,0 +1,327 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.socket
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.net.NetworkRequest
+import android.os.SystemClock
+import com.mainstreetcode.teammate.App
+import com.mainstreetcode.teammate.BuildConfig.DEV
+import com.mainstreetcode.teammate.R
+import com.mainstreetcode.teammate.rest.RetryPolicy
+import com.mainstreetcode.teammate.util.ErrorHandler
+import com.mainstreetcode.teammate.util.Logger
+import com.mainstreetcode.teammate.util.TeammateException
+import io.reactivex.Completable
+import io.reactivex.Flowable
+import io.reactivex.Single
+import io.reactivex.disposables.Disposable
+import io.reactivex.processors.PublishProcessor
+import io.socket.client.Ack
+import io.socket.client.Manager
+import io.socket.client.Socket
+import io.socket.client.Socket.EVENT_CONNECT
+import io.socket.client.Socket.EVENT_CONNECT_ERROR
+import io.socket.client.Socket.EVENT_DISCONNECT
+import io.socket.client.Socket.EVENT_ERROR
+import io.socket.emitter.Emitter
+import java.util.concurrent.TimeUnit.MILLISECONDS
+import java.util.concurrent.TimeUnit.SECONDS
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Owns the one team chat socket. Callers asking for it while it connects share the same
+ * connection attempt, and callers asking for it once connected get it straight away.
+ *
+ * While anything [retains][retain] the socket it is kept warm: heartbeats check that it is still
+ * alive, and it is reconnected with jittered backoff when it drops or when the device gets a
+ * network back. Once the last holder [releases][release] it, it is closed after a grace period.
+ */
+class SocketSupervisor(private val build: () -> Socket?) {
+
+    private val app = App.instance
+    private val connectionProcessor = PublishProcessor.create<Socket>()
+
+    private var socket: Socket? = null
+    private var connecting: Single<Socket>? = null
+    private var holders = 0
+    private var reconnectAttempt = 0
+    private var wasLost = false
+
+    private var reconnect: Disposable? = null
+    private var heartbeat: Disposable? = null
+    private var idleClose: Disposable? = null
+    private var networkCallback: ConnectivityManager.NetworkCallback? = null
+
+    @Volatile
+    private var lastHeardFrom = 0L
+
+    /**
+     * Each socket as it connects, so listeners on a socket that dropped can move to its replacement.
+     */
+    val connections: Flowable<Socket> = connectionProcessor.onBackpressureLatest()
+
+    @Synchronized
+    fun socket(): Single<Socket> {
+        val current = socket
+        if (current != null && current.connected()) return Single.just(current)
+
+        return connecting ?: Single.defer(this::open)
+                .timeout(CONNECT_TIMEOUT_SECONDS, SECONDS)
+                .doFinally { synchronized(this) { connecting = null } }
+                .cache()
+                .also { connecting = it }
+    }
+
+    /**
+     * Keeps the socket connected until a matching call to [release].
+     */
+    @Synchronized
+    fun retain() {
+        if (holders++ > 0) return
+
+        idleClose?.dispose()
+        registerNetworkCallback()
+        if (socket?.connected() != true) scheduleReconnect(0)
+    }
+
+    @Synchronized
+    fun release() {
+        if (holders == 0 || --holders > 0) return
+
+        idleClose = Completable.timer(IDLE_GRACE_SECONDS, SECONDS)
+                .subscribe(this::closeIfIdle, ErrorHandler.EMPTY::invoke)
+    }
+
+    private fun open(): Single<Socket> {
+        val pending = build() ?: return Single.error(TeammateException(app.getString(R.string.error_socket)))
+        val started = SystemClock.elapsedRealtime()
+
+        return Single.create<Socket> { emitter ->
+            val onError = Emitter.Listener { args ->
+                emitter.tryOnError(args.getOrNull(0) as? Throwable
+                        ?: TeammateException(app.getString(R.string.error_socket)))
+            }
+
+            pending.once(EVENT_CONNECT) { emitter.onSuccess(pending) }
+            pending.once(EVENT_CONNECT_ERROR, onError)
+            pending.once(EVENT_ERROR, onError)
+            emitter.setCancellable { if (!pending.connected()) pending.close() }
+
+            pending.connect()
+        }.doOnSuccess { onConnected(it, SystemClock.elapsedRealtime() - started) }
+    }
+
+    @Synchronized
+    private fun onConnected(connected: Socket, latency: Long) {
+        val previous = socket
+        socket = connected
+        if (previous != null && previous !== connected) close(previous)
+
+        reconnectAttempt = 0
+        lastHeardFrom = SystemClock.elapsedRealtime()
+
+        connects.incrementAndGet()
+        connectMillis.addAndGet(latency)
+        lastConnectMillis.set(latency)
+        if (wasLost) reconnects.incrementAndGet()
+        wasLost = false
+
+        connected.on(EVENT_DISCONNECT) { onLost(connected, "disconnected") }
+        connected.on(EVENT_ERROR) { onLost(connected, "errored") }
+        connected.io().on(Manager.EVENT_PONG) { heard() }
+
+        heartbeat?.dispose()
+        heartbeat = Flowable.interval(HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, SECONDS)
+                .subscribe({ beat(connected) }, ErrorHandler.EMPTY::invoke)
+
+        if (DEV) Logger.log(TAG, "Connected in $latency ms")
+        connectionProcessor.onNext(connected)
+    }
+
+    // The server's transport pings keep a healthy socket heard from even if it does not
+    // answer heartbeats, so only a socket that has gone quiet altogether is dropped
+    private fun beat(beating: Socket) {
+        if (SystemClock.elapsedRealtime() - lastHeardFrom > HEARTBEAT_DEADLINE_MILLIS) {
+            heartbeatsMissed.incrementAndGet()
+            onLost(beating, "missed heartbeats")
+            return
+        }
+
+        val sent = SystemClock.elapsedRealtime()
+        beating.emit(EVENT_HEARTBEAT, arrayOf<Any>(), Ack {
+            heartbeatMillis.set(SystemClock.elapsedRealtime() - sent)
+            heard()
+        })
+    }
+
+    private fun heard() {
+        lastHeardFrom = SystemClock.elapsedRealtime()
+    }
+
+    @Synchronized
+    private fun onLost(lost: Socket, reason: String) {
+        if (socket !== lost) return
+
+        if (DEV) Logger.log(TAG, "Socket $reason")
+
+        socket = null
+        wasLost = true
+        close(lost)
+        if (holders > 0) scheduleReconnect(delayFor(reconnectAttempt))
+    }
+
+    @Synchronized
+    private fun scheduleReconnect(delay: Long) {
+        if (reconnect?.isDisposed == false) return
+
+        reconnect = Completable.timer(delay, MILLISECONDS)
+                .andThen(Single.defer(this::socket))
+                .subscribe({ }, this::onReconnectFailed)
+    }
+
+    @Synchronized
+    private fun onReconnectFailed(throwable: Throwable) {
+        if (DEV) Logger.log(TAG, "Reconnect failed", throwable)
+
+        wasLost = true
+        reconnect = null
+        if (holders > 0) scheduleReconnect(delayFor(++reconnectAttempt))
+    }
+
+    // A network coming back skips whatever is left of the backoff
+    @Synchronized
+    private fun onNetworkAvailable() {
+        if (holders == 0 || socket?.connected() == true) return
+
+        reconnect?.dispose()
+        reconnectAttempt = 0
+        scheduleReconnect(0)
+    }
+
+    @Synchronized
+    private fun closeIfIdle() {
+        if (holders > 0) return
+
+        unregisterNetworkCallback()
+        reconnect?.dispose()
+        val idle = socket
+        socket = null
+        wasLost = false
+        idle?.let(this::close)
+    }
+
+    // Listeners are left in place so others on the socket hear it close, this one ignores
+    // events from sockets it no longer holds
+    private fun close(closing: Socket) {
+        if (socket == null) heartbeat?.dispose()
+        closing.close()
+    }
+
+    private fun registerNetworkCallback() {
+        if (networkCallback != null) return
+        val connectivityManager = app.getSystemService(Context.CONNECTIVITY_SERVICE) as? ConnectivityManager
+                ?: return
+
+        val callback = object : ConnectivityManager.NetworkCallback() {
+            override fun onAvailable(network: Network) = onNetworkAvailable()
+        }
+        val request = NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build()
+
+        try {
+            connectivityManager.registerNetworkCallback(request, callback)
+            networkCallback = callback
+        } catch (e: Exception) {
+            Logger.log(TAG, "Unable to watch connectivity", e)
+        }
+    }
+
+    private fun unregisterNetworkCallback() {
+        val callback = networkCallback ?: return
+        val connectivityManager = app.getSystemService(Context.CONNECTIVITY_SERVICE) as? ConnectivityManager
+
+        try {
+            connectivityManager?.unregisterNetworkCallback(callback)
+        } catch (e: Exception) {
+            Logger.log(TAG, "Unable to stop watching connectivity", e)
+        }
+        networkCallback = null
+    }
+
+    // Full jitter, so clients dropped by the same blip do not all come back at once
+    private fun delayFor(attempt: Int): Long =
+            RetryPolicy.jitteredDelay(attempt, BASE_RECONNECT_DELAY_MILLIS, MAX_RECONNECT_DELAY_MILLIS)
+
+    data class Metrics(
+            val connects: Long,
+            val reconnects: Long,
+            val lastConnectMillis: Long,
+            val averageConnectMillis: Long,
+            val heartbeatMillis: Long,
+            val heartbeatsMissed: Long
+    )
+
+    companion object {
+
+        private const val TAG = "Socket.Supervisor"
+        const val EVENT_HEARTBEAT = "heartbeat"
+
+        private const val CONNECT_TIMEOUT_SECONDS = 15L
+        private const val HEARTBEAT_SECONDS = 20L
+        private const val HEARTBEAT_DEADLINE_MILLIS = 65_000L
+        private const val IDLE_GRACE_SECONDS = 30L
+        private const val BASE_RECONNECT_DELAY_MILLIS = 500L
+        private const val MAX_RECONNECT_DELAY_MILLIS = 30_000L
+
+        private val connects = AtomicLong()
+        private val reconnects = AtomicLong()
+        private val connectMillis = AtomicLong()
+        private val lastConnectMillis = AtomicLong()
+        private val heartbeatMillis = AtomicLong()
+        private val heartbeatsMissed = AtomicLong()
+
+        /**
+         * Sockets connected and how long connecting took, how many of them replaced a socket that
+         * dropped, and the round trip of the last heartbeat the server answered.
+         */
+        val metrics: Metrics
+            get() {
+                val count = connects.get()
+                return Metrics(
+                        connects = count,
+                        reconnects = reconnects.get(),
+                        lastConnectMillis = lastConnectMillis.get(),
+                        averageConnectMillis = if (count == 0L) 0 else connectMillis.get() / count,
+                        heartbeatMillis = heartbeatMillis.get(),
+                        heartbeatsMissed = heartbeatsMissed.get()
+                )
+            }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.util
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import androidx.recyclerview.widget.DiffUtil
+import com.mainstreetcode.teammate.BuildConfig.DEV
+import com.tunjid.androidx.functions.collections.replace
+import com.tunjid.androidx.recyclerview.diff.Diff
+import com.tunjid.androidx.recyclerview.diff.Differentiable
+import io.reactivex.Single
+import io.reactivex.SingleEmitter
+import java.util.*
+import java.util.concurrent.PriorityBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Runs list diffs on a small pool, one at a time per target list and in parallel across lists.
+ *
+ * Diffs waiting on the same list are superseded by the latest of them: their accumulators are
+ * folded into one pass, and only the latest request gets the resulting [DiffUtil.DiffResult], the
+ * others get one without changes. The list is replaced in the same main thread pass that emits
+ * them, so an adapter applying every result in order always matches it.
+ *
+ * When the pool is busy, lists marked with [show] are picked first, then the most recently
+ * requested ones. [metrics] is only read by DEV builds and tests.
+ */
+object DiffScheduler {
+
+    private const val TAG = "DiffScheduler"
+    private const val POOL_SIZE = 3
+    private const val KEEP_ALIVE_SECONDS = 30L
+
+    // Upper bounds of the duration buckets, the last bucket holds anything slower
+    private val BUCKETS_MILLIS = listOf(1L, 2L, 4L, 8L, 16L, 32L, 64L, 128L, 256L, 512L, 1024L)
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val threadCount = AtomicInteger()
+
+    private val pool = ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, PriorityBlockingQueue<Runnable>()) { runnable ->
+        Thread(runnable, "Diffing-${threadCount.incrementAndGet()}")
+    }.apply { allowCoreThreadTimeOut(true) }
+
+    private val lanes = IdentityHashMap<List<*>, Lane>()
+    private val shown = Collections.newSetFromMap(IdentityHashMap<List<*>, Boolean>())
+    private val histograms = HashMap<String, LongArray>()
+    private val supersededCounts = HashMap<String, Long>()
+    private var requestCount = 0L
+
+    private val noChanges: DiffUtil.DiffResult by lazy {
+        DiffUtil.calculateDiff(object : DiffUtil.Callback() {
+            override fun getOldListSize(): Int = 0
+            override fun getNewListSize(): Int = 0
+            override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean = true
+            override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean = true
+        })
+    }
+
+    /**
+     * Diffs [original] against the result of [accumulator], and replaces its contents with that
+     * result on the main thread before emitting.
+     */
+    fun <T : Differentiable> diff(original: MutableList<T>, list: List<T>, accumulator: (List<T>, List<T>) -> List<T>): Single<DiffUtil.DiffResult> =
+            Single.create { emitter ->
+                @Suppress("UNCHECKED_CAST")
+                val request = Request(list, accumulator as (List<Differentiable>, List<Differentiable>) -> List<Differentiable>, emitter)
+
+                @Suppress("UNCHECKED_CAST")
+                val lane = submit(original as MutableList<Differentiable>, request)
+                emitter.setCancellable { cancel(lane, request) }
+            }
+
+    /**
+     * Marks [list] as on screen, so its diffs run ahead of those of other lists until it is
+     * passed to [hide]. Diffs already waiting for the pool keep their place.
+     */
+    @Synchronized
+    fun show(list: List<*>) {
+        shown.add(list)
+    }
+
+    @Synchronized
+    fun hide(list: List<*>) {
+        shown.remove(list)
+    }
+
+    data class Histogram(val bucketsMillis: List<Long>, val counts: List<Long>, val superseded: Long)
+
+    /**
+     * How long diffs took for each kind of list, and how many were superseded, keyed by the type
+     * of item in the list.
+     */
+    val metrics: Map<String, Histogram>
+        @Synchronized get() = histograms.mapValues { (label, counts) ->
+            Histogram(BUCKETS_MILLIS, counts.toList(), supersededCounts[label] ?: 0)
+        }
+
+    @Synchronized
+    private fun submit(original: MutableList<Differentiable>, request: Request): Lane {
+        val lane = lanes.getOrPut(original) { Lane(original, labelOf(original, request.list)) }
+        lane.pending.add(request)
+        lane.requested = ++requestCount
+
+        if (!lane.running) dispatch(lane)
+        return lane
+    }
+
+    @Synchronized
+    private fun cancel(lane: Lane, request: Request) {
+        lane.pending.remove(request)
+    }
+
+    private fun dispatch(lane: Lane) {
+        lane.running = true
+        pool.execute(Task(lane, shown.contains(lane.original), lane.requested))
+    }
+
+    @Synchronized
+    private fun drain(lane: Lane): List<Request> = lane.pending.toList().apply { lane.pending.clear() }
+
+    @Synchronized
+    private fun finish(lane: Lane) {
+        lane.running = false
+        if (lane.pending.isNotEmpty()) dispatch(lane)
+        else lanes.remove(lane.original)
+    }
+
+    @Synchronized
+    private fun record(label: String, millis: Long, superseded: Int) {
+        val counts = histograms.getOrPut(label) { LongArray(BUCKETS_MILLIS.size + 1) }
+        val bucket = BUCKETS_MILLIS.indexOfFirst { millis <= it }
+        counts[if (bucket < 0) BUCKETS_MILLIS.size else bucket]++
+
+        if (superseded > 0) supersededCounts[label] = (supersededCounts[label] ?: 0) + superseded
+    }
+
+    private fun execute(lane: Lane) {
+        val batch = drain(lane)
+        if (batch.isEmpty()) {
+            mainHandler.post { finish(lane) }
+            return
+        }
+
+        val started = SystemClock.elapsedRealtime()
+        val diff = try {
+            Diff.calculate(lane.original, batch.last().list) { source, _ ->
+                batch.fold(source) { folded, request -> request.accumulator(folded, request.list) }
+            }
+        } catch (e: Exception) {
+            if (DEV) Logger.log(TAG, "Unable to diff ${lane.label}", e)
+            mainHandler.post {
+                batch.forEach { it.emitter.tryOnError(e) }
+                finish(lane)
+            }
+            return
+        }
+
+        val millis = SystemClock.elapsedRealtime() - started
+        record(lane.label, millis, batch.size - 1)
+
+        // The list is replaced before the next diff of it starts, so that diff starts from it
+        mainHandler.post {
+            lane.original.replace(diff.items)
+            for (i in 0 until batch.size - 1) batch[i].emitter.onSuccess(noChanges)
+            batch.last().emitter.onSuccess(diff.result)
+            finish(lane)
+        }
+    }
+
+    private fun labelOf(original: List<Differentiable>, list: List<Differentiable>): String =
+            (original.firstOrNull() ?: list.firstOrNull())?.javaClass?.simpleName ?: "Empty"
+
+    private class Lane(val original: MutableList<Differentiable>, val label: String) {
+        val pending = ArrayDeque<Request>()
+        var running = false
+        var requested = 0L
+    }
+
+    private class Request(
+            val list: List<Differentiable>,
+            val accumulator: (List<Differentiable>, List<Differentiable>) -> List<Differentiable>,
+            val emitter: SingleEmitter<DiffUtil.DiffResult>
+    )
+
+    // Lanes on screen run first, then those requested most recently
+    private class Task(val lane: Lane, val shown: Boolean, val requested: Long) : Runnable, Comparable<Task> {
+
+        override fun run() = execute(lane)
+
+        override fun compareTo(other: Task): Int = compareValuesBy(other, this, Task::shown, Task::requested)
+    }
+}
@@ -25,7 +25,6 @@
 package com.mainstreetcode.teammate.util
 
 
-import android.os.HandlerThread
 import androidx.recyclerview.widget.DiffUtil
 import com.mainstreetcode.teammate.model.Competitor
 import com.mainstreetcode.teammate.model.Event
@@ -38,18 +37,12 @@ import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.TeamMember
 import com.mainstreetcode.teammate.model.User
 import com.mainstreetcode.teammate.notifications.FeedItem
-import com.tunjid.androidx.functions.collections.replace
-import com.tunjid.androidx.recyclerview.diff.Diff
 import com.tunjid.androidx.recyclerview.diff.Differentiable
 import io.reactivex.Flowable
 import io.reactivex.Single
-import io.reactivex.android.schedulers.AndroidSchedulers
-import io.reactivex.android.schedulers.AndroidSchedulers.mainThread
 
 object FunctionalDiff {
 
-    private val diffThread: HandlerThread = HandlerThread("Diffing").apply { start() }
-
     val COMPARATOR = Comparator<Differentiable> comparing@{ modelA, modelB ->
         val pointsA = getPoints(modelA)
         val pointsB = getPoints(modelB)
@@ -71,27 +64,20 @@ object FunctionalDiff {
 
     val DESCENDING_COMPARATOR = Comparator<Differentiable> { modelA, modelB -> -COMPARATOR.compare(modelA, modelB) }
 
+    /**
+     * Diffs [original] against each list [sourceFlowable] emits, folded in with [accumulator].
+     * Diffs run on the [DiffScheduler], lists emitted faster than they can be diffed are diffed
+     * together, with the latest of them emitting the result and the rest emitting no changes.
+     */
     fun <T : Differentiable> of(sourceFlowable: Flowable<out List<T>>,
                                 original: MutableList<T>,
                                 accumulator: (List<T>, List<T>) -> List<T>): Flowable<DiffUtil.DiffResult> =
-            sourceFlowable.concatMapDelayError { list ->
-                Flowable.fromCallable { Diff.calculate(original, list, accumulator) }
-                        .subscribeOn(AndroidSchedulers.from(diffThread.looper))
-                        .observeOn(mainThread())
-                        .doOnNext { diff -> original.replace(diff.items) }
-                        .map { diff -> diff.result }
-            }
+            sourceFlowable.flatMapSingle({ list -> DiffScheduler.diff(original, list, accumulator) }, true, Int.MAX_VALUE)
 
     fun <T : Differentiable> of(sourceSingle: Single<out List<T>>,
                                 original: MutableList<T>,
                                 accumulator: (List<T>, List<T>) -> List<T>): Single<DiffUtil.DiffResult> =
-            sourceSingle.flatMap { list ->
-                Single.fromCallable { Diff.calculate(original, list, accumulator) }
-                        .subscribeOn(AndroidSchedulers.from(diffThread.looper))
-                        .observeOn(mainThread())
-                        .doOnSuccess { diff -> original.replace(diff.items) }
-                        .map { diff -> diff.result }
-            }
+            sourceSingle.flatMap { list -> DiffScheduler.diff(original, list, accumulator) }
 
     private fun getPoints(identifiable: Differentiable): Int {
         val it = when (identifiable) {
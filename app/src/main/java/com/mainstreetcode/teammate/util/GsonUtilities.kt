@@ -28,6 +28,8 @@ import com.google.android.gms.maps.model.LatLng
 import com.google.gson.JsonDeserializationContext
 import com.google.gson.JsonElement
 import com.google.gson.JsonObject
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
 
 fun JsonObject.asBooleanOrFalse(key: String): Boolean {
     val element = get(key)
@@ -80,4 +82,63 @@ fun JsonElement.parseCoordinates(key: String): LatLng? {
 
 fun <T> JsonDeserializationContext.deserializeList(listElement: JsonElement?, destination: MutableList<T>, type: Class<T>) {
     if (listElement != null && listElement.isJsonArray) for (element in listElement.asJsonArray) destination.add(deserialize(element, type))
-}
\ No newline at end of file
+}
+
+// Streaming counterparts of the readers above, each consumes the next value whatever its type
+
+fun JsonReader.nextStringOrEmpty(): String = when (peek()) {
+    JsonToken.STRING, JsonToken.NUMBER -> nextString()
+    JsonToken.BOOLEAN -> nextBoolean().toString()
+    else -> "".also { skipValue() }
+}
+
+fun JsonReader.nextBooleanOrFalse(): Boolean = when (peek()) {
+    JsonToken.BOOLEAN -> nextBoolean()
+    JsonToken.STRING, JsonToken.NUMBER -> nextString().toBoolean()
+    else -> false.also { skipValue() }
+}
+
+fun JsonReader.nextFloatOrZero(): Float = when (peek()) {
+    JsonToken.STRING, JsonToken.NUMBER -> nextString().toFloatOrNull() ?: 0F
+    else -> 0F.also { skipValue() }
+}
+
+fun JsonReader.nextCoordinates(): LatLng? {
+    if (peek() != JsonToken.BEGIN_ARRAY) return null.also { skipValue() }
+
+    val values = mutableListOf<Double?>()
+
+    beginArray()
+    while (hasNext()) values.add(when (peek()) {
+        JsonToken.STRING, JsonToken.NUMBER -> nextString().toDoubleOrNull()
+        else -> null.also { skipValue() }
+    })
+    endArray()
+
+    if (values.size != 2) return null
+
+    val (longitude, latitude) = values
+    return if (longitude == null || latitude == null) null else LatLng(latitude, longitude)
+}
+
+/**
+ * Reads the members of the next object, [member] must consume the value of each name it is passed.
+ */
+inline fun JsonReader.readObject(member: (String) -> Unit) {
+    beginObject()
+    while (hasNext()) member(nextName())
+    endObject()
+}
+
+/**
+ * Returns true and consumes the next value if it is null.
+ */
+fun JsonReader.skipNull(): Boolean = (peek() == JsonToken.NULL).also { if (it) nextNull() }
+
+/**
+ * Returns true if the next value is a bare id rather than an object.
+ */
+fun JsonReader.isNextPrimitive(): Boolean = when (peek()) {
+    JsonToken.STRING, JsonToken.NUMBER -> true
+    else -> false
+}
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.util
+
+import com.mainstreetcode.teammate.model.Model
+import com.mainstreetcode.teammate.persistence.StoredRow
+import java.lang.ref.WeakReference
+
+/**
+ * Maps (model class, id) pairs to a single canonical instance, so models read from the network
+ * and the database share nested [models][Model] instead of each carrying its own copy.
+ *
+ * Canonical instances are updated in place, the same way repositories update the models they
+ * are handed, so every holder sees the latest content. Updates are skipped when the stored
+ * columns of the newer copy match, which is the common case for models repeated across a page.
+ *
+ * Instances are weakly held and the map is bounded, entries are dropped once nothing else
+ * references them, or once they are the least recently used.
+ */
+object IdentityMap {
+
+    private const val MAX_SIZE = 1024
+
+    private val instances = object : LinkedHashMap<Pair<Class<*>, String>, WeakReference<Model<*>>>(64, 0.75F, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Pair<Class<*>, String>, WeakReference<Model<*>>>): Boolean =
+                size > MAX_SIZE || eldest.value.get() == null
+    }
+
+    /**
+     * Returns the canonical instance for the model's class and id, making the model canonical if
+     * there is none. A complete model with different content is copied into the canonical one.
+     */
+    @Synchronized
+    fun <T : Model<T>> canonical(model: T): T {
+        if (model.isEmpty || model.id.isBlank()) return model
+
+        val existing = find(model.javaClass, model.id)
+                ?: return model.apply { instances[javaClass to id] = WeakReference(this) }
+
+        updateFrom(existing, model)
+        return existing
+    }
+
+    @Synchronized
+    fun <T : Model<T>> find(type: Class<T>, id: String): T? {
+        val key = type to id
+        val instance = instances[key]?.get()
+        if (instance == null) instances.remove(key)
+
+        @Suppress("UNCHECKED_CAST")
+        return instance as T?
+    }
+
+    /**
+     * Copies each model into its canonical instance if one exists and its content is stale.
+     */
+    @Synchronized
+    fun refresh(models: Iterable<Any?>) = models.forEach(this::refresh)
+
+    @Synchronized
+    fun refresh(model: Any?) {
+        if (model !is Model<*> || model.id.isBlank()) return
+
+        val existing = instances[model.javaClass to model.id]?.get() ?: return
+        updateFrom(existing, model)
+    }
+
+    @Synchronized
+    fun clear() = instances.clear()
+
+    private fun updateFrom(existing: Model<*>, model: Model<*>) {
+        if (existing === model || !model.hasMajorFields() || sameContent(existing, model)) return
+
+        @Suppress("UNCHECKED_CAST")
+        (existing as Model<Any?>).update(model)
+    }
+
+    // Relations compare by id, as they are stored, and text by its characters
+    private fun sameContent(first: Model<*>, second: Model<*>): Boolean {
+        if (first !is StoredRow || second !is StoredRow) return false
+
+        val firstColumns = first.storedColumns()
+        val secondColumns = second.storedColumns()
+
+        return firstColumns.size == secondColumns.size && firstColumns.indices.all { index ->
+            val a = firstColumns[index]
+            val b = secondColumns[index]
+            if (a is CharSequence && b is CharSequence) a.toString() == b.toString() else a == b
+        }
+    }
+}
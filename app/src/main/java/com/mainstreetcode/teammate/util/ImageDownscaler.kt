@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Adetunji Dahunsi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.mainstreetcode.teammate.util
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.Matrix
+import android.net.Uri
+import androidx.exifinterface.media.ExifInterface
+import com.mainstreetcode.teammate.App
+import java.io.BufferedOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import kotlin.math.max
+
+/**
+ * Shrinks photos before they are uploaded. Images are decoded at the largest power of two
+ * sample size that keeps them at least [maxDimension] on their longest side, scaled down the rest
+ * of the way, turned upright according to their EXIF orientation and encoded at [quality] in
+ * [format]. Images are never scaled up.
+ *
+ * The sampled bitmap is under twice [maxDimension] on its longest side, and a second bitmap of at
+ * most [maxDimension] is only allocated when it has to be scaled or turned. Both take two bytes a
+ * pixel when encoding to JPEG, and only one image is downscaled at a time.
+ *
+ * Re-encoding drops the original's metadata, including its location.
+ */
+object ImageDownscaler {
+
+    private const val GIF = "image/gif"
+
+    /**
+     * The longest side, in pixels, of an uploaded image.
+     */
+    var maxDimension = 2048
+
+    var quality = 85
+
+    var format = Bitmap.CompressFormat.JPEG
+
+    class Result(val file: File, val mimeType: String, val bytesSaved: Long)
+
+    /**
+     * Writes a downscaled copy of the image at [uri] to [destination]. Returns null for anything
+     * that is not a still image, or if the copy would be no smaller than the original.
+     */
+    @Synchronized
+    fun downscale(uri: Uri, mimeType: String, length: Long, destination: File): Result? {
+        if (!mimeType.startsWith("image/") || mimeType == GIF) return null
+
+        val bitmap = try {
+            decode(uri)
+        } catch (exception: IOException) {
+            null
+        } ?: return null
+
+        try {
+            write(bitmap, destination)
+        } catch (exception: IOException) {
+            destination.delete()
+            return null
+        } finally {
+            bitmap.recycle()
+        }
+
+        val bytesSaved = length - destination.length()
+        if (length > 0 && bytesSaved > 0) return Result(destination, mimeTypeOf(format), bytesSaved)
+
+        destination.delete()
+        return null
+    }
+
+    private fun decode(uri: Uri): Bitmap? {
+        val resolver = App.instance.contentResolver
+
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        resolver.openInputStream(uri)?.use { BitmapFactory.decodeStream(it, null, bounds) }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null
+
+        val longest = max(bounds.outWidth, bounds.outHeight)
+        val options = BitmapFactory.Options().apply {
+            inSampleSize = sampleSize(longest)
+            // JPEG has no alpha channel, so it loses nothing to two bytes a pixel
+            if (format == Bitmap.CompressFormat.JPEG) inPreferredConfig = Bitmap.Config.RGB_565
+        }
+        val sampled = resolver.openInputStream(uri)?.use { BitmapFactory.decodeStream(it, null, options) }
+                ?: return null
+
+        val orientation = resolver.openInputStream(uri)?.use {
+            ExifInterface(it).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)
+        } ?: ExifInterface.ORIENTATION_NORMAL
+
+        // Only ever shrinks, a sampled bitmap that already fits is kept as decoded
+        val sampledLongest = max(sampled.width, sampled.height)
+        val scale = if (sampledLongest > maxDimension) maxDimension.toFloat() / sampledLongest else 1F
+        val matrix = orientationMatrix(orientation).apply { if (scale < 1F) postScale(scale, scale) }
+        if (matrix.isIdentity) return sampled
+
+        val transformed = Bitmap.createBitmap(sampled, 0, 0, sampled.width, sampled.height, matrix, true)
+        if (transformed !== sampled) sampled.recycle()
+
+        return transformed
+    }
+
+    // The largest power of two that keeps the longest side at maxDimension or above
+    private fun sampleSize(longest: Int): Int {
+        var sampleSize = 1
+        while (longest / (sampleSize * 2) >= maxDimension) sampleSize *= 2
+
+        return sampleSize
+    }
+
+    private fun orientationMatrix(orientation: Int): Matrix = Matrix().apply {
+        when (orientation) {
+            ExifInterface.ORIENTATION_FLIP_HORIZONTAL -> postScale(-1F, 1F)
+            ExifInterface.ORIENTATION_ROTATE_180 -> postRotate(180F)
+            ExifInterface.ORIENTATION_FLIP_VERTICAL -> postScale(1F, -1F)
+            ExifInterface.ORIENTATION_TRANSPOSE -> postRotate(90F).also { postScale(-1F, 1F) }
+            ExifInterface.ORIENTATION_ROTATE_90 -> postRotate(90F)
+            ExifInterface.ORIENTATION_TRANSVERSE -> postRotate(-90F).also { postScale(-1F, 1F) }
+            ExifInterface.ORIENTATION_ROTATE_270 -> postRotate(-90F)
+        }
+    }
+
+    private fun write(bitmap: Bitmap, destination: File) {
+        destination.parentFile?.mkdirs()
+        BufferedOutputStream(FileOutputStream(destination)).use {
+            if (!bitmap.compress(format, quality, it)) throw IOException("Unable to encode ${destination.name}")
+        }
+    }
+
+    private fun mimeTypeOf(format: Bitmap.CompressFormat): String = when (format) {
+        Bitmap.CompressFormat.JPEG -> "image/jpeg"
+        Bitmap.CompressFormat.PNG -> "image/png"
+        else -> "image/webp"
+    }
+}
@@ -87,7 +87,7 @@ class ScrollManager<VH : RecyclerView.ViewHolder> constructor(
         }
 
         fun withEndlessScroll(runnable: () -> Unit): Builder<VH> {
-            this.endlessScrollVisibleThreshold = 5
+            this.endlessScrollVisibleThreshold = Paging.prefetchDistance
             this.endlessScrollConsumer = { runnable.invoke() }
             return thisInstance
         }
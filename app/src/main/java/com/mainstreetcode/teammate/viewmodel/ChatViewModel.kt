@@ -24,6 +24,8 @@
 
 package com.mainstreetcode.teammate.viewmodel
 
+import android.annotation.SuppressLint
+import androidx.recyclerview.widget.DiffUtil
 import com.mainstreetcode.teammate.App
 import com.mainstreetcode.teammate.R
 import com.mainstreetcode.teammate.model.Chat
@@ -32,8 +34,13 @@ import com.mainstreetcode.teammate.notifications.ChatNotifier
 import com.mainstreetcode.teammate.notifications.NotifierProvider
 import com.mainstreetcode.teammate.repository.ChatRepo
 import com.mainstreetcode.teammate.repository.RepoProvider
+import com.mainstreetcode.teammate.rest.CircuitBreaker
+import com.mainstreetcode.teammate.rest.RetryPolicy
+import com.mainstreetcode.teammate.util.ErrorHandler
+import com.mainstreetcode.teammate.util.FunctionalDiff
 import com.mainstreetcode.teammate.util.Logger
 import com.mainstreetcode.teammate.util.areDifferentDays
+import com.mainstreetcode.teammate.util.asDifferentiables
 import com.mainstreetcode.teammate.util.calendarPrint
 import io.reactivex.Flowable
 import io.reactivex.Single
@@ -48,14 +55,19 @@ class ChatViewModel : TeamMappedViewModel<Chat>() {
     private val repository: ChatRepo = RepoProvider.forRepo(ChatRepo::class.java)
     private val notifier: ChatNotifier = NotifierProvider.forNotifier(ChatNotifier::class.java)
 
+    // Retries start over with each chat received, so only a connection that keeps failing gives up
+    private val listenRetryPolicy = RetryPolicy(maxRetries = 5, baseDelayMillis = 500, maxDelayMillis = 30_000, isRetryable = this::shouldRetry)
+
     override fun hasNativeAds(): Boolean = false
 
     override fun sortsAscending(): Boolean = true
 
     override fun valueClass(): Class<Chat> = Chat::class.java
 
+    // Not tied to this view model, the time is saved even if it is cleared first
+    @SuppressLint("CheckResult")
     fun updateLastSeen(team: Team) {
-        repository.updateLastSeen(team)
+        repository.updateLastSeen(team).subscribe({ }, ErrorHandler.EMPTY::invoke)
 
         val chat = getModelList(team).filterIsInstance<Chat>().firstOrNull()
         if (chat != null) clearNotifications(chat)
@@ -82,25 +94,24 @@ class ChatViewModel : TeamMappedViewModel<Chat>() {
     }
 
     fun listenForChat(team: Team): Flowable<Chat> = repository.listenForChat(team)
-            .onErrorResumeNext(listenRetryFunction(team)::invoke)
             .doOnSubscribe { notifier.setChatVisibility(team, true) }
             .doFinally { notifier.setChatVisibility(team, false) }
+            .compose(listenRetryPolicy.flowable<Chat>(CircuitBreaker.named(CHAT_LISTENER)))
             .observeOn(mainThread())
 
+    /**
+     * Merges chats missed while the team was not listened to into its list.
+     */
+    fun fillGaps(team: Team): Flowable<DiffUtil.DiffResult> = FunctionalDiff.of(
+            repository.missedChats(team).map(::asDifferentiables),
+            getModelList(team),
+            this::preserveList
+    )
+
     fun post(chat: Chat): Single<Chat> = repository.createOrUpdate(chat).observeOn(mainThread())
 
     override fun fetch(key: Team, fetchLatest: Boolean): Flowable<List<Chat>> =
-            repository.modelsBefore(key, getQueryDate(fetchLatest, key) { it.created })
-
-    private fun listenRetryFunction(team: Team): (Throwable) -> Flowable<Chat> = { throwable: Throwable ->
-        if (shouldRetry(throwable))
-            repository.listenForChat(team)
-                    .onErrorResumeNext(listenRetryFunction(team)::invoke)
-                    .doOnSubscribe { notifier.setChatVisibility(team, true) }
-                    .doFinally { notifier.setChatVisibility(team, false) }
-                    .observeOn(mainThread())
-        else Flowable.error(throwable)
-    }
+            repository.modelsBefore(key, getQueryCursor(fetchLatest, key) { it.created })
 
     private fun shouldRetry(throwable: Throwable): Boolean {
         val retry = XHR_POST_ERROR == throwable.message || throwable is EngineIOException && throwable.cause is EOFException
@@ -108,16 +119,9 @@ class ChatViewModel : TeamMappedViewModel<Chat>() {
         return retry
     }
 
-    override fun getQueryDate(fetchLatest: Boolean, key: Team, dateFunction: (Chat) -> Date): Date? {
-        if (fetchLatest) return null
-
-        // Chats use find first
-        val value = getModelList(key).filterIsInstance(valueClass()).firstOrNull()
-        return if (value == null) null else dateFunction.invoke(value)
-    }
-
     companion object {
 
         private const val XHR_POST_ERROR = "xhr post error"
+        private const val CHAT_LISTENER = "chat-listener"
     }
 }
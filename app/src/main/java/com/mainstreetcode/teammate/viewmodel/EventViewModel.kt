@@ -116,7 +116,7 @@ class EventViewModel : TeamMappedViewModel<Event>() {
     }
 
     override fun fetch(key: Team, fetchLatest: Boolean): Flowable<List<Event>> =
-            repository.modelsBefore(key, getQueryDate(fetchLatest, key) { it.startDate })
+            repository.modelsBefore(key, getQueryCursor(fetchLatest, key) { it.startDate })
 
     private fun getEvent(event: Event): Flowable<Event> =
             if (event.isEmpty) Flowable.empty() else repository[event]
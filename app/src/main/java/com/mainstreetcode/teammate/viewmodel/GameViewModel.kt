@@ -82,7 +82,7 @@ class GameViewModel : TeamMappedViewModel<Game>() {
     }
 
     override fun fetch(key: Team, fetchLatest: Boolean): Flowable<List<Game>> =
-            gameRepository.modelsBefore(key, getQueryDate(fetchLatest, key) { it.created })
+            gameRepository.modelsBefore(key, getQueryCursor(fetchLatest, key) { it.created })
                     .map { games -> filterDeclinedGamed(key, games) }
 
     @SuppressLint("UseSparseArrays")
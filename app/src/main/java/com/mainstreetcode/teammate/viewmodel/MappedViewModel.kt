@@ -33,6 +33,7 @@ import com.mainstreetcode.teammate.model.JoinRequest
 import com.mainstreetcode.teammate.model.Media
 import com.mainstreetcode.teammate.model.Message
 import com.mainstreetcode.teammate.model.Model
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.model.Role
 import com.mainstreetcode.teammate.model.Team
 import com.mainstreetcode.teammate.model.Tournament
@@ -135,6 +136,17 @@ abstract class MappedViewModel<K, V : Differentiable> internal constructor() : B
         if (message != null) onErrorMessage(message, key, model)
     }
 
+    /**
+     * Cursor for the page after the oldest item loaded, whichever order the list is displayed in.
+     */
+    internal fun getQueryCursor(fetchLatest: Boolean, key: K, dateFunction: (V) -> Date): PageCursor? {
+        if (fetchLatest) return null
+
+        return getModelList(key).filterIsInstance(valueClass())
+                .map { PageCursor(dateFunction.invoke(it), it.diffId) }
+                .min()
+    }
+
     internal open fun getQueryDate(fetchLatest: Boolean, key: K, dateFunction: (V) -> Date): Date? {
         if (fetchLatest) return null
 
@@ -74,7 +74,7 @@ class StatViewModel : MappedViewModel<Game, Stat>() {
     override fun valueClass(): Class<Stat> = Stat::class.java
 
     override fun fetch(key: Game, fetchLatest: Boolean): Flowable<List<Stat>> =
-            repository.modelsBefore(key, getQueryDate(fetchLatest, key) { it.created })
+            repository.modelsBefore(key, getQueryCursor(fetchLatest, key) { it.created })
 
     override fun getModelList(key: Game): MutableList<Differentiable> =
             modelListMap.getOrPut(key.id) { mutableListOf() }
@@ -69,7 +69,7 @@ class TeamMemberViewModel : TeamMappedViewModel<TeamMember>() {
             filterJoinedMembers(super.afterPreserveListDiff(source))
 
     override fun fetch(key: Team, fetchLatest: Boolean): Flowable<List<TeamMember>> =
-            repo.modelsBefore(key, getQueryDate(fetchLatest, key, TeamMember::created))
+            repo.modelsBefore(key, getQueryCursor(fetchLatest, key, TeamMember::created))
 
     fun gofer(joinRequest: JoinRequest): JoinRequestGofer = JoinRequestGofer(
             joinRequest,
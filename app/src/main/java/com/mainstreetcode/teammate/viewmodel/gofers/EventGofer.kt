@@ -32,6 +32,7 @@ import com.mainstreetcode.teammate.R
 import com.mainstreetcode.teammate.model.BlockedUser
 import com.mainstreetcode.teammate.model.Event
 import com.mainstreetcode.teammate.model.Guest
+import com.mainstreetcode.teammate.model.PageCursor
 import com.mainstreetcode.teammate.repository.GuestRepo
 import com.mainstreetcode.teammate.repository.RepoProvider
 import com.mainstreetcode.teammate.util.ErrorHandler
@@ -93,7 +94,7 @@ constructor(
     override fun fetch(): Flowable<DiffUtil.DiffResult> {
         if (isSettingLocation) return Flowable.empty()
         val eventFlowable = getFunction.invoke(model).map(Event::asDifferentiables)
-        val guestsFlowable = guestRepository.modelsBefore(model, Date()).map(::asDifferentiables)
+        val guestsFlowable = guestRepository.modelsBefore(model, PageCursor(Date())).map(::asDifferentiables)
         val sourceFlowable = Flowable.concatDelayError(listOf(eventFlowable, guestsFlowable))
         return FunctionalDiff.of(sourceFlowable, items, this::preserveItems)
     }